@@ -0,0 +1,182 @@
+package org.seasar.framework.unit.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.seasar.framework.unit.annotation.RootDicon;
+
+/**
+ * ベンチマークで実行するテストクラス.
+ * <p>
+ * テストランナーを比較できるように {@code RunWith} は指定しない。
+ * </p>
+ */
+public final class Fixtures {
+    /** インスタンスを生成しない. */
+    private Fixtures() {
+    }
+
+    /**
+     * 空のテスト.
+     */
+    public static class Empty {
+        /**
+         * 何もしないテスト.
+         */
+        @Test
+        public void test() {
+        }
+    }
+
+    /**
+     * 空のテストメソッドを複数持つテスト.
+     */
+    public static class ManyMethods {
+        /** テストメソッドの数 */
+        public static final int METHODS = 10;
+
+        /** 何もしないテスト. */
+        @Test
+        public void test01() {
+        }
+        /** 何もしないテスト. */
+        @Test
+        public void test02() {
+        }
+        /** 何もしないテスト. */
+        @Test
+        public void test03() {
+        }
+        /** 何もしないテスト. */
+        @Test
+        public void test04() {
+        }
+        /** 何もしないテスト. */
+        @Test
+        public void test05() {
+        }
+        /** 何もしないテスト. */
+        @Test
+        public void test06() {
+        }
+        /** 何もしないテスト. */
+        @Test
+        public void test07() {
+        }
+        /** 何もしないテスト. */
+        @Test
+        public void test08() {
+        }
+        /** 何もしないテスト. */
+        @Test
+        public void test09() {
+        }
+        /** 何もしないテスト. */
+        @Test
+        public void test10() {
+        }
+    }
+
+    /**
+     * ルートの dicon を指定したテスト.
+     */
+    @RootDicon("benchmark-root.dicon")
+    public static class CustomRootDicon extends Empty {
+    }
+
+    /**
+     * jta.dicon をインクルードし、トランザクションを開始するテスト.
+     */
+    @RootDicon("benchmark-jta.dicon")
+    public static class Jta extends Empty {
+    }
+
+    /**
+     * 自動バインディングの対象となるフィールドが多いテスト.
+     */
+    public static class ManyFields extends Empty {
+        /** バインディングされないフィールド */
+        private String _string1;
+        /** バインディングされないフィールド */
+        private String _string2;
+        /** バインディングされないフィールド */
+        private Integer _integer1;
+        /** バインディングされないフィールド */
+        private Integer _integer2;
+        /** バインディングされないフィールド */
+        private Long _long1;
+        /** バインディングされないフィールド */
+        private Long _long2;
+        /** バインディングされないフィールド */
+        private BigDecimal _decimal1;
+        /** バインディングされないフィールド */
+        private BigDecimal _decimal2;
+        /** バインディングされないフィールド */
+        private Date _date1;
+        /** バインディングされないフィールド */
+        private Date _date2;
+        /** バインディングされないフィールド */
+        private List<String> _list1;
+        /** バインディングされないフィールド */
+        private List<String> _list2;
+        /** バインディングされないフィールド */
+        private Map<String, String> _map1;
+        /** バインディングされないフィールド */
+        private Map<String, String> _map2;
+        /** バインディングされないフィールド */
+        private Object _object1;
+        /** バインディングされないフィールド */
+        private Object _object2;
+    }
+
+    /**
+     * クラス階層の 1 段目.
+     */
+    public abstract static class Level1 extends Empty {
+        /** バインディングされないフィールド */
+        private String _level1;
+    }
+
+    /**
+     * クラス階層の 2 段目.
+     */
+    public abstract static class Level2 extends Level1 {
+        /** バインディングされないフィールド */
+        private String _level2;
+    }
+
+    /**
+     * クラス階層の 3 段目.
+     */
+    public abstract static class Level3 extends Level2 {
+        /** バインディングされないフィールド */
+        private String _level3;
+    }
+
+    /**
+     * クラス階層の 4 段目.
+     */
+    public abstract static class Level4 extends Level3 {
+        /** バインディングされないフィールド */
+        private String _level4;
+    }
+
+    /**
+     * クラス階層の 5 段目.
+     */
+    public abstract static class Level5 extends Level4 {
+        /** バインディングされないフィールド */
+        private String _level5;
+    }
+
+    /**
+     * クラス階層が深いテスト.
+     */
+    public static class DeepHierarchy extends Level5 {
+        /** バインディングされないフィールド */
+        private String _level6;
+    }
+}
@@ -0,0 +1,137 @@
+package org.seasar.framework.unit.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.runner.Runner;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.BlockJUnit4ClassRunner;
+import org.junit.runners.model.InitializationError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.framework.unit.Seasar24;
+
+/**
+ * {@link Seasar24} がテストクラス、テストメソッドごとに追加する処理時間を計測する.
+ * <p>
+ * 同じテストクラスを {@link BlockJUnit4ClassRunner} で実行した場合と比較する。
+ * テストメソッドごとの処理時間は、テストメソッドが 1 つのクラスと
+ * {@value Fixtures.ManyMethods#METHODS} 個のクラスの差から求められる。
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RunnerOverheadBenchmark {
+    /**
+     * 空のテストを JUnit の標準のテストランナーで実行する.
+     *
+     * @throws Exception テストの実行に失敗した場合
+     */
+    @Benchmark
+    public void plainEmpty() throws Exception {
+        run(new BlockJUnit4ClassRunner(Fixtures.Empty.class));
+    }
+
+    /**
+     * 空のテストをデフォルトの s2junit4.dicon で実行する.
+     *
+     * @throws Exception テストの実行に失敗した場合
+     */
+    @Benchmark
+    public void seasar24Empty() throws Exception {
+        run(new Seasar24(Fixtures.Empty.class));
+    }
+
+    /**
+     * 複数の空のテストメソッドを JUnit の標準のテストランナーで実行する.
+     *
+     * @throws Exception テストの実行に失敗した場合
+     */
+    @Benchmark
+    public void plainManyMethods() throws Exception {
+        run(new BlockJUnit4ClassRunner(Fixtures.ManyMethods.class));
+    }
+
+    /**
+     * 複数の空のテストメソッドを実行する.
+     *
+     * @throws Exception テストの実行に失敗した場合
+     */
+    @Benchmark
+    public void seasar24ManyMethods() throws Exception {
+        run(new Seasar24(Fixtures.ManyMethods.class));
+    }
+
+    /**
+     * ルートの dicon を指定したテストを実行する.
+     *
+     * @throws Exception テストの実行に失敗した場合
+     */
+    @Benchmark
+    public void seasar24RootDicon() throws Exception {
+        run(new Seasar24(Fixtures.CustomRootDicon.class));
+    }
+
+    /**
+     * JTA を有効にしたテストを実行する.
+     *
+     * @throws Exception テストの実行に失敗した場合
+     */
+    @Benchmark
+    public void seasar24Jta() throws Exception {
+        run(new Seasar24(Fixtures.Jta.class));
+    }
+
+    /**
+     * 自動バインディングの対象となるフィールドが多いテストを実行する.
+     *
+     * @throws Exception テストの実行に失敗した場合
+     */
+    @Benchmark
+    public void seasar24ManyFields() throws Exception {
+        run(new Seasar24(Fixtures.ManyFields.class));
+    }
+
+    /**
+     * クラス階層が深いテストを実行する.
+     *
+     * @throws Exception テストの実行に失敗した場合
+     */
+    @Benchmark
+    public void seasar24DeepHierarchy() throws Exception {
+        run(new Seasar24(Fixtures.DeepHierarchy.class));
+    }
+
+    /**
+     * テストを実行し、失敗した場合は例外を送出する.
+     *
+     * @param runner テストランナー
+     * @throws InitializationError テストが失敗した場合
+     */
+    private static void run(final Runner runner) throws InitializationError {
+        RunNotifier notifier = new RunNotifier();
+        final StringBuilder failures = new StringBuilder();
+        notifier.addListener(new RunListener() {
+            @Override
+            public void testFailure(final Failure failure) {
+                failures.append(failure.getTrace());
+            }
+        });
+        runner.run(notifier);
+        if (failures.length() > 0) {
+            throw new IllegalStateException(failures.toString());
+        }
+    }
+}
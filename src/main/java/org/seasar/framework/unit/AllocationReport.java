@@ -0,0 +1,255 @@
+package org.seasar.framework.unit;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * テストメソッドごとのメモリの割り当て量と CPU 時間を集計し、
+ * 割り当て量の多い順に出力するリスナー.
+ * <p>
+ * 割り当て量は、コンテナの構築、フィールドのバインディング、
+ * テストメソッドの本体、後処理の別にも集計し、
+ * テストメソッドのコンテナの構成とともに CSV で出力する。
+ * </p>
+ * <p>
+ * タイムアウトを指定したテストメソッドの本体、ルートコンテナの事前の構築、
+ * バックグラウンドでのコンテナの破棄は、テストメソッドを実行している
+ * スレッドとは別のスレッドで実行されるため、
+ * {@link TestPhase#METHOD} の計測結果に含まれない。
+ * これらの段階の割り当て量と CPU 時間はテストメソッドの合計に加え、
+ * 別のスレッドの割り当て量として {@code off_thread_bytes} にも出力する。
+ * </p>
+ */
+public class AllocationReport implements TestPhaseListener {
+    /** CSV のヘッダー */
+    private static final String CSV_HEADER =
+            "rank,test,allocated_bytes,cpu_ns,elapsed_ns,off_thread_bytes,"
+            + "container_bytes,binding_bytes,body_bytes,teardown_bytes,"
+            + "configuration";
+
+    /** コンテナの構築の段階 */
+    private static final Set<TestPhase> CONTAINER_PHASES = EnumSet.of(
+            TestPhase.ROOT_CONTAINER, TestPhase.ROOT_CONTAINER_PREBUILD,
+            TestPhase.WARM_DEPLOY,
+            TestPhase.TEST_CONTEXT, TestPhase.CONTAINER_INCLUDE,
+            TestPhase.CONTAINER_INIT);
+    /** フィールドのバインディングの段階 */
+    private static final Set<TestPhase> BINDING_PHASES =
+            EnumSet.of(TestPhase.FIELDS_BINDING);
+    /** テストメソッドの本体の段階 */
+    private static final Set<TestPhase> BODY_PHASES =
+            EnumSet.of(TestPhase.TEST_DATA, TestPhase.TEST);
+    /** 後処理の段階 */
+    private static final Set<TestPhase> TEARDOWN_PHASES = EnumSet.of(
+            TestPhase.TRANSACTION_END, TestPhase.FIELDS_UNBINDING,
+            TestPhase.CONTAINER_DESTROY, TestPhase.TEST_CONTEXT_DISPOSE);
+
+    /** テストメソッドごとの集計結果 */
+    private final Map<String, Entry> _entries = new LinkedHashMap<>();
+
+    @Override
+    public synchronized void phaseFinished(final TestPhaseEvent event) {
+        if (event.getMethod() == null || event.getAllocatedBytes() < 0) {
+            return;
+        }
+        String test = event.getTestClass().getName()
+                + "#" + event.getMethod().getName();
+        Entry entry = _entries.get(test);
+        if (entry == null) {
+            entry = new Entry(test, ContainerSignature.of(
+                    event.getTestClass(), event.getMethod()).toString());
+            _entries.put(test, entry);
+        }
+        entry.add(event);
+    }
+
+    /**
+     * 集計結果を、割り当て量の多い順に CSV でファイルに出力する.
+     *
+     * @param file 出力先のファイル
+     * @throws IOException 出力に失敗した場合
+     */
+    public void write(final File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writeCsv(writer);
+        }
+    }
+
+    /**
+     * 集計結果を、割り当て量の多い順に CSV で出力する.
+     *
+     * @param writer 出力先
+     */
+    public synchronized void writeCsv(final PrintWriter writer) {
+        List<Entry> entries = CollectionsUtil.newArrayList();
+        entries.addAll(_entries.values());
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(final Entry o1, final Entry o2) {
+                return Long.compare(o2.getAllocated(), o1.getAllocated());
+            }
+        });
+
+        writer.println(CSV_HEADER);
+        int rank = 1;
+        for (final Entry e : entries) {
+            writer.printf("%d,%s,%d,%d,%d,%d,%d,%d,%d,%d,%s%n",
+                    rank++, e._test, e.getAllocated(), e.getCpu(),
+                    e._elapsed, e.getOffThreadAllocated(), e._container,
+                    e._binding, e._body, e._teardown,
+                    escapeCsv(e._configuration));
+        }
+        writer.flush();
+    }
+
+    /**
+     * CSV のフィールドとして出力できるように、文字列を引用符で囲む.
+     * <p>
+     * 文字列に含まれる引用符は二重にする。
+     * </p>
+     *
+     * @param value 文字列
+     * @return 引用符で囲んだ文字列
+     */
+    static String escapeCsv(final String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * テストメソッドの集計結果.
+     */
+    private static final class Entry {
+        /** テストメソッド */
+        private final String _test;
+        /** コンテナの構成 */
+        private final String _configuration;
+        /** テストメソッド全体のメモリの割り当て量 */
+        private long _allocated = 0L;
+        /** テストメソッド全体の CPU 時間 */
+        private long _cpu = 0L;
+        /** テストメソッド全体の経過時間 */
+        private long _elapsed = 0L;
+        /** コンテナの構築のメモリの割り当て量 */
+        private long _container = 0L;
+        /** フィールドのバインディングのメモリの割り当て量 */
+        private long _binding = 0L;
+        /** テストメソッドの本体のメモリの割り当て量 */
+        private long _body = 0L;
+        /** 後処理のメモリの割り当て量 */
+        private long _teardown = 0L;
+        /** テストメソッド全体を実行したスレッドの ID */
+        private final Set<Long> _methodThreads = new HashSet<>();
+        /**
+         * 処理の段階を実行したスレッドごとの、
+         * メモリの割り当て量と CPU 時間の合計
+         */
+        private final Map<Long, long[]> _phaseThreads = new HashMap<>();
+
+        /**
+         * 集計結果を作成する.
+         *
+         * @param test テストメソッド
+         * @param configuration コンテナの構成
+         */
+        Entry(final String test, final String configuration) {
+            _test = test;
+            _configuration = configuration;
+        }
+
+        /**
+         * 計測結果を追加する.
+         *
+         * @param event イベント
+         */
+        void add(final TestPhaseEvent event) {
+            TestPhase phase = event.getPhase();
+            long bytes = event.getAllocatedBytes();
+            if (phase == TestPhase.METHOD) {
+                _allocated += bytes;
+                _cpu += Math.max(0L, event.getCpuNanos());
+                _elapsed += event.getElapsedNanos();
+                _methodThreads.add(event.getThreadId());
+                return;
+            }
+            long[] total = _phaseThreads.get(event.getThreadId());
+            if (total == null) {
+                total = new long[2];
+                _phaseThreads.put(event.getThreadId(), total);
+            }
+            total[0] += bytes;
+            total[1] += Math.max(0L, event.getCpuNanos());
+            if (CONTAINER_PHASES.contains(phase)) {
+                _container += bytes;
+            } else if (BINDING_PHASES.contains(phase)) {
+                _binding += bytes;
+            } else if (BODY_PHASES.contains(phase)) {
+                _body += bytes;
+            } else if (TEARDOWN_PHASES.contains(phase)) {
+                _teardown += bytes;
+            }
+        }
+
+        /**
+         * テストメソッド全体のメモリの割り当て量を返す.
+         *
+         * @return 別のスレッドの割り当て量を含む割り当て量
+         */
+        long getAllocated() {
+            return _allocated + getOffThread(0);
+        }
+
+        /**
+         * テストメソッド全体の CPU 時間を返す.
+         *
+         * @return 別のスレッドの CPU 時間を含む CPU 時間
+         */
+        long getCpu() {
+            return _cpu + getOffThread(1);
+        }
+
+        /**
+         * 別のスレッドで実行した処理の段階のメモリの割り当て量を返す.
+         *
+         * @return メモリの割り当て量
+         */
+        long getOffThreadAllocated() {
+            return getOffThread(0);
+        }
+
+        /**
+         * テストメソッド全体を実行したスレッド以外のスレッドの合計を返す.
+         *
+         * @param index {@code 0} はメモリの割り当て量、{@code 1} は CPU 時間
+         * @return 合計
+         */
+        private long getOffThread(final int index) {
+            long result = 0L;
+            for (final Map.Entry<Long, long[]> e : _phaseThreads.entrySet()) {
+                if (!_methodThreads.contains(e.getKey())) {
+                    result += e.getValue()[index];
+                }
+            }
+            return result;
+        }
+    }
+}
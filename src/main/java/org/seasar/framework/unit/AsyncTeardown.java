@@ -0,0 +1,187 @@
+package org.seasar.framework.unit;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.seasar.framework.util.DisposableUtil;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * テストメソッドの S2 コンテナを、バックグラウンドのスレッドで破棄する.
+ * <p>
+ * システムプロパティ {@value #THREADS_KEY} にスレッド数が指定されている場合だけ有効になる。
+ * スレッドプールは JVM で共有し、最初に使用した時点のスレッド数で作成する。
+ * 破棄を待つコンテナの数はスレッド数の {@value #QUEUE_FACTOR} 倍までで、
+ * 超えた場合はテストを実行しているスレッドで破棄する。
+ * </p>
+ * <p>
+ * バックグラウンドで行うのはコンテナのインスタンスの破棄だけで、
+ * {@link DisposableUtil#dispose()}、コンテナのプロバイダのリセット、
+ * {@link TestContextRepository} の削除は、これまでどおり
+ * テストを実行しているスレッドで行う。
+ * 破棄は {@code After} メソッドの実行後に開始し、次のテストメソッドは
+ * 破棄の完了を待たずに実行する。
+ * 破棄で発生した例外は、テストクラスの終了時に {@link #await()} で報告する。
+ * </p>
+ */
+class AsyncTeardown {
+    /** スレッド数を指定するシステムプロパティのキー */
+    static final String THREADS_KEY =
+            "org.seasar.framework.unit.asyncTeardownThreads";
+    /** スレッド数に対する、破棄を待つコンテナの数の倍率 */
+    static final int QUEUE_FACTOR = 4;
+
+    /** 破棄が完了していないコンテナ */
+    private final List<Future<?>> _futures = CollectionsUtil.newArrayList();
+    /** 破棄を延期したテストコンテキスト */
+    private final Set<InternalTestContext> _deferredContexts =
+            Collections.newSetFromMap(
+                    new IdentityHashMap<InternalTestContext, Boolean>());
+
+    /**
+     * システムプロパティに指定されたスレッド数を返す.
+     *
+     * @return スレッド数、指定されていない場合は {@code 0}
+     */
+    static int getConfiguredThreads() {
+        return Integer.getInteger(THREADS_KEY, 0);
+    }
+
+    /**
+     * テストコンテキストの S2 コンテナの破棄を、{@code After} メソッドの
+     * 実行後まで延期する.
+     *
+     * @param testContext テストコンテキスト
+     */
+    public void defer(final InternalTestContext testContext) {
+        synchronized (_deferredContexts) {
+            _deferredContexts.add(testContext);
+        }
+    }
+
+    /**
+     * 破棄を延期したテストコンテキストの S2 コンテナを、バックグラウンドで破棄する.
+     * <p>
+     * {@link #defer(InternalTestContext)} で延期していない場合は何もしない。
+     * 破棄するスレッドのコンテキストクラスローダーには、
+     * 呼び出し元のコンテキストクラスローダーを設定する。
+     * 破棄の処理時間は、破棄するスレッドで計測する。
+     * </p>
+     *
+     * @param testContext テストコンテキスト
+     * @param testClass テストクラス
+     * @param method テストメソッド
+     */
+    public void destroy(
+            final InternalTestContext testContext,
+            final Class<?> testClass,
+            final Method method) {
+        synchronized (_deferredContexts) {
+            if (!_deferredContexts.remove(testContext)) {
+                return;
+            }
+        }
+        final ClassLoader classLoader =
+                Thread.currentThread().getContextClassLoader();
+        Future<?> future = Holder.EXECUTOR.submit(new Runnable() {
+            @Override
+            public void run() {
+                Thread thread = Thread.currentThread();
+                ClassLoader original = thread.getContextClassLoader();
+                thread.setContextClassLoader(classLoader);
+                TestPhaseTimer timer =
+                        TestPhaseTimer.start(TestPhase.CONTAINER_DESTROY);
+                try {
+                    testContext.destroyContainer();
+                } finally {
+                    timer.stop(testClass, method);
+                    thread.setContextClassLoader(original);
+                }
+            }
+        });
+        synchronized (_futures) {
+            _futures.add(future);
+        }
+    }
+
+    /**
+     * バックグラウンドで破棄しているすべてのコンテナの破棄が完了するまで待つ.
+     *
+     * @throws Throwable コンテナの破棄に失敗した場合、最初に発生した例外
+     */
+    public void await() throws Throwable {
+        List<Future<?>> futures;
+        synchronized (_futures) {
+            futures = CollectionsUtil.newArrayList();
+            futures.addAll(_futures);
+            _futures.clear();
+        }
+
+        Throwable error = null;
+        for (final Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (error == null) {
+                    error = e.getCause();
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * コンテナを破棄するスレッドプールを遅延して初期化するためのホルダー.
+     */
+    private static final class Holder {
+        /** コンテナを破棄するスレッドプール */
+        static final ExecutorService EXECUTOR = createExecutor();
+
+        /** インスタンスを生成しない. */
+        private Holder() {
+        }
+
+        /**
+         * コンテナを破棄するスレッドプールを作成する.
+         *
+         * @return スレッドプール
+         */
+        private static ExecutorService createExecutor() {
+            int threads = Math.max(1, getConfiguredThreads());
+            return new ThreadPoolExecutor(
+                    threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(threads * QUEUE_FACTOR),
+                    new TeardownThreadFactory(),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+    }
+
+    /**
+     * コンテナを破棄するデーモンスレッドを作成する.
+     */
+    private static final class TeardownThreadFactory implements ThreadFactory {
+        /** スレッドの番号 */
+        private final AtomicInteger _count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(
+                    runnable, "s2junit4-teardown-" + _count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package org.seasar.framework.unit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.validation.Schema;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.Parser;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * 解析した XML の SAX のイベントを {@link ContainerDefinitionCache} に保持し、
+ * 同じ XML の解析では保持しているイベントを通知する {@link SAXParserFactory}.
+ * <p>
+ * {@link ContainerDefinitionCache} が S2 コンテナを構築している間だけ、
+ * {@link ServiceClassLoader} を経由して {@link SAXParserFactory#newInstance()}
+ * が返すファクトリになる。直接使用するためのクラスではない。
+ * 実際の解析は、置き換える前に選択されるファクトリで行う。
+ * </p>
+ * <p>
+ * 解析の設定、XML の識別子と内容が同じ場合だけ、保持しているイベントを使用する。
+ * {@link Schema} やパーサーのプロパティを指定した場合と、
+ * XML をバイトのストリーム以外で渡した場合は、イベントを保持しない。
+ * </p>
+ */
+public class CachingSAXParserFactory extends SAXParserFactory {
+    /** 実際に解析するパーサーのファクトリ */
+    private final SAXParserFactory _delegate;
+    /** 指定された機能 */
+    private final Map<String, Boolean> _features = new TreeMap<>();
+    /** XInclude を処理するか否か */
+    private boolean _xIncludeAware = false;
+    /** 検証に使用するスキーマ */
+    private Schema _schema = null;
+
+    /**
+     * ファクトリを作成する.
+     */
+    public CachingSAXParserFactory() {
+        _delegate = newDelegate();
+    }
+
+    /**
+     * 置き換える前に選択されるファクトリを作成する.
+     *
+     * @return ファクトリ
+     */
+    private static SAXParserFactory newDelegate() {
+        Thread thread = Thread.currentThread();
+        ClassLoader loader = thread.getContextClassLoader();
+        if (loader instanceof ServiceClassLoader) {
+            thread.setContextClassLoader(
+                    ((ServiceClassLoader) loader).getOriginal());
+        }
+        try {
+            return SAXParserFactory.newInstance();
+        } finally {
+            thread.setContextClassLoader(loader);
+        }
+    }
+
+    @Override
+    public SAXParser newSAXParser()
+            throws ParserConfigurationException, SAXException {
+        _delegate.setValidating(isValidating());
+        _delegate.setNamespaceAware(isNamespaceAware());
+        if (_xIncludeAware) {
+            _delegate.setXIncludeAware(true);
+        }
+        if (_schema != null) {
+            _delegate.setSchema(_schema);
+        }
+        String configuration = null;
+        if (_schema == null) {
+            configuration = "validating=" + isValidating()
+                    + ",namespaceAware=" + isNamespaceAware()
+                    + ",xIncludeAware=" + _xIncludeAware
+                    + ",features=" + _features;
+        }
+        return new CachingSAXParser(_delegate.newSAXParser(), configuration);
+    }
+
+    @Override
+    public void setFeature(final String name, final boolean value)
+            throws ParserConfigurationException, SAXNotRecognizedException,
+            SAXNotSupportedException {
+        _delegate.setFeature(name, value);
+        _features.put(name, value);
+    }
+
+    @Override
+    public boolean getFeature(final String name)
+            throws ParserConfigurationException, SAXNotRecognizedException,
+            SAXNotSupportedException {
+        return _delegate.getFeature(name);
+    }
+
+    @Override
+    public void setXIncludeAware(final boolean state) {
+        _xIncludeAware = state;
+    }
+
+    @Override
+    public boolean isXIncludeAware() {
+        return _xIncludeAware;
+    }
+
+    @Override
+    public void setSchema(final Schema schema) {
+        _schema = schema;
+    }
+
+    @Override
+    public Schema getSchema() {
+        return _schema;
+    }
+
+    /**
+     * 解析したイベントを保持するパーサー.
+     */
+    static final class CachingSAXParser extends SAXParser {
+        /** 実際に解析するパーサー */
+        private final SAXParser _parser;
+        /** 解析の設定、イベントを保持しない場合は {@code null} */
+        private String _configuration;
+
+        /**
+         * パーサーを作成する.
+         *
+         * @param parser 実際に解析するパーサー
+         * @param configuration 解析の設定、
+         *          イベントを保持しない場合は {@code null}
+         */
+        CachingSAXParser(final SAXParser parser, final String configuration) {
+            _parser = parser;
+            _configuration = configuration;
+        }
+
+        @Override
+        public void parse(
+                final InputSource source, final DefaultHandler handler)
+                throws SAXException, IOException {
+            InputStream in = source == null ? null : source.getByteStream();
+            if (_configuration == null
+                    || in == null
+                    || source.getCharacterStream() != null) {
+                _parser.parse(source, handler);
+                return;
+            }
+
+            byte[] content = readFully(in);
+            String key = ContainerDefinitionCache.digest(content,
+                    _configuration, source.getPublicId(),
+                    source.getSystemId(), source.getEncoding());
+            SaxDocument document = ContainerDefinitionCache.getDocument(key);
+            if (document != null) {
+                document.replay(handler);
+                return;
+            }
+
+            InputSource copy =
+                    new InputSource(new ByteArrayInputStream(content));
+            copy.setPublicId(source.getPublicId());
+            copy.setSystemId(source.getSystemId());
+            copy.setEncoding(source.getEncoding());
+            SaxDocument.Recorder recorder = new SaxDocument.Recorder(handler);
+            _parser.parse(copy, recorder);
+            document = recorder.getDocument();
+            if (document != null) {
+                ContainerDefinitionCache.putDocument(key, document);
+            }
+        }
+
+        /**
+         * ストリームの内容をすべて読み込む.
+         *
+         * @param in ストリーム
+         * @return 内容
+         * @throws IOException 読み込みに失敗した場合
+         */
+        private static byte[] readFully(final InputStream in)
+                throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public Parser getParser() throws SAXException {
+            return _parser.getParser();
+        }
+
+        @Override
+        public XMLReader getXMLReader() throws SAXException {
+            return _parser.getXMLReader();
+        }
+
+        @Override
+        public boolean isNamespaceAware() {
+            return _parser.isNamespaceAware();
+        }
+
+        @Override
+        public boolean isValidating() {
+            return _parser.isValidating();
+        }
+
+        @Override
+        public boolean isXIncludeAware() {
+            return _parser.isXIncludeAware();
+        }
+
+        @Override
+        public Schema getSchema() {
+            return _parser.getSchema();
+        }
+
+        @Override
+        public void setProperty(final String name, final Object value)
+                throws SAXNotRecognizedException, SAXNotSupportedException {
+            _parser.setProperty(name, value);
+            _configuration = null;
+        }
+
+        @Override
+        public Object getProperty(final String name)
+                throws SAXNotRecognizedException, SAXNotSupportedException {
+            return _parser.getProperty(name);
+        }
+
+        @Override
+        public void reset() {
+            _parser.reset();
+        }
+    }
+
+    /**
+     * {@link SAXParserFactory} のサービスとして
+     * {@link CachingSAXParserFactory} を提供するコンテキストクラスローダー.
+     * <p>
+     * クラスやその他のリソースは、元のコンテキストクラスローダーに委譲する。
+     * {@link #uninstall()} の後はサービスを提供しないため、
+     * 構築したコンテナがこのクラスローダーを保持しても、
+     * 以降の {@link SAXParserFactory#newInstance()} には影響しない。
+     * </p>
+     */
+    static final class ServiceClassLoader extends ClassLoader {
+        /** {@link SAXParserFactory} のサービスの設定ファイル */
+        private static final String SERVICE =
+                "META-INF/services/" + SAXParserFactory.class.getName();
+
+        /** 元のコンテキストクラスローダー */
+        private final ClassLoader _original;
+        /** サービスを提供するか否か */
+        private volatile boolean _active = true;
+
+        /**
+         * クラスローダーを作成する.
+         *
+         * @param parent 委譲先のクラスローダー
+         * @param original 元のコンテキストクラスローダー
+         */
+        private ServiceClassLoader(
+                final ClassLoader parent, final ClassLoader original) {
+            super(parent);
+            _original = original;
+        }
+
+        /**
+         * 現在のスレッドのコンテキストクラスローダーを置き換える.
+         *
+         * @return 置き換えたクラスローダー
+         */
+        static ServiceClassLoader install() {
+            Thread thread = Thread.currentThread();
+            ClassLoader original = thread.getContextClassLoader();
+            ClassLoader parent = original;
+            if (parent == null) {
+                parent = ServiceClassLoader.class.getClassLoader();
+            }
+            ServiceClassLoader loader =
+                    new ServiceClassLoader(parent, original);
+            thread.setContextClassLoader(loader);
+            return loader;
+        }
+
+        /**
+         * 元のコンテキストクラスローダーに戻し、サービスの提供を終了する.
+         */
+        void uninstall() {
+            _active = false;
+            Thread.currentThread().setContextClassLoader(_original);
+        }
+
+        /**
+         * 元のコンテキストクラスローダーを返す.
+         *
+         * @return 元のコンテキストクラスローダー
+         */
+        ClassLoader getOriginal() {
+            return _original;
+        }
+
+        @Override
+        public URL getResource(final String name) {
+            if (_active && SERVICE.equals(name)) {
+                return getServiceUrl();
+            }
+            return super.getResource(name);
+        }
+
+        @Override
+        public Enumeration<URL> getResources(final String name)
+                throws IOException {
+            if (_active && SERVICE.equals(name)) {
+                return Collections.enumeration(
+                        Collections.singletonList(getServiceUrl()));
+            }
+            return super.getResources(name);
+        }
+
+        /**
+         * サービスの設定ファイルの URL を返す.
+         *
+         * @return {@link CachingSAXParserFactory} を指定した設定ファイルの URL
+         */
+        private static URL getServiceUrl() {
+            try {
+                return new URL(null, "s2junit4:" + SERVICE,
+                        new ServiceHandler());
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * サービスの設定ファイルの内容を返す {@link URLStreamHandler}.
+     */
+    private static final class ServiceHandler extends URLStreamHandler {
+        @Override
+        protected URLConnection openConnection(final URL url) {
+            return new URLConnection(url) {
+                @Override
+                public void connect() {
+                }
+
+                @Override
+                public InputStream getInputStream() {
+                    return new ByteArrayInputStream(
+                            (CachingSAXParserFactory.class.getName() + "\n")
+                                    .getBytes(StandardCharsets.UTF_8));
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.seasar.framework.unit;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.seasar.framework.unit.impl.ConventionTestIntrospector;
+
+/**
+ * アノテーションの解析結果をキャッシュするテストクラスのイントロスペクター.
+ * <p>
+ * テストメソッドごとに同じアノテーションを解析しないように、
+ * テストクラスごとに {@link ClassValue} で結果を保持する。
+ * 結果はテストクラスに関連付けられるため、テストクラスとそのクラスローダーが
+ * 不要になれば結果も破棄される。
+ * キャッシュはスレッドセーフであり、複数のスレッドから共有できる。
+ * </p>
+ */
+class CachingTestIntrospector extends ConventionTestIntrospector {
+    /** ルートの dicon が指定されていないことを表す値 */
+    private static final String NO_ROOT_DICON = "";
+
+    /** テストクラスごとの解析結果 */
+    private volatile ClassValue<Introspection> _introspections =
+            newIntrospections();
+
+    /**
+     * テストクラスごとの解析結果を保持する {@link ClassValue} を作成する.
+     *
+     * @return テストクラスごとの解析結果
+     */
+    private static ClassValue<Introspection> newIntrospections() {
+        return new ClassValue<Introspection>() {
+            @Override
+            protected Introspection computeValue(final Class<?> type) {
+                return new Introspection();
+            }
+        };
+    }
+
+    /**
+     * キャッシュしている解析結果を破棄する.
+     */
+    public void clear() {
+        _introspections = newIntrospections();
+    }
+
+    /**
+     * テストクラスの解析結果を返す.
+     *
+     * @param clazz テストクラス
+     * @return 解析結果
+     */
+    private Introspection get(final Class<?> clazz) {
+        return _introspections.get(clazz);
+    }
+
+    @Override
+    public boolean needsTransaction(
+            final Class<?> clazz, final Method method) {
+        ConcurrentMap<Method, Boolean> cache = get(clazz)._transactions;
+        Boolean result = cache.get(method);
+        if (result == null) {
+            result = super.needsTransaction(clazz, method);
+            cache.putIfAbsent(method, result);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean requiresTransactionCommitment(
+            final Class<?> clazz, final Method method) {
+        ConcurrentMap<Method, Boolean> cache = get(clazz)._commitments;
+        Boolean result = cache.get(method);
+        if (result == null) {
+            result = super.requiresTransactionCommitment(clazz, method);
+            cache.putIfAbsent(method, result);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean needsWarmDeploy(
+            final Class<?> clazz, final Method method) {
+        ConcurrentMap<Method, Boolean> cache = get(clazz)._warmDeploys;
+        Boolean result = cache.get(method);
+        if (result == null) {
+            result = super.needsWarmDeploy(clazz, method);
+            cache.putIfAbsent(method, result);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isRegisterNamingConvention(
+            final Class<?> clazz, final Method method) {
+        ConcurrentMap<Method, Boolean> cache =
+                get(clazz)._namingConventions;
+        Boolean result = cache.get(method);
+        if (result == null) {
+            result = super.isRegisterNamingConvention(clazz, method);
+            cache.putIfAbsent(method, result);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Method> getPostBindFieldsMethods(final Class<?> clazz) {
+        Introspection introspection = get(clazz);
+        List<Method> methods = introspection._postBindMethods;
+        if (methods == null) {
+            methods = Collections.unmodifiableList(
+                    super.getPostBindFieldsMethods(clazz));
+            introspection._postBindMethods = methods;
+        }
+        return methods;
+    }
+
+    @Override
+    public List<Method> getPreUnbindFieldsMethods(final Class<?> clazz) {
+        Introspection introspection = get(clazz);
+        List<Method> methods = introspection._preUnbindMethods;
+        if (methods == null) {
+            methods = Collections.unmodifiableList(
+                    super.getPreUnbindFieldsMethods(clazz));
+            introspection._preUnbindMethods = methods;
+        }
+        return methods;
+    }
+
+    @Override
+    public String getRootDicon(final Class<?> clazz, final Method method) {
+        ConcurrentMap<Method, String> cache = get(clazz)._rootDicons;
+        String rootDicon = cache.get(method);
+        if (rootDicon == null) {
+            rootDicon = super.getRootDicon(clazz, method);
+            if (rootDicon == null) {
+                rootDicon = NO_ROOT_DICON;
+            }
+            cache.putIfAbsent(method, rootDicon);
+        }
+        if (NO_ROOT_DICON.equals(rootDicon)) {
+            return null;
+        }
+        return rootDicon;
+    }
+
+    /**
+     * テストクラスの解析結果.
+     * <p>
+     * テストメソッドは、テストクラスまたはそのスーパークラスで宣言されたメソッドであるため、
+     * テストクラスより長く生存するクラスを参照しない。
+     * </p>
+     */
+    private static final class Introspection {
+        /** テストメソッドごとのルートの dicon のパス */
+        private final ConcurrentMap<Method, String> _rootDicons =
+                new ConcurrentHashMap<>();
+        /** テストメソッドごとのトランザクション処理が必要かどうか */
+        private final ConcurrentMap<Method, Boolean> _transactions =
+                new ConcurrentHashMap<>();
+        /** テストメソッドごとのトランザクションをコミットするかどうか */
+        private final ConcurrentMap<Method, Boolean> _commitments =
+                new ConcurrentHashMap<>();
+        /** テストメソッドごとの WARM deploy が必要かどうか */
+        private final ConcurrentMap<Method, Boolean> _warmDeploys =
+                new ConcurrentHashMap<>();
+        /** テストメソッドごとの {@code NamingConvention} を登録するかどうか */
+        private final ConcurrentMap<Method, Boolean> _namingConventions =
+                new ConcurrentHashMap<>();
+        /** フィールドのバインディング後に実行するメソッド */
+        private volatile List<Method> _postBindMethods = null;
+        /** フィールドのバインディング解除前に実行するメソッド */
+        private volatile List<Method> _preUnbindMethods = null;
+    }
+}
@@ -0,0 +1,60 @@
+package org.seasar.framework.unit;
+
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * リソースの検索結果をキャッシュする {@link UnitClassLoader}.
+ * <p>
+ * 複数のテストメソッドで共有する場合に、同じリソースについて
+ * 親のクラスパスを何度も探索しないように、検索結果をメモリ上に保持する。
+ * 見つからなかったリソースは、後からクラスパスに追加される場合があるため保持しない。
+ * 保持する件数は {@value #MAX_RESOURCES} 件までで、
+ * 超えた場合は最も長く使用されていないものから破棄する。
+ * 読み込みを要求されたクラスは、共有しているテストメソッドすべてが
+ * 使用したものとして記録する。
+ * </p>
+ */
+class CachingUnitClassLoader extends TrackingUnitClassLoader {
+    /** 保持するリソースの検索結果の最大件数 */
+    static final int MAX_RESOURCES = 1024;
+
+    /** リソースの検索結果 */
+    private final Map<String, URL> _resources =
+            new LinkedHashMap<String, URL>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        final Map.Entry<String, URL> eldest) {
+                    return size() > MAX_RESOURCES;
+                }
+            };
+
+    /**
+     * クラスローダーを作成する.
+     *
+     * @param parent 親のクラスローダー
+     */
+    public CachingUnitClassLoader(final ClassLoader parent) {
+        super(parent);
+    }
+
+    @Override
+    public URL getResource(final String name) {
+        synchronized (_resources) {
+            URL url = _resources.get(name);
+            if (url != null) {
+                return url;
+            }
+        }
+        URL url = super.getResource(name);
+        if (url != null) {
+            synchronized (_resources) {
+                _resources.put(name, url);
+            }
+        }
+        return url;
+    }
+}
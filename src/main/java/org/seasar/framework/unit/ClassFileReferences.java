@@ -0,0 +1,109 @@
+package org.seasar.framework.unit;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * クラスファイルのコンスタントプールから、参照しているクラスを読み取る.
+ * <p>
+ * {@code CONSTANT_Class} のクラス名と、{@code CONSTANT_Utf8} に含まれる
+ * フィールドやメソッドのディスクリプタ、ジェネリクスのシグネチャの
+ * {@code L...;} を参照しているクラスとみなす。
+ * 文字列定数がディスクリプタの形をしている場合も含まれるが、
+ * 変更の影響を判定する用途では、多めに集める分には問題にならない。
+ * </p>
+ */
+final class ClassFileReferences {
+    /** クラスファイルのマジックナンバー */
+    private static final int MAGIC = 0xCAFEBABE;
+
+    /** ディスクリプタに含まれるクラス名 */
+    private static final Pattern DESCRIPTOR = Pattern.compile(
+            "L([A-Za-z_$][\\w$]*(?:/[A-Za-z_$][\\w$]*)*)[;<]");
+
+    /** ユーティリティクラスであるため、インスタンスを生成しない. */
+    private ClassFileReferences() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * クラスファイルが参照しているクラスの内部形式の名前を返す.
+     *
+     * @param in クラスファイル
+     * @return 参照しているクラスの名前 ({@code java/lang/String} の形式)
+     * @throws IOException クラスファイルを読み込めない場合
+     */
+    public static Set<String> read(final InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("not a class file");
+        }
+        data.readUnsignedShort();
+        data.readUnsignedShort();
+
+        int count = data.readUnsignedShort();
+        String[] utf8 = new String[count];
+        int[] classes = new int[count];
+        int classCount = 0;
+        for (int i = 1; i < count; ++i) {
+            int tag = data.readUnsignedByte();
+            switch (tag) {
+            case 1:
+                utf8[i] = data.readUTF();
+                break;
+            case 7:
+                classes[classCount++] = data.readUnsignedShort();
+                break;
+            case 8:
+            case 16:
+            case 19:
+            case 20:
+                data.skipBytes(2);
+                break;
+            case 15:
+                data.skipBytes(3);
+                break;
+            case 3:
+            case 4:
+            case 9:
+            case 10:
+            case 11:
+            case 12:
+            case 17:
+            case 18:
+                data.skipBytes(4);
+                break;
+            case 5:
+            case 6:
+                data.skipBytes(8);
+                ++i;
+                break;
+            default:
+                throw new IOException("unknown constant pool tag: " + tag);
+            }
+        }
+
+        Set<String> result = new TreeSet<>();
+        for (int i = 0; i < classCount; ++i) {
+            String name = utf8[classes[i]];
+            if (name != null && !name.startsWith("[")) {
+                result.add(name);
+            }
+        }
+        for (final String value : utf8) {
+            if (value == null || value.indexOf(';') < 0) {
+                continue;
+            }
+            Matcher matcher = DESCRIPTOR.matcher(value);
+            while (matcher.find()) {
+                result.add(matcher.group(1));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,42 @@
+package org.seasar.framework.unit;
+
+import java.util.Locale;
+
+/**
+ * テストで使用するクラスローダーを共有する範囲.
+ */
+enum ClassLoaderScope {
+    /** テストメソッドごとに作成する */
+    METHOD,
+    /** テストクラスで共有する */
+    CLASS,
+    /** JVM で共有する */
+    FORK;
+
+    /** 共有する範囲を指定するシステムプロパティのキー */
+    static final String SCOPE_KEY =
+            "org.seasar.framework.unit.classLoaderScope";
+
+    /**
+     * システムプロパティに指定された共有する範囲を返す.
+     *
+     * <p>
+     * 不正な値が指定された場合は、標準エラー出力に出力して {@link #METHOD} を返す。
+     * </p>
+     *
+     * @return 共有する範囲、指定されていない場合は {@link #METHOD}
+     */
+    static ClassLoaderScope getConfiguredScope() {
+        String value = System.getProperty(SCOPE_KEY);
+        if (value == null || value.trim().isEmpty()) {
+            return METHOD;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+        } catch (final IllegalArgumentException e) {
+            System.err.println("Ignored " + SCOPE_KEY + " " + value
+                    + ": expected method, class or fork");
+            return METHOD;
+        }
+    }
+}
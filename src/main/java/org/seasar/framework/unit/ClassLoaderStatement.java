@@ -11,6 +11,8 @@ import org.seasar.framework.container.factory.S2ContainerFactory;
 class ClassLoaderStatement extends Statement {
     /** 元の statement */
     private final Statement _statement;
+    /** 共有するクラスローダー */
+    private final SharedClassLoader _sharedClassLoader;
 
     /**
      * クラスローダーを作成、破棄する statement を作成する.
@@ -18,13 +20,27 @@ class ClassLoaderStatement extends Statement {
      * @param statement 元のstatement
      */
     public ClassLoaderStatement(final Statement statement) {
+        this(statement, null);
+    }
+
+    /**
+     * 共有するクラスローダーを設定する statement を作成する.
+     *
+     * @param statement 元のstatement
+     * @param sharedClassLoader 共有するクラスローダー、
+     *          テストメソッドごとに作成する場合は {@code null}
+     */
+    public ClassLoaderStatement(
+            final Statement statement,
+            final SharedClassLoader sharedClassLoader) {
         _statement = statement;
+        _sharedClassLoader = sharedClassLoader;
     }
 
     @Override
     public void evaluate() throws Throwable {
         ClassLoader originalClassLoader = getOriginalClassLoader();
-        ClassLoader unitClassLoader = new UnitClassLoader(originalClassLoader);
+        ClassLoader unitClassLoader = createClassLoader(originalClassLoader);
         Thread.currentThread().setContextClassLoader(unitClassLoader);
 
         try {
@@ -36,12 +52,40 @@ class ClassLoaderStatement extends Statement {
         }
     }
 
+    /**
+     * テストで使用するクラスローダーを作成します.
+     * <p>
+     * 使用したファイルを記録する場合は、読み込んだクラスを記録するクラスローダーを作成します。
+     * </p>
+     *
+     * @param parent 親のクラスローダー
+     * @return テストで使用するクラスローダー
+     */
+    protected ClassLoader createClassLoader(final ClassLoader parent) {
+        if (_sharedClassLoader != null) {
+            return _sharedClassLoader.get(parent);
+        }
+        if (TestImpact.isRecording()) {
+            return new TrackingUnitClassLoader(parent);
+        }
+        return new UnitClassLoader(parent);
+    }
+
     /**
      * オリジナルのクラスローダーを返します.
      *
      * @return オリジナルのクラスローダー
      */
     protected ClassLoader getOriginalClassLoader() {
+        return findOriginalClassLoader();
+    }
+
+    /**
+     * オリジナルのクラスローダーを探します.
+     *
+     * @return オリジナルのクラスローダー
+     */
+    static ClassLoader findOriginalClassLoader() {
         S2Container container =
                 S2ContainerFactory.getConfigurationContainer();
         if (container == null) {
@@ -0,0 +1,172 @@
+package org.seasar.framework.unit;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+import javax.sql.DataSource;
+import javax.transaction.Status;
+import javax.transaction.SystemException;
+import javax.transaction.TransactionManager;
+
+/**
+ * テストクラスで共有するトランザクション.
+ * <p>
+ * 最初のテストメソッドでトランザクションを開始し、テストクラスの終了時に
+ * ロールバックする。テストメソッドはセーブポイントで分離する。
+ * テストメソッドの終了時にトランザクションが有効でなくなっていた場合は、
+ * トランザクションを終了し、次のテストメソッドで開始し直す。
+ * </p>
+ */
+class ClassTransaction {
+    /** トランザクションマネージャー */
+    private TransactionManager _tm = null;
+    /** トランザクションに参加しているコネクション */
+    private Connection _connection = null;
+
+    /**
+     * トランザクションを開始していない場合は開始し、
+     * テストクラスに指定されたテストデータを登録する.
+     * <p>
+     * コネクションの取得やテストデータの登録に失敗した場合は、
+     * トランザクションをロールバックし、開始していない状態に戻す。
+     * </p>
+     *
+     * @param testClass テストクラス
+     * @param testContext テストコンテキスト
+     * @throws Exception トランザクションの開始に失敗した場合
+     */
+    public void begin(
+            final Class<?> testClass,
+            final InternalTestContext testContext) throws Exception {
+        if (_tm != null) {
+            return;
+        }
+
+        TransactionManager tm =
+                testContext.getComponent(TransactionManager.class);
+        tm.begin();
+        Connection connection = null;
+        try {
+            DataSource dataSource =
+                    testContext.getComponent(DataSource.class);
+            connection = dataSource.getConnection();
+            FixtureLoader.load(testClass, testContext);
+        } catch (Exception e) {
+            try {
+                abort(tm, connection);
+            } catch (Exception suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        _tm = tm;
+        _connection = connection;
+    }
+
+    /**
+     * 開始に失敗したトランザクションをロールバックする.
+     *
+     * @param tm トランザクションマネージャー
+     * @param connection 取得したコネクション、取得していない場合は {@code null}
+     * @throws Exception ロールバックに失敗した場合
+     */
+    private static void abort(
+            final TransactionManager tm, final Connection connection)
+            throws Exception {
+        try {
+            if (connection != null) {
+                connection.close();
+            }
+        } finally {
+            if (tm.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                tm.rollback();
+            }
+        }
+    }
+
+    /**
+     * セーブポイントを設定する.
+     * <p>
+     * 設定に失敗した場合は、トランザクションを終了する。
+     * </p>
+     *
+     * @return セーブポイント
+     * @throws Exception セーブポイントの設定に失敗した場合
+     */
+    public Savepoint setSavepoint() throws Exception {
+        try {
+            return _connection.setSavepoint();
+        } catch (SQLException e) {
+            try {
+                end();
+            } catch (Exception suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * セーブポイントまでロールバックする.
+     * <p>
+     * トランザクションが有効でなくなっていた場合や、セーブポイントまでの
+     * ロールバックに失敗した場合は、トランザクションを終了する。
+     * 次のテストメソッドでは、トランザクションを開始し直し、
+     * テストクラスに指定されたテストデータを登録し直す。
+     * </p>
+     *
+     * @param savepoint セーブポイント
+     * @throws Exception ロールバックに失敗した場合
+     */
+    public void rollback(final Savepoint savepoint) throws Exception {
+        if (!isActive()) {
+            end();
+            return;
+        }
+        try {
+            _connection.rollback(savepoint);
+            _connection.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            try {
+                end();
+            } catch (Exception suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * トランザクションが有効か否かを返す.
+     *
+     * @return トランザクションを開始していて、ロールバックのみに設定されていない場合、
+     *          {@code true}
+     * @throws SystemException 状態の取得に失敗した場合
+     */
+    public boolean isActive() throws SystemException {
+        return _tm != null && _tm.getStatus() == Status.STATUS_ACTIVE;
+    }
+
+    /**
+     * トランザクションをロールバックする.
+     *
+     * @throws Exception ロールバックに失敗した場合
+     */
+    public void end() throws Exception {
+        if (_tm == null) {
+            return;
+        }
+
+        try {
+            _connection.close();
+        } finally {
+            _connection = null;
+            TransactionManager tm = _tm;
+            _tm = null;
+            if (tm.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                tm.rollback();
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.seasar.framework.unit;
+
+import org.junit.runners.model.Statement;
+
+/**
+ * テストクラスの終了時に、テストクラスで共有するトランザクションを終了する.
+ */
+class ClassTransactionStatement extends Statement {
+    /** 元の statement */
+    private final Statement _statement;
+    /** テストクラスで共有するトランザクション */
+    private final ClassTransaction _transaction;
+
+    /**
+     * トランザクションを終了する statement を作成する.
+     *
+     * @param statement 元の statement
+     * @param transaction テストクラスで共有するトランザクション
+     */
+    public ClassTransactionStatement(
+            final Statement statement, final ClassTransaction transaction) {
+        _statement = statement;
+        _transaction = transaction;
+    }
+
+    @Override
+    public void evaluate() throws Throwable {
+        try {
+            _statement.evaluate();
+        } finally {
+            _transaction.end();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.seasar.framework.unit;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.container.factory.S2ContainerFactory;
+import org.seasar.framework.unit.Seasar2.Configurator;
+import org.seasar.framework.util.ResourceUtil;
+
+/**
+ * コンフィグレーションファイルから構築したコンフィグレーションS2コンテナを、
+ * JVM で共有するためのキャッシュ.
+ * <p>
+ * コンフィグレーションファイルのパスまたは更新日時が変わった場合だけ、
+ * コンテナを構築し直す。
+ * {@link Configurator} はコンテナを構築した際に一度だけ呼び出す。
+ * ただし、{@link Seasar24.PerClassConfigurator} を実装している場合は、
+ * テストクラスごとに呼び出す。
+ * </p>
+ */
+final class ConfigurationContainerCache {
+    /** キャッシュしているコンテナを構築したファイルのパス */
+    private static String _configFile = null;
+    /** キャッシュしているコンテナを構築したファイルの更新日時 */
+    private static long _lastModified = 0L;
+    /** キャッシュしているコンテナ */
+    private static S2Container _container = null;
+    /** コンテナの設定を行う {@link Configurator} */
+    private static Configurator _configurator = null;
+    /** {@link Configurator} を呼び出したか否か */
+    private static boolean _configured = false;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                clear();
+            }
+        });
+    }
+
+    /** ユーティリティクラスであるため、インスタンスを生成しない. */
+    private ConfigurationContainerCache() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * コンフィグレーションS2コンテナを取得し、必要な場合は設定を行う.
+     *
+     * @param configFile コンフィグレーションファイルのパス
+     * @return コンフィグレーションS2コンテナ、
+     *          ファイルが存在しない場合は {@code null}
+     */
+    public static synchronized S2Container configure(final String configFile) {
+        URL url = ResourceUtil.getResourceNoException(configFile);
+        if (url == null) {
+            clear();
+            return null;
+        }
+
+        long lastModified = getLastModified(url);
+        if (_container == null
+                || !configFile.equals(_configFile)
+                || lastModified != _lastModified) {
+            clear();
+            create(configFile, lastModified);
+        }
+
+        if (!_configured
+                || _configurator instanceof Seasar24.PerClassConfigurator) {
+            _configurator.configure(_container);
+            _configured = true;
+        }
+        return _container;
+    }
+
+    /**
+     * キャッシュしているコンテナを破棄する.
+     */
+    public static synchronized void clear() {
+        if (_container != null) {
+            _container.destroy();
+        }
+        _configFile = null;
+        _lastModified = 0L;
+        _container = null;
+        _configurator = null;
+        _configured = false;
+    }
+
+    /**
+     * キャッシュしているコンテナの {@link Configurator} を、
+     * 指定されたクラスローダーで読み込んでいる場合は、コンテナを破棄する.
+     *
+     * @param classLoader 破棄するクラスローダー
+     */
+    public static synchronized void clear(final ClassLoader classLoader) {
+        if (_configurator != null
+                && _configurator.getClass().getClassLoader() == classLoader) {
+            clear();
+        }
+    }
+
+    /**
+     * コンフィグレーションS2コンテナを構築する.
+     *
+     * @param configFile コンフィグレーションファイルのパス
+     * @param lastModified コンフィグレーションファイルの更新日時
+     */
+    private static void create(
+            final String configFile, final long lastModified) {
+        S2Container container = S2ContainerFactory.create(configFile);
+        Configurator configurator;
+        if (container.hasComponentDef(Configurator.class)) {
+            configurator =
+                    (Configurator) container.getComponent(Configurator.class);
+        } else {
+            configurator = new Seasar2.DefaultConfigurator();
+        }
+
+        _configFile = configFile;
+        _lastModified = lastModified;
+        _container = container;
+        _configurator = configurator;
+        _configured = false;
+    }
+
+    /**
+     * リソースの更新日時を返す.
+     *
+     * @param url リソースの URL
+     * @return 更新日時、取得できない場合は {@code 0}
+     */
+    static long getLastModified(final URL url) {
+        try {
+            if ("file".equals(url.getProtocol())) {
+                return new File(url.toURI()).lastModified();
+            }
+            URLConnection connection = url.openConnection();
+            return connection.getLastModified();
+        } catch (IOException | URISyntaxException e) {
+            return 0L;
+        }
+    }
+}
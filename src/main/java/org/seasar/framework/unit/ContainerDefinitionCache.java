@@ -0,0 +1,257 @@
+package org.seasar.framework.unit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.container.factory.S2ContainerFactory;
+import org.seasar.framework.log.Logger;
+
+/**
+ * dicon を解析した結果を JVM に保持し、S2 コンテナの構築で XML の解析を省略するキャッシュ.
+ * <p>
+ * Seasar2 のコンテナやコンポーネントの定義はシリアライズできないため、
+ * dicon の XML を解析した SAX のイベントを保持する。
+ * コンテナを構築している間だけ、Seasar2 が dicon の解析に使用する
+ * {@link javax.xml.parsers.SAXParserFactory} を {@link CachingSAXParserFactory}
+ * に置き換え、同じ dicon は XML を解析せずに保持しているイベントを
+ * Seasar2 のハンドラーに通知する。
+ * コンテナとコンポーネントの定義はハンドラーが毎回新しく作成するため、
+ * テストメソッドで変更しても他のテストメソッドには影響しない。
+ * </p>
+ * <p>
+ * イベントは dicon の内容と解析の設定のダイジェストごとに保持するため、
+ * dicon が変わった場合は解析し直す。
+ * {@code -Dorg.seasar.framework.unit.containerDefinitionCache=false} で無効にできる。
+ * </p>
+ * <p>
+ * {@code -Dorg.seasar.framework.unit.containerDefinitionCacheDir=ディレクトリ}
+ * を指定すると、イベントをダイジェストごとのファイルに書き出し、
+ * 次回以降の JVM でも XML を解析せずに使用する。
+ * 読み込めないファイルは無視して XML を解析する。
+ * </p>
+ */
+final class ContainerDefinitionCache {
+    /** キャッシュを使用するか否かを指定するシステムプロパティのキー */
+    static final String ENABLED_KEY =
+            "org.seasar.framework.unit.containerDefinitionCache";
+
+    /** キャッシュを使用するか否か */
+    private static final boolean ENABLED =
+            !"false".equalsIgnoreCase(System.getProperty(ENABLED_KEY));
+
+    /** 解析した結果を書き出すディレクトリを指定するシステムプロパティのキー */
+    static final String DIRECTORY_KEY =
+            "org.seasar.framework.unit.containerDefinitionCacheDir";
+
+    /** 解析した結果を書き出すファイルの拡張子 */
+    private static final String EXTENSION = ".sax";
+
+    /** ロガー */
+    private static final Logger LOGGER =
+            Logger.getLogger(ContainerDefinitionCache.class);
+
+    /** dicon の内容と解析の設定のダイジェストごとの、解析した結果 */
+    private static final ConcurrentMap<String, SaxDocument> DOCUMENTS =
+            new ConcurrentHashMap<>();
+
+    /** ユーティリティクラスであるため、インスタンスを生成しない. */
+    private ContainerDefinitionCache() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * dicon から初期化前のコンテナを作成する.
+     *
+     * @param path dicon のパス
+     * @return 初期化前のコンテナ
+     */
+    public static S2Container create(final String path) {
+        if (!ENABLED) {
+            return S2ContainerFactory.create(path);
+        }
+        CachingSAXParserFactory.ServiceClassLoader loader =
+                CachingSAXParserFactory.ServiceClassLoader.install();
+        try {
+            return S2ContainerFactory.create(path);
+        } finally {
+            loader.uninstall();
+        }
+    }
+
+    /**
+     * dicon から作成したコンテナを、親のコンテナにインクルードする.
+     *
+     * @param parent 親のコンテナ
+     * @param path dicon のパス
+     */
+    public static void include(final S2Container parent, final String path) {
+        if (!ENABLED) {
+            S2ContainerFactory.include(parent, path);
+            return;
+        }
+        CachingSAXParserFactory.ServiceClassLoader loader =
+                CachingSAXParserFactory.ServiceClassLoader.install();
+        try {
+            S2ContainerFactory.include(parent, path);
+        } finally {
+            loader.uninstall();
+        }
+    }
+
+    /**
+     * 解析した結果を返す.
+     *
+     * @param key dicon の内容と解析の設定のダイジェスト
+     * @return 解析した結果、保持していない場合は {@code null}
+     */
+    static SaxDocument getDocument(final String key) {
+        SaxDocument document = DOCUMENTS.get(key);
+        if (document == null) {
+            document = load(key);
+            if (document != null) {
+                DOCUMENTS.putIfAbsent(key, document);
+            }
+        }
+        return document;
+    }
+
+    /**
+     * 解析した結果を保持する.
+     *
+     * @param key dicon の内容と解析の設定のダイジェスト
+     * @param document 解析した結果
+     */
+    static void putDocument(final String key, final SaxDocument document) {
+        DOCUMENTS.put(key, document);
+        store(key, document);
+    }
+
+    /**
+     * 解析した結果を書き出したファイルを返す.
+     *
+     * @param key dicon の内容と解析の設定のダイジェスト
+     * @return ファイル、ディレクトリが指定されていない場合は {@code null}
+     */
+    private static File getFile(final String key) {
+        String directory = System.getProperty(DIRECTORY_KEY);
+        if (directory == null || directory.isEmpty()) {
+            return null;
+        }
+        return new File(directory, key + EXTENSION);
+    }
+
+    /**
+     * ファイルに書き出した解析の結果を読み込む.
+     *
+     * @param key dicon の内容と解析の設定のダイジェスト
+     * @return 解析した結果、読み込めない場合は {@code null}
+     */
+    private static SaxDocument load(final String key) {
+        File file = getFile(key);
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            return SaxDocument.read(in);
+        } catch (IOException e) {
+            LOGGER.warn("failed to read " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * 解析した結果をファイルに書き出す.
+     * <p>
+     * 書き出している途中のファイルを他の JVM が読み込まないように、
+     * 一時ファイルに書き出してから名前を変更する。
+     * </p>
+     *
+     * @param key dicon の内容と解析の設定のダイジェスト
+     * @param document 解析した結果
+     */
+    private static void store(final String key, final SaxDocument document) {
+        File file = getFile(key);
+        if (file == null) {
+            return;
+        }
+        File directory = file.getAbsoluteFile().getParentFile();
+        File temporary = null;
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()
+                    && !directory.isDirectory()) {
+                throw new IOException("failed to create " + directory);
+            }
+            temporary = File.createTempFile(key, EXTENSION, directory);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(
+                            new FileOutputStream(temporary)))) {
+                document.write(out);
+            }
+            if (!temporary.renameTo(file)) {
+                file.delete();
+                if (!temporary.renameTo(file)) {
+                    throw new IOException("failed to rename " + temporary);
+                }
+            }
+            temporary = null;
+        } catch (IOException e) {
+            LOGGER.warn("failed to write " + file, e);
+        } finally {
+            if (temporary != null) {
+                temporary.delete();
+            }
+        }
+    }
+
+    /**
+     * dicon の内容と解析の設定のダイジェストを返す.
+     *
+     * @param content dicon の内容
+     * @param attributes 解析の設定や識別子
+     * @return ダイジェスト
+     */
+    static String digest(final byte[] content, final String... attributes) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (final String attribute : attributes) {
+            if (attribute == null) {
+                digest.update((byte) 0);
+                continue;
+            }
+            byte[] bytes = attribute.getBytes(StandardCharsets.UTF_8);
+            digest.update((byte) 1);
+            digest.update(BigInteger.valueOf(bytes.length).toByteArray());
+            digest.update(bytes);
+        }
+        digest.update(content);
+        return new BigInteger(1, digest.digest()).toString(16);
+    }
+
+    /**
+     * JVM に保持している解析の結果を破棄する.
+     * <p>
+     * ファイルに書き出した結果は削除しない。
+     * </p>
+     */
+    public static void clear() {
+        DOCUMENTS.clear();
+    }
+}
@@ -0,0 +1,40 @@
+package org.seasar.framework.unit;
+
+import org.junit.runners.model.Statement;
+
+/**
+ * テストクラスの実行中に、ルートコンテナのプールを開始、終了する.
+ * <p>
+ * テストクラスの実行中は、Seasar2 のグローバルな状態を排他するロックを保持する。
+ * </p>
+ */
+class ContainerPoolStatement extends Statement {
+    /** 元の statement */
+    private final Statement _statement;
+    /** ルートコンテナのプール */
+    private final RootContainerPool _pool;
+
+    /**
+     * ルートコンテナのプールを開始、終了する statement を作成する.
+     *
+     * @param statement 元の statement
+     * @param pool ルートコンテナのプール
+     */
+    public ContainerPoolStatement(
+            final Statement statement, final RootContainerPool pool) {
+        _statement = statement;
+        _pool = pool;
+    }
+
+    @Override
+    public void evaluate() throws Throwable {
+        RootContainerPool.lockGlobalState();
+        try {
+            _pool.start(ClassLoaderStatement.findOriginalClassLoader());
+            _statement.evaluate();
+        } finally {
+            RootContainerPool.unlockGlobalState();
+            _pool.shutdown();
+        }
+    }
+}
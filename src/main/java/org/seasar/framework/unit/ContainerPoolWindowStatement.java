@@ -0,0 +1,35 @@
+package org.seasar.framework.unit;
+
+import org.junit.runners.model.Statement;
+
+/**
+ * テストメソッドの本体を実行している間だけ、ルートコンテナのプールが
+ * Seasar2 のグローバルな状態を参照できるようにする.
+ * <p>
+ * テストのスレッドが保持しているロックを解放して元の statement を実行し、
+ * 終了後に取得し直す。
+ * </p>
+ */
+class ContainerPoolWindowStatement extends Statement {
+    /** 元の statement */
+    private final Statement _statement;
+
+    /**
+     * ロックを解放して実行する statement を作成する.
+     *
+     * @param statement 元の statement
+     */
+    public ContainerPoolWindowStatement(final Statement statement) {
+        _statement = statement;
+    }
+
+    @Override
+    public void evaluate() throws Throwable {
+        int holds = RootContainerPool.unlockGlobalState();
+        try {
+            _statement.evaluate();
+        } finally {
+            RootContainerPool.relockGlobalState(holds);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.seasar.framework.unit;
+
+import java.lang.reflect.Method;
+
+import org.seasar.framework.unit.impl.ConventionTestIntrospector;
+
+/**
+ * テストメソッドが必要とする S2 コンテナの構成を表す値.
+ * <p>
+ * ルートの dicon、WARM deploy、トランザクション、
+ * {@code NamingConvention} の登録が同じテストメソッドは、
+ * 同じ構成のコンテナで実行される。
+ * </p>
+ */
+final class ContainerSignature {
+    /** ルートの dicon のパス */
+    private final String _rootDicon;
+    /** WARM deploy が必要か否か */
+    private final boolean _warmDeploy;
+    /** トランザクション処理が必要か否か */
+    private final boolean _transaction;
+    /** {@code NamingConvention} を登録するか否か */
+    private final boolean _namingConvention;
+
+    /**
+     * コンテナの構成を作成する.
+     *
+     * @param rootDicon ルートの dicon のパス
+     * @param warmDeploy WARM deploy が必要か否か
+     * @param transaction トランザクション処理が必要か否か
+     * @param namingConvention {@code NamingConvention} を登録するか否か
+     */
+    private ContainerSignature(
+            final String rootDicon,
+            final boolean warmDeploy,
+            final boolean transaction,
+            final boolean namingConvention) {
+        _rootDicon = rootDicon == null ? "" : rootDicon;
+        _warmDeploy = warmDeploy;
+        _transaction = transaction;
+        _namingConvention = namingConvention;
+    }
+
+    /**
+     * テストメソッドが必要とするコンテナの構成を返す.
+     *
+     * @param testClass テストクラス
+     * @param method テストメソッド
+     * @return コンテナの構成
+     */
+    public static ContainerSignature of(
+            final Class<?> testClass, final Method method) {
+        ConventionTestIntrospector introspector =
+                ConventionIntrospectorRepository.get();
+        return new ContainerSignature(
+                introspector.getRootDicon(testClass, method),
+                introspector.needsWarmDeploy(testClass, method),
+                introspector.needsTransaction(testClass, method),
+                introspector.isRegisterNamingConvention(testClass, method));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = _rootDicon.hashCode();
+        result = result * 31 + (_warmDeploy ? 1 : 0);
+        result = result * 31 + (_transaction ? 1 : 0);
+        result = result * 31 + (_namingConvention ? 1 : 0);
+        return result;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ContainerSignature)) {
+            return false;
+        }
+        ContainerSignature other = (ContainerSignature) obj;
+        return _rootDicon.equals(other._rootDicon)
+                && _warmDeploy == other._warmDeploy
+                && _transaction == other._transaction
+                && _namingConvention == other._namingConvention;
+    }
+
+    @Override
+    public String toString() {
+        return "rootDicon=" + _rootDicon
+                + ", warmDeploy=" + _warmDeploy
+                + ", transaction=" + _transaction
+                + ", namingConvention=" + _namingConvention;
+    }
+}
@@ -1,9 +1,11 @@
 package org.seasar.framework.unit;
 
 import java.lang.reflect.Method;
+import java.sql.SQLException;
 
 import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.Statement;
+import org.junit.runners.model.TestClass;
 import org.seasar.framework.unit.impl.ConventionTestIntrospector;
 
 /**
@@ -17,23 +19,56 @@ class ContainerStatement extends Statement {
 
     /** テストオブジェクト */
     private final Object _test;
+    /** テストクラス */
+    private final Class<?> _testClass;
     /** テストメソッド */
     private final Method _method;
+    /** コンテナをバックグラウンドで破棄する処理 */
+    private final AsyncTeardown _teardown;
 
     /**
      * DI コンテナを初期化、廃棄する statement を作成する.
      *
      * @param statement 元の statement
-     * @param target テストクラスのインスタンス
+     * @param target テストクラスのインスタンス、
+     *          テストクラスでコンテナを共有する場合は {@code null}
+     * @param clazz テストクラス
      * @param method テストメソッド
      */
     public ContainerStatement(
             final Statement statement,
             final Object target,
+            final TestClass clazz,
             final FrameworkMethod method) {
+        this(statement, target, clazz, method, null);
+    }
+
+    /**
+     * DI コンテナを初期化し、廃棄を延期する statement を作成する.
+     * <p>
+     * 延期したコンテナは、{@code After} メソッドの実行後に
+     * {@link TestContextStatement} がバックグラウンドで破棄する。
+     * </p>
+     *
+     * @param statement 元の statement
+     * @param target テストクラスのインスタンス、
+     *          テストクラスでコンテナを共有する場合は {@code null}
+     * @param clazz テストクラス
+     * @param method テストメソッド
+     * @param teardown コンテナをバックグラウンドで破棄する処理、
+     *          同期して破棄する場合は {@code null}
+     */
+    public ContainerStatement(
+            final Statement statement,
+            final Object target,
+            final TestClass clazz,
+            final FrameworkMethod method,
+            final AsyncTeardown teardown) {
         _statement = statement;
         _test = target;
+        _testClass = clazz.getJavaClass();
         _method = method.getMethod();
+        _teardown = teardown;
     }
 
     @Override
@@ -41,26 +76,47 @@ class ContainerStatement extends Statement {
         initContainer();
         try {
             _statement.evaluate();
+            if (_test != null) {
+                TestImpact.collect();
+            }
         } finally {
-            if (_testContext != null) {
+            if (_teardown != null && _testContext != null) {
+                _teardown.defer(_testContext);
+            } else if (_testContext != null) {
+                TestPhaseTimer timer =
+                        TestPhaseTimer.start(TestPhase.CONTAINER_DESTROY);
                 _testContext.destroyContainer();
+                timer.stop(_testClass, _method);
             }
         }
     }
 
     /**
      * コンテナを初期化します.
+     *
+     * @throws SQLException
+     *             組み込みのデータベースのスキーマの作成に失敗した場合
      */
-    protected void initContainer() {
+    protected void initContainer() throws SQLException {
         _testContext = TestContextRepository.get();
         if (_testContext == null) {
             return;
         }
 
+        TestPhaseTimer timer =
+                TestPhaseTimer.start(TestPhase.CONTAINER_INCLUDE);
         _testContext.include();
-        ConventionTestIntrospector introspector =
-                ConventionIntrospectorRepository.get();
-        introspector.createMock(_method, _test, _testContext);
+        if (_test != null) {
+            ConventionTestIntrospector introspector =
+                    ConventionIntrospectorRepository.get();
+            introspector.createMock(_method, _test, _testContext);
+            MockInterfacePlan.get(_testClass).register(_test, _testContext);
+        }
+        timer.stop(_testClass, _method);
+
+        timer = TestPhaseTimer.start(TestPhase.CONTAINER_INIT);
+        EmbeddedDatabaseSupport.apply(_testClass, _testContext);
         _testContext.initContainer();
+        timer.stop(_testClass, _method);
     }
 }
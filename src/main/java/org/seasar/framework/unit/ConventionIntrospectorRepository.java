@@ -4,30 +4,58 @@ import org.seasar.framework.unit.impl.ConventionTestIntrospector;
 
 /**
  * テストクラスのイントロスペクターのレポジトリ.
+ * <p>
+ * イントロスペクターは最初に参照された時点で作成され、
+ * すべてのスレッドで共有される。
+ * </p>
  */
 class ConventionIntrospectorRepository {
-    /** テストクラスのイントロスペクター */
-    private static ThreadLocal<ConventionTestIntrospector> _introspector =
-            new ThreadLocal<>();
-
-    static {
-        ConventionTestIntrospector introspector =
-                new ConventionTestIntrospector();
-        introspector.init();
-        _introspector.set(introspector);
-    }
-
     /**
      * テストクラスのイントロスペクターを取得する.
      *
      * @return テストクラスのイントロスペクター
      */
     public static ConventionTestIntrospector get() {
-        return _introspector.get();
+        return Holder.INTROSPECTOR;
+    }
+
+    /**
+     * イントロスペクターがキャッシュしている解析結果を破棄する.
+     */
+    public static void clear() {
+        ConventionTestIntrospector introspector = get();
+        if (introspector instanceof CachingTestIntrospector) {
+            ((CachingTestIntrospector) introspector).clear();
+        }
     }
 
     /** ユーティリティクラスであるため、インスタンスを生成しない. */
     protected ConventionIntrospectorRepository() {
         throw new UnsupportedOperationException();
     }
+
+    /**
+     * イントロスペクターを遅延して初期化するためのホルダー.
+     */
+    private static final class Holder {
+        /** テストクラスのイントロスペクター */
+        static final ConventionTestIntrospector INTROSPECTOR =
+                createIntrospector();
+
+        /** インスタンスを生成しない. */
+        private Holder() {
+        }
+
+        /**
+         * テストクラスのイントロスペクターを作成する.
+         *
+         * @return テストクラスのイントロスペクター
+         */
+        private static ConventionTestIntrospector createIntrospector() {
+            ConventionTestIntrospector introspector =
+                    new CachingTestIntrospector();
+            introspector.init();
+            return introspector;
+        }
+    }
 }
@@ -0,0 +1,140 @@
+package org.seasar.framework.unit;
+
+import org.seasar.framework.unit.annotation.EmbeddedDatabase;
+
+/**
+ * 組み込みのインメモリデータベースの設定.
+ * <p>
+ * s2junit4config.dicon にコンポーネントとして定義すると、
+ * すべてのテストクラスでデータソースの接続先を切り替える。
+ * テストクラスに {@link EmbeddedDatabase} が指定されている場合は、
+ * そちらが優先される。
+ * </p>
+ *
+ * <pre>
+ * &lt;component class="org.seasar.framework.unit.EmbeddedDatabaseConfig"&gt;
+ *   &lt;property name="schema"&gt;"schema.sql"&lt;/property&gt;
+ * &lt;/component&gt;
+ * </pre>
+ */
+public class EmbeddedDatabaseConfig {
+    /** JDBC ドライバーのクラス名 */
+    private String _driverClassName = "org.h2.Driver";
+    /** 接続先の URL */
+    private String _url = "jdbc:h2:mem:s2junit4;DB_CLOSE_DELAY=-1";
+    /** ユーザー名 */
+    private String _user = "sa";
+    /** パスワード */
+    private String _password = "";
+    /** スキーマを作成するスクリプトのパス */
+    private String _schema = "";
+
+    /**
+     * デフォルトの設定を作成する.
+     */
+    public EmbeddedDatabaseConfig() {
+    }
+
+    /**
+     * アノテーションから設定を作成する.
+     *
+     * @param annotation アノテーション
+     */
+    public EmbeddedDatabaseConfig(final EmbeddedDatabase annotation) {
+        _driverClassName = annotation.driverClassName();
+        _url = annotation.url();
+        _user = annotation.user();
+        _password = annotation.password();
+        _schema = annotation.schema();
+    }
+
+    /**
+     * JDBC ドライバーのクラス名を返す.
+     *
+     * @return JDBC ドライバーのクラス名
+     */
+    public String getDriverClassName() {
+        return _driverClassName;
+    }
+
+    /**
+     * JDBC ドライバーのクラス名を設定する.
+     *
+     * @param driverClassName JDBC ドライバーのクラス名
+     */
+    public void setDriverClassName(final String driverClassName) {
+        _driverClassName = driverClassName;
+    }
+
+    /**
+     * 接続先の URL を返す.
+     *
+     * @return 接続先の URL
+     */
+    public String getUrl() {
+        return _url;
+    }
+
+    /**
+     * 接続先の URL を設定する.
+     *
+     * @param url 接続先の URL
+     */
+    public void setUrl(final String url) {
+        _url = url;
+    }
+
+    /**
+     * ユーザー名を返す.
+     *
+     * @return ユーザー名
+     */
+    public String getUser() {
+        return _user;
+    }
+
+    /**
+     * ユーザー名を設定する.
+     *
+     * @param user ユーザー名
+     */
+    public void setUser(final String user) {
+        _user = user;
+    }
+
+    /**
+     * パスワードを返す.
+     *
+     * @return パスワード
+     */
+    public String getPassword() {
+        return _password;
+    }
+
+    /**
+     * パスワードを設定する.
+     *
+     * @param password パスワード
+     */
+    public void setPassword(final String password) {
+        _password = password;
+    }
+
+    /**
+     * スキーマを作成するスクリプトのパスを返す.
+     *
+     * @return スキーマを作成するスクリプトのパス
+     */
+    public String getSchema() {
+        return _schema;
+    }
+
+    /**
+     * スキーマを作成するスクリプトのパスを設定する.
+     *
+     * @param schema クラスパスからのスクリプトのパス
+     */
+    public void setSchema(final String schema) {
+        _schema = schema;
+    }
+}
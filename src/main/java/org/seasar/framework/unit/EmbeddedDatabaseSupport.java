@@ -0,0 +1,203 @@
+package org.seasar.framework.unit;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.seasar.extension.dbcp.impl.XADataSourceImpl;
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.unit.annotation.EmbeddedDatabase;
+import org.seasar.framework.util.ClassUtil;
+import org.seasar.framework.util.StringUtil;
+
+/**
+ * データソースの接続先を、組み込みのインメモリデータベースに切り替える.
+ * <p>
+ * 接続先は、コンテナを初期化する前に切り替える。
+ * 初期化の際にデータソースを使用するコンポーネントも、切り替えた接続先を使用する。
+ * </p>
+ */
+final class EmbeddedDatabaseSupport {
+    /** s2junit4config.dicon で定義された設定 */
+    private static volatile EmbeddedDatabaseConfig _defaultConfig = null;
+
+    /** スキーマを作成した接続先の URL とスクリプトのパス */
+    private static final Set<String> INITIALIZED_URLS =
+            Collections.newSetFromMap(
+                    new ConcurrentHashMap<String, Boolean>());
+
+    /** ユーティリティクラスであるため、インスタンスを生成しない. */
+    private EmbeddedDatabaseSupport() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * コンフィグレーションS2コンテナから、デフォルトの設定を読み込む.
+     *
+     * @param configurationContainer コンフィグレーションS2コンテナ、
+     *          存在しない場合は {@code null}
+     */
+    public static void configure(final S2Container configurationContainer) {
+        if (configurationContainer != null
+                && configurationContainer.hasComponentDef(
+                        EmbeddedDatabaseConfig.class)) {
+            _defaultConfig = (EmbeddedDatabaseConfig)
+                    configurationContainer.getComponent(
+                            EmbeddedDatabaseConfig.class);
+        } else {
+            _defaultConfig = null;
+        }
+    }
+
+    /**
+     * デフォルトの設定を破棄する.
+     */
+    public static void dispose() {
+        _defaultConfig = null;
+    }
+
+    /**
+     * テストクラスの設定に従って、データソースの接続先を切り替える.
+     * <p>
+     * コンテナを初期化する前に呼び出す。
+     * </p>
+     *
+     * @param testClass テストクラス
+     * @param testContext テストコンテキスト
+     * @throws SQLException スキーマの作成に失敗した場合
+     */
+    public static void apply(
+            final Class<?> testClass,
+            final InternalTestContext testContext) throws SQLException {
+        EmbeddedDatabaseConfig config = getConfig(testClass);
+        if (config == null) {
+            return;
+        }
+        if (!testContext.hasComponentDef(XADataSourceImpl.class)) {
+            return;
+        }
+
+        initializeSchema(config);
+        XADataSourceImpl dataSource =
+                testContext.getComponent(XADataSourceImpl.class);
+        dataSource.setDriverClassName(config.getDriverClassName());
+        dataSource.setURL(config.getUrl());
+        dataSource.setUser(config.getUser());
+        dataSource.setPassword(config.getPassword());
+    }
+
+    /**
+     * テストクラスの設定を返す.
+     *
+     * @param testClass テストクラス
+     * @return 設定、切り替えない場合は {@code null}
+     */
+    private static EmbeddedDatabaseConfig getConfig(final Class<?> testClass) {
+        EmbeddedDatabase annotation =
+                testClass.getAnnotation(EmbeddedDatabase.class);
+        if (annotation != null) {
+            return new EmbeddedDatabaseConfig(annotation);
+        }
+        return _defaultConfig;
+    }
+
+    /**
+     * 接続先の URL とスキーマのスクリプトの組み合わせごとに一度だけ、
+     * スキーマを作成する.
+     *
+     * @param config 設定
+     * @throws SQLException スキーマの作成に失敗した場合
+     */
+    private static void initializeSchema(final EmbeddedDatabaseConfig config)
+            throws SQLException {
+        String url = config.getUrl();
+        String key = getInitializationKey(config);
+        if (INITIALIZED_URLS.contains(key)) {
+            return;
+        }
+        synchronized (INITIALIZED_URLS) {
+            if (INITIALIZED_URLS.contains(key)) {
+                return;
+            }
+            ClassUtil.forName(config.getDriverClassName());
+            if (!StringUtil.isEmpty(config.getSchema())) {
+                try (Connection connection = DriverManager.getConnection(
+                        url, config.getUser(), config.getPassword())) {
+                    executeScript(connection, config.getSchema());
+                }
+            }
+            INITIALIZED_URLS.add(key);
+        }
+    }
+
+    /**
+     * スキーマを作成したか否かを判定するためのキーを返す.
+     *
+     * @param config 設定
+     * @return 接続先の URL とスキーマのスクリプトのパスから作成したキー
+     */
+    static String getInitializationKey(final EmbeddedDatabaseConfig config) {
+        return config.getUrl() + "\n" + config.getSchema();
+    }
+
+    /**
+     * スキーマを作成した接続先の記録を破棄する.
+     */
+    static void clear() {
+        INITIALIZED_URLS.clear();
+    }
+
+    /**
+     * スクリプトを実行する.
+     * <p>
+     * スクリプトは {@code ;} で終わる行で文を区切り、
+     * {@code --} で始まる行は無視する。
+     * </p>
+     *
+     * @param connection コネクション
+     * @param path クラスパスからのスクリプトのパス
+     * @throws SQLException スクリプトの実行に失敗した場合
+     */
+    private static void executeScript(
+            final Connection connection, final String path)
+            throws SQLException {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        try (InputStream in = loader.getResourceAsStream(path);
+                Statement statement = connection.createStatement()) {
+            if (in == null) {
+                throw new SQLException("schema script not found: " + path);
+            }
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(in, StandardCharsets.UTF_8));
+            StringBuilder sql = new StringBuilder();
+            for (String line = reader.readLine();
+                    line != null;
+                    line = reader.readLine()) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                    continue;
+                }
+                sql.append(line).append('\n');
+                if (trimmed.endsWith(";")) {
+                    sql.setLength(sql.lastIndexOf(";"));
+                    statement.execute(sql.toString());
+                    sql.setLength(0);
+                }
+            }
+            if (sql.toString().trim().length() > 0) {
+                statement.execute(sql.toString());
+            }
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
+    }
+}
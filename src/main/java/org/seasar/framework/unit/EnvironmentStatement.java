@@ -1,34 +1,40 @@
 package org.seasar.framework.unit;
 
 import org.junit.runners.model.Statement;
+import org.junit.runners.model.TestClass;
 import org.seasar.framework.container.S2Container;
-import org.seasar.framework.container.factory.S2ContainerFactory;
 import org.seasar.framework.env.Env;
-import org.seasar.framework.unit.Seasar2.Configurator;
-import org.seasar.framework.util.ResourceUtil;
 
 /**
  * S2JUnit4 の振る舞いを設定する.
+ * <p>
+ * コンフィグレーションS2コンテナは {@link ConfigurationContainerCache} で
+ * JVM で共有するため、テストクラスの終了時には破棄しない。
+ * </p>
  */
 class EnvironmentStatement extends Statement {
     /** 元の statement */
     private final Statement _statement;
-
-    /** コンフィグレーションファイルから構築されたコンフィグレーションS2コンテナ */
-    private S2Container _configurationContainer = null;
+    /** テストクラス */
+    private final Class<?> _testClass;
 
     /**
      * コンストラクタ.
      *
      * @param statement 元の statement
+     * @param clazz テストクラス
      */
-    public EnvironmentStatement(final Statement statement) {
+    public EnvironmentStatement(
+            final Statement statement, final TestClass clazz) {
         _statement = statement;
+        _testClass = clazz.getJavaClass();
     }
 
     @Override
     public void evaluate() throws Throwable {
+        TestPhaseTimer timer = TestPhaseTimer.start(TestPhase.ENVIRONMENT);
         configure();
+        timer.stop(_testClass, null);
         try {
             _statement.evaluate();
         } finally {
@@ -57,30 +63,16 @@ class EnvironmentStatement extends Statement {
         Env.setFilePath(Seasar2.ENV_PATH);
         Env.setValueIfAbsent(Seasar2.ENV_VALUE);
 
-        if (!ResourceUtil.isExist(configFile)) {
-            return;
-        }
-
-        _configurationContainer = S2ContainerFactory.create(configFile);
-        Configurator configurator;
-        if (_configurationContainer.hasComponentDef(Configurator.class)) {
-            configurator =
-                    (Configurator)
-                    _configurationContainer.getComponent(Configurator.class);
-        } else {
-            configurator = new Seasar2.DefaultConfigurator();
-        }
-        configurator.configure(_configurationContainer);
+        S2Container configurationContainer =
+                ConfigurationContainerCache.configure(configFile);
+        EmbeddedDatabaseSupport.configure(configurationContainer);
     }
 
     /**
      * このクラスを破棄します.
      */
     private void dispose() {
-        if (_configurationContainer != null) {
-            _configurationContainer.destroy();
-            _configurationContainer = null;
-        }
+        EmbeddedDatabaseSupport.dispose();
         Env.initialize();
     }
 }
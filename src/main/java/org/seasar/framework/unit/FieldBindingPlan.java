@@ -0,0 +1,267 @@
+package org.seasar.framework.unit;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.ejb.EJB;
+
+import org.seasar.framework.unit.annotation.LazyBinding;
+import org.seasar.framework.util.StringUtil;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * テストクラスのフィールドに DI するための、事前に解決した情報.
+ * <p>
+ * クラス階層をたどって自動バインディングが可能なフィールドを探し、
+ * コンポーネント名を解決する処理は、テストクラスごとに一度だけ実行する。
+ * </p>
+ */
+final class FieldBindingPlan {
+    /** テストクラスごとのバインディングの情報 */
+    private static final ClassValue<FieldBindingPlan> PLANS =
+            new ClassValue<FieldBindingPlan>() {
+                @Override
+                protected FieldBindingPlan computeValue(
+                        final Class<?> type) {
+                    return new FieldBindingPlan(type);
+                }
+            };
+
+    /** バインディングの対象となるフィールド */
+    private final List<Slot> _slots;
+
+    /**
+     * テストクラスのバインディングの情報を作成する.
+     *
+     * @param testClass テストクラス
+     */
+    private FieldBindingPlan(final Class<?> testClass) {
+        List<Slot> slots = CollectionsUtil.newArrayList();
+        boolean lazyClass = testClass.isAnnotationPresent(LazyBinding.class);
+        for (Class<?> clazz = testClass;
+                clazz != Object.class;
+                clazz = clazz.getSuperclass()) {
+            for (final Field field : clazz.getDeclaredFields()) {
+                if (!BindUtils.isAutoBindable(field)) {
+                    continue;
+                }
+                field.setAccessible(true);
+                slots.add(new Slot(field, lazyClass));
+            }
+        }
+        _slots = Collections.unmodifiableList(slots);
+    }
+
+    /**
+     * テストクラスのバインディングの情報を取得する.
+     *
+     * @param testClass テストクラス
+     * @return バインディングの情報
+     */
+    public static FieldBindingPlan get(final Class<?> testClass) {
+        return PLANS.get(testClass);
+    }
+
+    /**
+     * バインディングの対象となるフィールドを返す.
+     *
+     * @return バインディングの対象となるフィールド
+     */
+    public List<Slot> getSlots() {
+        return _slots;
+    }
+
+    /**
+     * フィールドにバインディングするコンポーネントの解決結果.
+     */
+    enum Resolution {
+        /** コンポーネント名で取得できた */
+        NAME,
+        /** コンポーネント名では取得できず、フィールドの型で取得できた */
+        TYPE,
+        /** 取得できなかった */
+        MISS
+    }
+
+    /**
+     * バインディングの対象となるフィールド.
+     * <p>
+     * コンポーネントの解決結果を、解決した時点のコンポーネント定義の数と共に
+     * コンテナの構成ごとに保持する。
+     * 同じ構成でコンポーネント定義の数が変わっていないテストメソッドでは、
+     * 取得できなかった検索を省略する。
+     * </p>
+     */
+    static final class Slot {
+        /** フィールド */
+        private final Field _field;
+        /** フィールド名から解決したコンポーネント名 */
+        private final String _componentName;
+        /**
+         * {@link EJB} で指定されたコンポーネント名.
+         * <p>
+         * {@code javax.ejb} がクラスパスにない環境を考慮して、
+         * EJB3 が有効な場合に初めて解決する。
+         * </p>
+         */
+        private volatile String _ejbName = null;
+        /** {@link EJB} で指定されたコンポーネント名を解決したか否か */
+        private volatile boolean _ejbNameResolved = false;
+        /** 遅延してバインディングするか否か */
+        private final boolean _lazy;
+        /** コンテナの構成ごとのコンポーネントの解決結果 */
+        private final ConcurrentMap<ContainerSignature, Outcome>
+                _resolutions = new ConcurrentHashMap<>();
+
+        /**
+         * バインディングの対象となるフィールドを作成する.
+         *
+         * @param field フィールド
+         * @param lazyClass テストクラスに {@link LazyBinding} が指定されている場合
+         *          {@code true}
+         */
+        Slot(final Field field, final boolean lazyClass) {
+            _field = field;
+            _componentName = normalizeName(field.getName());
+            _lazy = field.getType().isInterface()
+                    && (lazyClass
+                            || field.isAnnotationPresent(LazyBinding.class));
+        }
+
+        /**
+         * フィールドを返す.
+         *
+         * @return アクセス可能に設定されたフィールド
+         */
+        public Field getField() {
+            return _field;
+        }
+
+        /**
+         * フィールドの型を返す.
+         *
+         * @return フィールドの型
+         */
+        public Class<?> getType() {
+            return _field.getType();
+        }
+
+        /**
+         * 遅延してバインディングするか否かを返す.
+         *
+         * @return インタフェース型のフィールドに {@link LazyBinding} が
+         *          適用される場合 {@code true}
+         */
+        public boolean isLazy() {
+            return _lazy;
+        }
+
+        /**
+         * コンテナの構成でのコンポーネントの解決結果を返す.
+         *
+         * @param signature コンテナの構成
+         * @param componentDefSize コンポーネント定義の数
+         * @return 解決結果、まだ解決していない場合や、
+         *          解決した時点とコンポーネント定義の数が異なる場合は
+         *          {@code null}
+         */
+        public Resolution getResolution(
+                final ContainerSignature signature,
+                final int componentDefSize) {
+            Outcome outcome = _resolutions.get(signature);
+            if (outcome == null
+                    || outcome._componentDefSize != componentDefSize) {
+                return null;
+            }
+            return outcome._resolution;
+        }
+
+        /**
+         * コンテナの構成でのコンポーネントの解決結果を設定する.
+         *
+         * @param signature コンテナの構成
+         * @param resolution 解決結果
+         * @param componentDefSize 解決した時点のコンポーネント定義の数
+         */
+        public void setResolution(
+                final ContainerSignature signature,
+                final Resolution resolution,
+                final int componentDefSize) {
+            _resolutions.put(
+                    signature, new Outcome(resolution, componentDefSize));
+        }
+
+        /**
+         * コンポーネント名を返す.
+         *
+         * @param ejb3Enabled EJB3 が有効な場合 {@code true}
+         * @return コンポーネント名
+         */
+        public String getComponentName(final boolean ejb3Enabled) {
+            if (ejb3Enabled) {
+                if (!_ejbNameResolved) {
+                    _ejbName = resolveEjbName(_field);
+                    _ejbNameResolved = true;
+                }
+                if (_ejbName != null) {
+                    return _ejbName;
+                }
+            }
+            return _componentName;
+        }
+
+        /**
+         * {@link EJB} で指定されたコンポーネント名を解決します.
+         *
+         * @param field フィールド
+         * @return コンポーネント名、指定されていない場合は {@code null}
+         */
+        private static String resolveEjbName(final Field field) {
+            final EJB ejb = field.getAnnotation(EJB.class);
+            if (ejb == null) {
+                return null;
+            }
+            if (!StringUtil.isEmpty(ejb.beanName())) {
+                return ejb.beanName();
+            } else if (!StringUtil.isEmpty(ejb.name())) {
+                return ejb.name();
+            }
+            return null;
+        }
+
+        /**
+         * コンポーネント名を正規化します.
+         *
+         * @param name
+         *            コンポーネント名
+         * @return 正規化されたコンポーネント名
+         */
+        private static String normalizeName(final String name) {
+            return StringUtil.replace(name, "_", "");
+        }
+    }
+
+    /**
+     * コンポーネントの解決結果と、解決した時点のコンポーネント定義の数.
+     */
+    private static final class Outcome {
+        /** 解決結果 */
+        private final Resolution _resolution;
+        /** 解決した時点のコンポーネント定義の数 */
+        private final int _componentDefSize;
+
+        /**
+         * 解決結果を作成する.
+         *
+         * @param resolution 解決結果
+         * @param componentDefSize 解決した時点のコンポーネント定義の数
+         */
+        Outcome(final Resolution resolution, final int componentDefSize) {
+            _resolution = resolution;
+            _componentDefSize = componentDefSize;
+        }
+    }
+}
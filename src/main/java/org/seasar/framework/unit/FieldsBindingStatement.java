@@ -3,12 +3,13 @@ package org.seasar.framework.unit;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.List;
+import java.util.Map;
 
-import javax.ejb.EJB;
-
+import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.Statement;
 import org.junit.runners.model.TestClass;
-import org.seasar.framework.util.StringUtil;
+import org.seasar.framework.unit.FieldBindingPlan.Resolution;
+import org.seasar.framework.unit.FieldBindingPlan.Slot;
 import org.seasar.framework.util.tiger.CollectionsUtil;
 import org.seasar.framework.util.tiger.ReflectionUtil;
 
@@ -23,14 +24,21 @@ class FieldsBindingStatement extends Statement {
     private final Object _test;
     /** テストクラス */
     private final Class<?> _testClass;
+    /** テストメソッド */
+    private final Method _method;
 
     /** テストクラスのイントロスペクター */
     private final S2TestIntrospector _introspector;
     /** S2JUnit4の内部的なテストコンテキスト */
     private InternalTestContext _testContext;
+    /** テストメソッドのコンテナの構成 */
+    private final ContainerSignature _signature;
 
     /** バインディングが行われたフィールドのリスト */
     private List<Field> _boundFields = CollectionsUtil.newArrayList();
+    /** 遅延してバインディングしたフィールドのハンドラー */
+    private Map<Field, LazyComponentHandler> _lazyHandlers =
+            CollectionsUtil.newHashMap();
 
     /**
      * テストクラスの各フィールドに DI する statement を作成する.
@@ -38,13 +46,17 @@ class FieldsBindingStatement extends Statement {
      * @param statement 元の statement
      * @param test      テストクラスのインスタンス
      * @param testClass テストクラス
+     * @param method    テストメソッド
      */
     public FieldsBindingStatement(
             final Statement statement,
-            final Object test, final TestClass testClass) {
+            final Object test, final TestClass testClass,
+            final FrameworkMethod method) {
         _statement = statement;
         _test = test;
         _testClass = testClass.getJavaClass();
+        _method = method.getMethod();
+        _signature = ContainerSignature.of(_testClass, _method);
 
         _introspector = ConventionIntrospectorRepository.get();
     }
@@ -52,11 +64,15 @@ class FieldsBindingStatement extends Statement {
     @Override
     public void evaluate() throws Throwable {
         _testContext = TestContextRepository.get();
+        TestPhaseTimer timer = TestPhaseTimer.start(TestPhase.FIELDS_BINDING);
         bindFields();
+        timer.stop(_testClass, _method);
         try {
             _statement.evaluate();
         } finally {
+            timer = TestPhaseTimer.start(TestPhase.FIELDS_UNBINDING);
             unbindFields();
+            timer.stop(_testClass, _method);
         }
     }
 
@@ -67,13 +83,9 @@ class FieldsBindingStatement extends Statement {
      *             何らかの例外またはエラーが発生した場合
      */
     private void bindFields() throws Throwable {
-        for (Class<?> clazz = _testClass;
-                clazz != Object.class;
-                clazz = clazz.getSuperclass()) {
-            final Field[] fields = clazz.getDeclaredFields();
-            for (final Field field : fields) {
-                bindField(field);
-            }
+        final boolean ejb3Enabled = _testContext.isEjb3Enabled();
+        for (final Slot slot : FieldBindingPlan.get(_testClass).getSlots()) {
+            bindField(slot, ejb3Enabled);
         }
 
         List<Method> postBindFieldsMethods =
@@ -86,35 +98,30 @@ class FieldsBindingStatement extends Statement {
     /**
      * 指定されたフィールドにコンポーネントをバインディングします.
      *
-     * @param field
-     *            フィールド
+     * @param slot
+     *            バインディングの対象となるフィールド
+     * @param ejb3Enabled
+     *            EJB3 が有効な場合 {@code true}
      */
-    private void bindField(final Field field) {
-        if (!BindUtils.isAutoBindable(field)) {
-            return;
-        }
-
-        field.setAccessible(true);
+    private void bindField(final Slot slot, final boolean ejb3Enabled) {
+        final Field field = slot.getField();
         if (ReflectionUtil.getValue(field, _test) != null) {
             return;
         }
 
-        final String name = resolveComponentName(field);
+        final String name = slot.getComponentName(ejb3Enabled);
+        final Class<?> type = slot.getType();
         Object component = null;
-        if (_testContext.hasComponentDef(name)) {
-            component = _testContext.getComponent(name);
-            if (component != null) {
-                Class<?> componentClass = component.getClass();
-                if (!field.getType().isAssignableFrom(componentClass)) {
-                    component = null;
-                }
+        if (slot.isLazy()) {
+            if (_testContext.hasComponentDef(name)
+                    || _testContext.hasComponentDef(type)) {
+                LazyComponentHandler handler =
+                        new LazyComponentHandler(_testContext, name, type);
+                component = ProxyConstructorCache.newProxy(type, handler);
+                _lazyHandlers.put(field, handler);
             }
-        }
-
-        if (component != null) {
-            ;
-        } else if (_testContext.hasComponentDef(field.getType())) {
-            component = _testContext.getComponent(field.getType());
+        } else {
+            component = resolveComponent(slot, name, type);
         }
 
         if (component != null) {
@@ -124,35 +131,119 @@ class FieldsBindingStatement extends Statement {
     }
 
     /**
-     * フィールドからコンポーネントの名前を解決します.
+     * フィールドにバインディングするコンポーネントを取得します.
+     * <p>
+     * {@link #resolveComponent(TestContext, String, Class)} と同じく
+     * コンポーネント名、フィールドの型の順に検索します。
+     * 同じコンテナの構成でコンポーネント定義の数が変わっていない場合は、
+     * 以前に取得できなかった検索を省略します。
+     * コンポーネントが登録されるとコンポーネント定義の数が変わるため、
+     * テストメソッドで登録されたコンポーネントも取得できます。
+     * </p>
      *
-     * @param filed
-     *            フィールド
-     * @return コンポーネント名
+     * @param slot
+     *            バインディングの対象となるフィールド
+     * @param name
+     *            コンポーネント名
+     * @param type
+     *            フィールドの型
+     * @return コンポーネント、見つからない場合は {@code null}
      */
-    private String resolveComponentName(final Field filed) {
-        if (_testContext.isEjb3Enabled()) {
-            final EJB ejb = filed.getAnnotation(EJB.class);
-            if (ejb != null) {
-                if (!StringUtil.isEmpty(ejb.beanName())) {
-                    return ejb.beanName();
-                } else if (!StringUtil.isEmpty(ejb.name())) {
-                    return ejb.name();
-                }
+    private Object resolveComponent(
+            final Slot slot, final String name, final Class<?> type) {
+        int size = _testContext.getComponentDefSize();
+        Resolution resolution = slot.getResolution(_signature, size);
+        if (resolution == Resolution.MISS) {
+            return null;
+        }
+
+        Object component = null;
+        if (resolution != Resolution.TYPE) {
+            component = getComponentByName(_testContext, name, type);
+            if (component != null) {
+                slot.setResolution(_signature, Resolution.NAME, size);
+                return component;
             }
         }
-        return normalizeName(filed.getName());
+        component = getComponentByType(_testContext, type);
+        if (component != null) {
+            slot.setResolution(_signature, Resolution.TYPE, size);
+        } else {
+            slot.setResolution(_signature, Resolution.MISS, size);
+        }
+        return component;
     }
 
     /**
-     * コンポーネント名を正規化します.
+     * フィールドにバインディングするコンポーネントを取得します.
+     * <p>
+     * コンポーネント名で取得したコンポーネントがフィールドの型に代入できない場合は、
+     * フィールドの型で取得します。
+     * </p>
      *
+     * @param testContext
+     *            テストコンテキスト
      * @param name
      *            コンポーネント名
-     * @return 正規化されたコンポーネント名
+     * @param type
+     *            フィールドの型
+     * @return コンポーネント、見つからない場合は {@code null}
      */
-    private String normalizeName(final String name) {
-        return StringUtil.replace(name, "_", "");
+    static Object resolveComponent(
+            final TestContext testContext,
+            final String name,
+            final Class<?> type) {
+        Object component = getComponentByName(testContext, name, type);
+        if (component == null) {
+            component = getComponentByType(testContext, type);
+        }
+        return component;
+    }
+
+    /**
+     * コンポーネント名でコンポーネントを取得します.
+     *
+     * @param testContext
+     *            テストコンテキスト
+     * @param name
+     *            コンポーネント名
+     * @param type
+     *            フィールドの型
+     * @return フィールドの型に代入できるコンポーネント、
+     *          見つからない場合は {@code null}
+     */
+    private static Object getComponentByName(
+            final TestContext testContext,
+            final String name,
+            final Class<?> type) {
+        if (!testContext.hasComponentDef(name)) {
+            return null;
+        }
+        Object component = testContext.getComponent(name);
+        if (component != null) {
+            Class<?> componentClass = component.getClass();
+            if (!type.isAssignableFrom(componentClass)) {
+                component = null;
+            }
+        }
+        return component;
+    }
+
+    /**
+     * フィールドの型でコンポーネントを取得します.
+     *
+     * @param testContext
+     *            テストコンテキスト
+     * @param type
+     *            フィールドの型
+     * @return コンポーネント、見つからない場合は {@code null}
+     */
+    private static Object getComponentByType(
+            final TestContext testContext, final Class<?> type) {
+        if (!testContext.hasComponentDef(type)) {
+            return null;
+        }
+        return testContext.getComponent(type);
     }
 
     /**
@@ -179,5 +270,12 @@ class FieldsBindingStatement extends Statement {
         }
 
         _boundFields.clear();
+
+        for (final Map.Entry<Field, LazyComponentHandler> entry
+                : _lazyHandlers.entrySet()) {
+            LazyBindingStatistics.record(
+                    entry.getKey(), entry.getValue().isResolved());
+        }
+        _lazyHandlers.clear();
     }
 }
@@ -0,0 +1,365 @@
+package org.seasar.framework.unit;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.sql.DataSource;
+
+import org.seasar.extension.dataset.DataRow;
+import org.seasar.extension.dataset.DataSet;
+import org.seasar.extension.dataset.DataTable;
+import org.seasar.extension.dataset.impl.XlsReader;
+import org.seasar.framework.unit.annotation.Fixture;
+
+/**
+ * {@link Fixture} で指定されたテストデータをデータベースに登録する.
+ * <p>
+ * テストデータのファイルは JVM で一度だけ読み込み、{@link DataSet} として保持する。
+ * テーブル名と列名は、データベースの識別子の規則に従って引用符で囲む。
+ * </p>
+ * <p>
+ * {@code null} を設定するための列の SQL の型は、データベースの URL とユーザー、
+ * カタログ、スキーマ、テーブル、列ごとに JVM で一度だけ問い合わせる。
+ * </p>
+ */
+final class FixtureLoader {
+    /** 読み込んだテストデータ */
+    private static final ConcurrentMap<String, DataSet> DATA_SETS =
+            new ConcurrentHashMap<>();
+
+    /** データベースとテーブルごとの、列の SQL の型 */
+    private static final ConcurrentMap<String, int[]> COLUMN_TYPES =
+            new ConcurrentHashMap<>();
+
+    /** ユーティリティクラスであるため、インスタンスを生成しない. */
+    private FixtureLoader() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * テストクラスに指定されたテストデータを登録する.
+     *
+     * @param testClass テストクラス
+     * @param testContext テストコンテキスト
+     * @throws SQLException 登録に失敗した場合
+     */
+    public static void load(
+            final Class<?> testClass,
+            final InternalTestContext testContext) throws SQLException {
+        load(testClass.getAnnotation(Fixture.class), testContext);
+    }
+
+    /**
+     * テストメソッドに指定されたテストデータを登録する.
+     *
+     * @param method テストメソッド
+     * @param testContext テストコンテキスト
+     * @throws SQLException 登録に失敗した場合
+     */
+    public static void load(
+            final Method method,
+            final InternalTestContext testContext) throws SQLException {
+        load(method.getAnnotation(Fixture.class), testContext);
+    }
+
+    /**
+     * テストクラスまたはテストメソッドにテストデータが指定されているか否かを返す.
+     *
+     * @param testClass テストクラス
+     * @param method テストメソッド
+     * @return テストデータが指定されている場合、{@code true}
+     */
+    public static boolean hasFixture(
+            final Class<?> testClass, final Method method) {
+        return testClass.isAnnotationPresent(Fixture.class)
+                || method.isAnnotationPresent(Fixture.class);
+    }
+
+    /**
+     * テストデータを登録する.
+     *
+     * @param fixture テストデータの指定
+     * @param testContext テストコンテキスト
+     * @throws SQLException 登録に失敗した場合
+     */
+    private static void load(
+            final Fixture fixture,
+            final InternalTestContext testContext) throws SQLException {
+        if (fixture == null) {
+            return;
+        }
+        DataSource dataSource = testContext.getComponent(DataSource.class);
+        for (final String path : fixture.value()) {
+            write(dataSource, getDataSet(path));
+        }
+    }
+
+    /**
+     * テストデータを取得する.
+     *
+     * @param path テストデータのファイルのパス
+     * @return テストデータ
+     */
+    static DataSet getDataSet(final String path) {
+        DataSet dataSet = DATA_SETS.get(path);
+        if (dataSet == null) {
+            dataSet = new XlsReader(path).read();
+            DATA_SETS.putIfAbsent(path, dataSet);
+        }
+        return dataSet;
+    }
+
+    /**
+     * 読み込んだテストデータと、問い合わせた列の SQL の型を破棄する.
+     */
+    static void clear() {
+        DATA_SETS.clear();
+        COLUMN_TYPES.clear();
+    }
+
+    /**
+     * テストデータをバッチ更新で登録する.
+     *
+     * @param dataSource データソース
+     * @param dataSet テストデータ
+     * @throws SQLException 登録に失敗した場合
+     */
+    private static void write(
+            final DataSource dataSource,
+            final DataSet dataSet) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            for (int i = 0; i < dataSet.getTableSize(); i++) {
+                DataTable table = dataSet.getTable(i);
+                if (table.getRowSize() == 0) {
+                    continue;
+                }
+                write(connection, table);
+            }
+        }
+    }
+
+    /**
+     * テーブルの行をバッチ更新で登録する.
+     * <p>
+     * {@code null} の値は、テーブルの列の SQL の型で設定する。
+     * </p>
+     *
+     * @param connection コネクション
+     * @param table テーブル
+     * @throws SQLException 登録に失敗した場合
+     */
+    private static void write(
+            final Connection connection,
+            final DataTable table) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        int[] types = getColumnTypes(connection, meta, table);
+        try (PreparedStatement ps =
+                connection.prepareStatement(createInsertSql(meta, table))) {
+            int columns = table.getColumnSize();
+            for (int i = 0; i < table.getRowSize(); i++) {
+                DataRow row = table.getRow(i);
+                for (int j = 0; j < columns; j++) {
+                    Object value = row.getValue(j);
+                    if (value == null) {
+                        ps.setNull(j + 1, types[j]);
+                    } else {
+                        ps.setObject(j + 1, value);
+                    }
+                }
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * テーブルの列の SQL の型を返す.
+     * <p>
+     * データベースの URL が取得できない場合は、キャッシュせずに毎回問い合わせる。
+     * </p>
+     *
+     * @param connection コネクション
+     * @param meta データベースのメタデータ
+     * @param table テーブル
+     * @return 列の SQL の型
+     * @throws SQLException 取得に失敗した場合
+     */
+    static int[] getColumnTypes(
+            final Connection connection,
+            final DatabaseMetaData meta,
+            final DataTable table) throws SQLException {
+        String key = getColumnTypesKey(connection, meta, table);
+        int[] types = key == null ? null : COLUMN_TYPES.get(key);
+        if (types == null) {
+            types = queryColumnTypes(connection, meta, table);
+            if (key != null) {
+                COLUMN_TYPES.putIfAbsent(key, types);
+            }
+        }
+        return types;
+    }
+
+    /**
+     * 列の SQL の型をキャッシュするキーを返す.
+     *
+     * @param connection コネクション
+     * @param meta データベースのメタデータ
+     * @param table テーブル
+     * @return キー、データベースの URL が取得できない場合は {@code null}
+     * @throws SQLException メタデータの取得に失敗した場合
+     */
+    private static String getColumnTypesKey(
+            final Connection connection,
+            final DatabaseMetaData meta,
+            final DataTable table) throws SQLException {
+        String url = meta.getURL();
+        if (url == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(url);
+        key.append('\n').append(meta.getUserName())
+                .append('\n').append(connection.getCatalog())
+                .append('\n').append(getSchema(connection))
+                .append('\n').append(table.getTableName());
+        for (int i = 0; i < table.getColumnSize(); i++) {
+            key.append('\n').append(table.getColumnName(i));
+        }
+        return key.toString();
+    }
+
+    /**
+     * コネクションの現在のスキーマを返す.
+     *
+     * @param connection コネクション
+     * @return スキーマ、JDBC ドライバーが対応していない場合は {@code null}
+     * @throws SQLException スキーマの取得に失敗した場合
+     */
+    private static String getSchema(final Connection connection)
+            throws SQLException {
+        try {
+            return connection.getSchema();
+        } catch (AbstractMethodError e) {
+            return null;
+        } catch (SQLFeatureNotSupportedException e) {
+            return null;
+        }
+    }
+
+    /**
+     * テーブルの列の SQL の型をデータベースに問い合わせる.
+     *
+     * @param connection コネクション
+     * @param meta データベースのメタデータ
+     * @param table テーブル
+     * @return 列の SQL の型
+     * @throws SQLException 取得に失敗した場合
+     */
+    private static int[] queryColumnTypes(
+            final Connection connection,
+            final DatabaseMetaData meta,
+            final DataTable table) throws SQLException {
+        String sql = "SELECT " + createColumnList(meta, table)
+                + " FROM " + quote(meta, table.getTableName())
+                + " WHERE 1 = 0";
+        try (PreparedStatement ps = connection.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            ResultSetMetaData rsmd = rs.getMetaData();
+            int[] types = new int[table.getColumnSize()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = rsmd.getColumnType(i + 1);
+            }
+            return types;
+        }
+    }
+
+    /**
+     * テーブルに行を登録する SQL を作成する.
+     *
+     * @param meta データベースのメタデータ
+     * @param table テーブル
+     * @return SQL
+     * @throws SQLException メタデータの取得に失敗した場合
+     */
+    static String createInsertSql(
+            final DatabaseMetaData meta,
+            final DataTable table) throws SQLException {
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < table.getColumnSize(); i++) {
+            if (i > 0) {
+                values.append(", ");
+            }
+            values.append('?');
+        }
+        return "INSERT INTO " + quote(meta, table.getTableName())
+                + " (" + createColumnList(meta, table)
+                + ") VALUES (" + values + ")";
+    }
+
+    /**
+     * 引用符で囲んだ列名を、カンマで区切って返す.
+     *
+     * @param meta データベースのメタデータ
+     * @param table テーブル
+     * @return 列名のリスト
+     * @throws SQLException メタデータの取得に失敗した場合
+     */
+    private static String createColumnList(
+            final DatabaseMetaData meta,
+            final DataTable table) throws SQLException {
+        StringBuilder columns = new StringBuilder();
+        for (int i = 0; i < table.getColumnSize(); i++) {
+            if (i > 0) {
+                columns.append(", ");
+            }
+            columns.append(quote(meta, table.getColumnName(i)));
+        }
+        return columns.toString();
+    }
+
+    /**
+     * 識別子を引用符で囲む.
+     * <p>
+     * 引用符で囲まない場合と同じ名前になるように、データベースが識別子を
+     * 大文字または小文字で格納する場合は、大文字または小文字に変換する。
+     * スキーマで修飾された名前は、それぞれを引用符で囲む。
+     * </p>
+     *
+     * @param meta データベースのメタデータ
+     * @param name 識別子
+     * @return 引用符で囲んだ識別子
+     * @throws SQLException メタデータの取得に失敗した場合
+     */
+    static String quote(
+            final DatabaseMetaData meta,
+            final String name) throws SQLException {
+        String quote = meta.getIdentifierQuoteString();
+        if (quote == null || quote.trim().isEmpty()) {
+            return name;
+        }
+        String normalized = name;
+        if (meta.storesUpperCaseIdentifiers()) {
+            normalized = name.toUpperCase(Locale.ENGLISH);
+        } else if (meta.storesLowerCaseIdentifiers()) {
+            normalized = name.toLowerCase(Locale.ENGLISH);
+        }
+        StringBuilder quoted = new StringBuilder();
+        for (final String part : normalized.split("\\.")) {
+            if (quoted.length() > 0) {
+                quoted.append('.');
+            }
+            quoted.append(quote)
+                    .append(part.replace(quote, quote + quote))
+                    .append(quote);
+        }
+        return quoted.toString();
+    }
+}
@@ -0,0 +1,99 @@
+package org.seasar.framework.unit;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.seasar.framework.util.StringUtil;
+
+/**
+ * 遅延してバインディングしたフィールドが使用されたか否かを集計する.
+ * <p>
+ * システムプロパティ {@value #REPORT_KEY} にファイルのパスを指定すると、
+ * JVM の終了時にフィールドごとのバインディングの回数と、
+ * コンポーネントを取得した回数を CSV で出力する。
+ * 一度も取得されなかったフィールドは、バインディングが不要な可能性がある。
+ * </p>
+ */
+public final class LazyBindingStatistics {
+    /** レポートの出力先を指定するシステムプロパティのキー */
+    public static final String REPORT_KEY =
+            "org.seasar.framework.unit.lazyBindingReport";
+
+    /** CSV のヘッダー */
+    private static final String CSV_HEADER = "field,bound,resolved,unused";
+
+    /** フィールドごとの集計結果 */
+    private static final Map<String, long[]> COUNTS = new TreeMap<>();
+
+    static {
+        final String path = System.getProperty(REPORT_KEY);
+        if (!StringUtil.isEmpty(path)) {
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        write(new File(path));
+                    } catch (IOException e) {
+                        System.err.println(e);
+                    }
+                }
+            });
+        }
+    }
+
+    /** ユーティリティクラスであるため、インスタンスを生成しない. */
+    private LazyBindingStatistics() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * フィールドのバインディングを解除した結果を記録する.
+     *
+     * @param field フィールド
+     * @param resolved コンポーネントを取得した場合、{@code true}
+     */
+    static synchronized void record(final Field field, final boolean resolved) {
+        String key = field.getDeclaringClass().getName()
+                + "#" + field.getName();
+        long[] counts = COUNTS.get(key);
+        if (counts == null) {
+            counts = new long[2];
+            COUNTS.put(key, counts);
+        }
+        counts[0]++;
+        if (resolved) {
+            counts[1]++;
+        }
+    }
+
+    /**
+     * 集計結果をファイルに出力する.
+     *
+     * @param file 出力先のファイル
+     * @throws IOException 出力に失敗した場合
+     */
+    public static synchronized void write(final File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.println(CSV_HEADER);
+            for (final Map.Entry<String, long[]> entry : COUNTS.entrySet()) {
+                long[] counts = entry.getValue();
+                writer.println(entry.getKey()
+                        + "," + counts[0]
+                        + "," + counts[1]
+                        + "," + (counts[0] - counts[1]));
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.seasar.framework.unit;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 最初のメソッド呼び出しで、コンポーネントを S2 コンテナから取得するプロキシのハンドラー.
+ * <p>
+ * {@link Object} のメソッドはコンポーネントを取得せずに処理する。
+ * {@code equals} と {@code hashCode} はプロキシの同一性を元にし、
+ * {@code toString} はコンポーネントを取得済みの場合だけコンポーネントに委譲する。
+ * </p>
+ */
+class LazyComponentHandler implements InvocationHandler {
+    /** テストコンテキスト */
+    private final TestContext _testContext;
+    /** コンポーネント名 */
+    private final String _name;
+    /** フィールドの型 */
+    private final Class<?> _type;
+    /** 取得したコンポーネント */
+    private Object _component = null;
+
+    /**
+     * ハンドラーを作成する.
+     *
+     * @param testContext テストコンテキスト
+     * @param name コンポーネント名
+     * @param type フィールドの型
+     */
+    LazyComponentHandler(
+            final TestContext testContext,
+            final String name,
+            final Class<?> type) {
+        _testContext = testContext;
+        _name = name;
+        _type = type;
+    }
+
+    /**
+     * コンポーネントを取得したか否かを返す.
+     *
+     * @return 取得した場合、{@code true}
+     */
+    public boolean isResolved() {
+        return _component != null;
+    }
+
+    @Override
+    public Object invoke(
+            final Object proxy, final Method method, final Object[] args)
+            throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return invokeObjectMethod(proxy, method, args);
+        }
+        Object component = getComponent();
+        if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            method.setAccessible(true);
+        }
+        try {
+            return method.invoke(component, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * {@link Object} のメソッドを、コンポーネントを取得せずに処理する.
+     *
+     * @param proxy プロキシ
+     * @param method メソッド
+     * @param args 引数
+     * @return 戻り値
+     */
+    private Object invokeObjectMethod(
+            final Object proxy, final Method method, final Object[] args) {
+        String name = method.getName();
+        if ("equals".equals(name)) {
+            return proxy == args[0];
+        }
+        if ("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+        }
+        if (_component != null) {
+            return _component.toString();
+        }
+        return "lazy " + _type.getName() + " (" + _name + ")";
+    }
+
+    /**
+     * コンポーネントを返す.
+     *
+     * @return コンポーネント
+     */
+    private Object getComponent() {
+        if (_component == null) {
+            _component = FieldsBindingStatement.resolveComponent(
+                    _testContext, _name, _type);
+            if (_component == null) {
+                throw new IllegalStateException(
+                        "component not found: " + _name + " (" + _type + ")");
+            }
+        }
+        return _component;
+    }
+}
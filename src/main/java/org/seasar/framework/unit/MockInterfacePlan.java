@@ -0,0 +1,100 @@
+package org.seasar.framework.unit;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+
+import org.seasar.framework.aop.interceptors.MockInterceptor;
+import org.seasar.framework.unit.annotation.MockInterface;
+import org.seasar.framework.util.StringUtil;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+import org.seasar.framework.util.tiger.ReflectionUtil;
+
+/**
+ * テストクラスの {@link MockInterface} を登録するための、事前に解決した情報.
+ * <p>
+ * {@link MockInterface} が付与されたフィールドは、
+ * テストクラスごとに一度だけ探索する。
+ * </p>
+ */
+final class MockInterfacePlan {
+    /** テストクラスごとのモックの情報 */
+    private static final ClassValue<MockInterfacePlan> PLANS =
+            new ClassValue<MockInterfacePlan>() {
+                @Override
+                protected MockInterfacePlan computeValue(
+                        final Class<?> type) {
+                    return new MockInterfacePlan(type);
+                }
+            };
+
+    /** {@link MockInterface} が付与されたフィールド */
+    private final List<Field> _fields;
+
+    /**
+     * テストクラスのモックの情報を作成する.
+     *
+     * @param testClass テストクラス
+     */
+    private MockInterfacePlan(final Class<?> testClass) {
+        List<Field> fields = CollectionsUtil.newArrayList();
+        for (Class<?> clazz = testClass;
+                clazz != null && !Object.class.equals(clazz);
+                clazz = clazz.getSuperclass()) {
+            for (final Field field : clazz.getDeclaredFields()) {
+                if (!field.isAnnotationPresent(MockInterface.class)) {
+                    continue;
+                }
+                if (!field.getType().isAssignableFrom(
+                        MockInterceptor.class)) {
+                    throw new IllegalStateException(
+                            "@MockInterface requires a MockInterceptor field: "
+                            + field);
+                }
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+        _fields = Collections.unmodifiableList(fields);
+    }
+
+    /**
+     * テストクラスのモックの情報を取得する.
+     *
+     * @param testClass テストクラス
+     * @return モックの情報
+     */
+    public static MockInterfacePlan get(final Class<?> testClass) {
+        return PLANS.get(testClass);
+    }
+
+    /**
+     * {@link MockInterface} が付与されたフィールドがあるか否かを返す.
+     *
+     * @return フィールドがある場合、{@code true}
+     */
+    public boolean hasMocks() {
+        return !_fields.isEmpty();
+    }
+
+    /**
+     * モックをテストコンテキストに登録し、
+     * {@link MockInterceptor} をテストクラスのインスタンスに設定する.
+     *
+     * @param test テストクラスのインスタンス
+     * @param testContext テストコンテキスト
+     */
+    public void register(final Object test, final TestContext testContext) {
+        for (final Field field : _fields) {
+            MockInterface mock = field.getAnnotation(MockInterface.class);
+            MockInterceptor interceptor = new MockInterceptor();
+            Object proxy = MockProxyFactory.newProxy(mock.value(), interceptor);
+            if (StringUtil.isEmpty(mock.name())) {
+                testContext.register(proxy);
+            } else {
+                testContext.register(proxy, mock.name());
+            }
+            ReflectionUtil.setValue(field, test, interceptor);
+        }
+    }
+}
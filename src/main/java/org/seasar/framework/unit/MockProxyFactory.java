@@ -0,0 +1,169 @@
+package org.seasar.framework.unit;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.seasar.framework.aop.interceptors.MockInterceptor;
+
+/**
+ * インタフェースのモックを作成する.
+ * <p>
+ * モックのクラスは {@link ProxyConstructorCache} でインタフェースごとに
+ * 一度だけ作成するため、テストメソッドごとのモックの作成は、
+ * インスタンスの生成だけになる。
+ * モックの振る舞いは {@link MockInterceptor} で設定する。
+ * </p>
+ */
+final class MockProxyFactory {
+    /** ユーティリティクラスであるため、インスタンスを生成しない. */
+    private MockProxyFactory() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * インタフェースのモックを作成する.
+     *
+     * @param type モックにするインタフェース
+     * @param interceptor モックの振る舞いを設定する {@link MockInterceptor}
+     * @return モック
+     */
+    public static Object newProxy(
+            final Class<?> type, final MockInterceptor interceptor) {
+        return ProxyConstructorCache.newProxy(
+                type, new MockInvocationHandler(interceptor));
+    }
+
+    /**
+     * モックのメソッド呼び出しを {@link MockInterceptor} に委譲する.
+     */
+    static final class MockInvocationHandler implements InvocationHandler {
+        /** モックの振る舞いを設定する {@link MockInterceptor} */
+        private final MockInterceptor _interceptor;
+
+        /**
+         * ハンドラーを作成する.
+         *
+         * @param interceptor モックの振る舞いを設定する {@link MockInterceptor}
+         */
+        MockInvocationHandler(final MockInterceptor interceptor) {
+            _interceptor = interceptor;
+        }
+
+        @Override
+        public Object invoke(
+                final Object proxy, final Method method, final Object[] args)
+                throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return invokeObjectMethod(proxy, method, args);
+            }
+            Object result = _interceptor.invoke(
+                    new ProxyMethodInvocation(proxy, method, args));
+            if (result == null && method.getReturnType().isPrimitive()) {
+                return getDefaultValue(method.getReturnType());
+            }
+            return result;
+        }
+
+        /**
+         * {@link Object} のメソッドを処理する.
+         *
+         * @param proxy モック
+         * @param method メソッド
+         * @param args 引数
+         * @return 戻り値
+         */
+        private Object invokeObjectMethod(
+                final Object proxy, final Method method, final Object[] args) {
+            String name = method.getName();
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            return "Mock of " + proxy.getClass().getInterfaces()[0].getName();
+        }
+
+        /**
+         * プリミティブ型のデフォルト値を返す.
+         *
+         * @param type プリミティブ型
+         * @return デフォルト値
+         */
+        private static Object getDefaultValue(final Class<?> type) {
+            if (type == boolean.class) {
+                return Boolean.FALSE;
+            } else if (type == char.class) {
+                return Character.valueOf((char) 0);
+            } else if (type == byte.class) {
+                return Byte.valueOf((byte) 0);
+            } else if (type == short.class) {
+                return Short.valueOf((short) 0);
+            } else if (type == int.class) {
+                return Integer.valueOf(0);
+            } else if (type == long.class) {
+                return Long.valueOf(0L);
+            } else if (type == float.class) {
+                return Float.valueOf(0f);
+            } else if (type == double.class) {
+                return Double.valueOf(0d);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * モックのメソッド呼び出しを表す {@link MethodInvocation}.
+     * <p>
+     * 呼び出し先のオブジェクトは存在しないため、{@link #proceed()} は
+     * {@code null} を返す。
+     * </p>
+     */
+    static final class ProxyMethodInvocation implements MethodInvocation {
+        /** モック */
+        private final Object _proxy;
+        /** メソッド */
+        private final Method _method;
+        /** 引数 */
+        private final Object[] _args;
+
+        /**
+         * メソッド呼び出しを作成する.
+         *
+         * @param proxy モック
+         * @param method メソッド
+         * @param args 引数
+         */
+        ProxyMethodInvocation(
+                final Object proxy, final Method method, final Object[] args) {
+            _proxy = proxy;
+            _method = method;
+            _args = args == null ? new Object[0] : args;
+        }
+
+        @Override
+        public Method getMethod() {
+            return _method;
+        }
+
+        @Override
+        public Object[] getArguments() {
+            return _args;
+        }
+
+        @Override
+        public Object proceed() throws Throwable {
+            return null;
+        }
+
+        @Override
+        public Object getThis() {
+            return _proxy;
+        }
+
+        @Override
+        public java.lang.reflect.AccessibleObject getStaticPart() {
+            return _method;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.seasar.framework.unit;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+/**
+ * インタフェースごとのプロキシクラスのコンストラクタをキャッシュする.
+ * <p>
+ * プロキシクラスはインタフェースごとに一度だけ作成するため、
+ * プロキシの作成は、インスタンスの生成だけになる。
+ * </p>
+ */
+final class ProxyConstructorCache {
+    /** インタフェースごとのプロキシクラスのコンストラクタ */
+    private static final ClassValue<Constructor<?>> CONSTRUCTORS =
+            new ClassValue<Constructor<?>>() {
+                @Override
+                protected Constructor<?> computeValue(final Class<?> type) {
+                    Class<?> proxyClass = Proxy.getProxyClass(
+                            type.getClassLoader(), type);
+                    try {
+                        return proxyClass.getConstructor(
+                                InvocationHandler.class);
+                    } catch (NoSuchMethodException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            };
+
+    /** ユーティリティクラスであるため、インスタンスを生成しない. */
+    private ProxyConstructorCache() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * インタフェースのプロキシを作成する.
+     *
+     * @param type インタフェース
+     * @param handler メソッド呼び出しを処理するハンドラー
+     * @return プロキシ
+     */
+    public static Object newProxy(
+            final Class<?> type, final InvocationHandler handler) {
+        if (!type.isInterface()) {
+            throw new IllegalArgumentException(
+                    type.getName() + " is not an interface");
+        }
+        try {
+            return CONSTRUCTORS.get(type).newInstance(handler);
+        } catch (InstantiationException
+                | IllegalAccessException
+                | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.seasar.framework.unit;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * テストクラスとアプリケーションのクラスを、親より先に自身から読み込むクラスローダー.
+ * <p>
+ * {@link TestDaemon} は実行の要求ごとにこのクラスローダーを作成し、
+ * 変更されたクラスやリソースを読み込み直す。
+ * JUnit と Seasar2 のクラスは常に親から読み込み、
+ * JVM で共有している状態を使い続ける。
+ * </p>
+ */
+class ReloadingClassLoader extends URLClassLoader {
+    /** 常に親から読み込むパッケージ */
+    private static final String[] PARENT_FIRST_PACKAGES = {
+        "java.", "javax.", "sun.", "org.junit.", "junit.", "org.hamcrest.",
+        "org.seasar.framework.", "org.seasar.extension.",
+        "org.aopalliance."
+    };
+
+    /**
+     * クラスローダーを作成する.
+     *
+     * @param urls 読み込み直すクラスやリソースのディレクトリ
+     * @param parent 親のクラスローダー
+     */
+    public ReloadingClassLoader(final URL[] urls, final ClassLoader parent) {
+        super(urls, parent);
+    }
+
+    @Override
+    protected Class<?> loadClass(final String name, final boolean resolve)
+            throws ClassNotFoundException {
+        if (isParentFirst(name)) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> clazz = findLoadedClass(name);
+            if (clazz == null) {
+                try {
+                    clazz = findClass(name);
+                } catch (ClassNotFoundException e) {
+                    return super.loadClass(name, resolve);
+                }
+            }
+            if (resolve) {
+                resolveClass(clazz);
+            }
+            return clazz;
+        }
+    }
+
+    @Override
+    public URL getResource(final String name) {
+        URL url = findResource(name);
+        if (url != null) {
+            return url;
+        }
+        return super.getResource(name);
+    }
+
+    /**
+     * 常に親から読み込むクラスか否かを返す.
+     *
+     * @param name クラス名
+     * @return 親から読み込む場合、{@code true}
+     */
+    private static boolean isParentFirst(final String name) {
+        for (final String prefix : PARENT_FIRST_PACKAGES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,337 @@
+package org.seasar.framework.unit;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.runners.model.FrameworkMethod;
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.container.factory.S2ContainerFactory;
+import org.seasar.framework.container.impl.S2ContainerBehavior;
+import org.seasar.framework.unit.impl.ConventionTestIntrospector;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * これから実行するテストメソッドのルートコンテナを、事前に構築しておくプール.
+ * <p>
+ * テストメソッドの実行順に、最大で {@code size} 個のルートコンテナを
+ * バックグラウンドのスレッドで構築する。
+ * テストメソッドがルートコンテナを取り出すと、次のテストメソッドの
+ * ルートコンテナの構築を開始する。
+ * </p>
+ * <p>
+ * コンテナの初期化は、テストメソッドのテストコンテキストで実行する必要があるため、
+ * プールでは dicon の読み込みまでを行う。
+ * </p>
+ * <p>
+ * dicon の読み込みは Seasar2 のグローバルな状態を参照するため、
+ * バックグラウンドのスレッドは {@link #GLOBAL_LOCK} を取得してから構築する。
+ * テストのスレッドはテストクラスの実行中このロックを保持し、
+ * WARM deploy を使用しないテストメソッドの本体を実行している間だけ解放する。
+ * </p>
+ * <p>
+ * WARM deploy を使用するテストメソッドのコンテナは、
+ * {@link S2ContainerFactory} の設定がテストメソッドごとに変わるため構築しない。
+ * また、構築を開始する時点の {@link S2ContainerFactory} の
+ * コンフィグレーションS2コンテナと {@link S2ContainerBehavior} のプロバイダが
+ * デフォルトの設定でない場合は構築せず、テストのスレッドで構築させる。
+ * </p>
+ */
+class RootContainerPool {
+    /** プールのサイズを指定するシステムプロパティのキー */
+    public static final String POOL_SIZE_KEY =
+            "org.seasar.framework.unit.containerPoolSize";
+
+    /** 構築中のコンテナを待つ時間の上限(秒) */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+
+    /**
+     * Seasar2 のグローバルな状態を、テストのスレッドとコンテナを構築するスレッドで
+     * 排他するロック.
+     */
+    private static final ReentrantLock GLOBAL_LOCK = new ReentrantLock();
+
+    /** WARM deploy を使用しない場合のコンフィグレーションS2コンテナのパス */
+    private static final String DEFAULT_CONFIG_PATH = System.getProperty(
+            S2ContainerFactory.FACTORY_CONFIG_KEY,
+            S2ContainerFactory.FACTORY_CONFIG_PATH);
+
+    /** テストクラス */
+    private final Class<?> _testClass;
+    /** これからルートコンテナを構築するテストメソッド */
+    private final Iterator<FrameworkMethod> _upcoming;
+    /** 構築中または構築済みのルートコンテナ */
+    private final Map<Method, Future<S2Container>> _prepared =
+            CollectionsUtil.newHashMap();
+    /** プールのサイズ */
+    private final int _size;
+
+    /** コンテナを構築するスレッド */
+    private ExecutorService _executor = null;
+    /** コンテナを構築する際のクラスローダー */
+    private ClassLoader _classLoader = null;
+
+    /**
+     * ルートコンテナのプールを作成する.
+     * <p>
+     * WARM deploy を使用するテストメソッドは、プールの対象にしない。
+     * </p>
+     *
+     * @param testClass テストクラス
+     * @param methods 実行するテストメソッド
+     * @param size プールのサイズ
+     */
+    public RootContainerPool(
+            final Class<?> testClass,
+            final List<FrameworkMethod> methods,
+            final int size) {
+        ConventionTestIntrospector introspector =
+                ConventionIntrospectorRepository.get();
+        List<FrameworkMethod> upcoming = CollectionsUtil.newArrayList();
+        for (final FrameworkMethod method : methods) {
+            if (!introspector.needsWarmDeploy(
+                    testClass, method.getMethod())) {
+                upcoming.add(method);
+            }
+        }
+        _testClass = testClass;
+        _upcoming = upcoming.iterator();
+        _size = size;
+    }
+
+    /**
+     * システムプロパティで指定されたプールのサイズを返す.
+     *
+     * @return プールのサイズ、プールを使用しない場合は {@code 0}
+     */
+    public static int getConfiguredSize() {
+        return Integer.getInteger(POOL_SIZE_KEY, 0);
+    }
+
+    /**
+     * テストのスレッドで、Seasar2 のグローバルな状態を排他するロックを取得する.
+     */
+    static void lockGlobalState() {
+        GLOBAL_LOCK.lock();
+    }
+
+    /**
+     * 現在のスレッドが保持している、Seasar2 のグローバルな状態を排他するロックを
+     * すべて解放する.
+     *
+     * @return 解放した回数
+     */
+    static int unlockGlobalState() {
+        int holds = 0;
+        while (GLOBAL_LOCK.isHeldByCurrentThread()) {
+            GLOBAL_LOCK.unlock();
+            ++holds;
+        }
+        return holds;
+    }
+
+    /**
+     * {@link #unlockGlobalState()} で解放したロックを取得し直す.
+     *
+     * @param holds 解放した回数
+     */
+    static void relockGlobalState(final int holds) {
+        for (int i = 0; i < holds; ++i) {
+            GLOBAL_LOCK.lock();
+        }
+    }
+
+    /**
+     * Seasar2 のグローバルな状態が、デフォルトの設定か否かを返す.
+     * <p>
+     * コンフィグレーションS2コンテナが未設定またはデフォルトの dicon で、
+     * {@link S2ContainerBehavior} のプロバイダが
+     * {@link S2ContainerBehavior.DefaultProvider} の場合にデフォルトとみなす。
+     * </p>
+     *
+     * @return デフォルトの設定の場合、{@code true}
+     */
+    static boolean isDefaultConfiguration() {
+        S2Container configuration =
+                S2ContainerFactory.getConfigurationContainer();
+        if (configuration != null
+                && !DEFAULT_CONFIG_PATH.equals(configuration.getPath())) {
+            return false;
+        }
+        return S2ContainerBehavior.getProvider().getClass()
+                == S2ContainerBehavior.DefaultProvider.class;
+    }
+
+    /**
+     * ルートコンテナの構築を開始する.
+     *
+     * @param classLoader コンテナを構築する際のクラスローダー
+     */
+    public synchronized void start(final ClassLoader classLoader) {
+        _classLoader = classLoader;
+        int threads = Math.max(1, Math.min(_size,
+                Runtime.getRuntime().availableProcessors() - 1));
+        _executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                Thread thread = new Thread(r, "s2junit4-container-pool");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        for (int i = 0; i < _size; i++) {
+            prepareNext();
+        }
+    }
+
+    /**
+     * テストメソッドのルートコンテナを取り出す.
+     * <p>
+     * 構築が終わっていない場合は、ロックを解放して構築の完了を待つ。
+     * </p>
+     *
+     * @param method テストメソッド
+     * @return ルートコンテナ、事前に構築されていない場合や、
+     *          デフォルトの設定でないため構築しなかった場合、
+     *          構築に失敗した場合は {@code null}
+     */
+    public S2Container checkout(final Method method) {
+        Future<S2Container> future;
+        synchronized (this) {
+            future = _prepared.remove(method);
+            prepareNext();
+        }
+        if (future == null) {
+            return null;
+        }
+        int holds = future.isDone() ? 0 : unlockGlobalState();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // テストメソッドのスレッドで構築し直し、例外を報告する
+            return null;
+        } finally {
+            relockGlobalState(holds);
+        }
+    }
+
+    /**
+     * ルートコンテナの構築を終了し、取り出されなかったコンテナを破棄する.
+     * <p>
+     * 構築を開始していないコンテナは取り消し、構築中のコンテナは
+     * {@value #SHUTDOWN_TIMEOUT_SECONDS} 秒まで完了を待つ。
+     * 呼び出す前に、テストのスレッドはロックを解放しておく必要がある。
+     * </p>
+     *
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    public void shutdown() throws InterruptedException {
+        ExecutorService executor;
+        synchronized (this) {
+            if (_executor == null) {
+                return;
+            }
+            executor = _executor;
+            _executor = null;
+            for (final Future<S2Container> future : _prepared.values()) {
+                future.cancel(false);
+            }
+            executor.shutdown();
+        }
+        if (!executor.awaitTermination(
+                SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        synchronized (this) {
+            for (final Future<S2Container> future : _prepared.values()) {
+                if (!future.isDone()) {
+                    future.cancel(true);
+                    continue;
+                }
+                if (future.isCancelled()) {
+                    continue;
+                }
+                try {
+                    S2Container container = future.get();
+                    if (container != null) {
+                        container.destroy();
+                    }
+                } catch (ExecutionException e) {
+                    continue;
+                }
+            }
+            _prepared.clear();
+        }
+    }
+
+    /**
+     * 次のテストメソッドのルートコンテナの構築を開始する.
+     */
+    private void prepareNext() {
+        if (_executor == null || _executor.isShutdown()) {
+            return;
+        }
+        if (!_upcoming.hasNext()) {
+            return;
+        }
+        final Method method = _upcoming.next().getMethod();
+        _prepared.put(method, _executor.submit(new BuildTask(method)));
+    }
+
+    /**
+     * ルートコンテナを構築するタスク.
+     * <p>
+     * Seasar2 のグローバルな状態がデフォルトの設定でない場合は構築せず、
+     * {@code null} を返す。
+     * </p>
+     */
+    private final class BuildTask implements Callable<S2Container> {
+        /** テストメソッド */
+        private final Method _method;
+
+        /**
+         * タスクを作成する.
+         *
+         * @param method テストメソッド
+         */
+        BuildTask(final Method method) {
+            _method = method;
+        }
+
+        @Override
+        public S2Container call() {
+            Thread thread = Thread.currentThread();
+            ClassLoader original = thread.getContextClassLoader();
+            thread.setContextClassLoader(_classLoader);
+            GLOBAL_LOCK.lock();
+            try {
+                if (!isDefaultConfiguration()) {
+                    return null;
+                }
+                TestPhaseTimer timer = TestPhaseTimer.start(
+                        TestPhase.ROOT_CONTAINER_PREBUILD);
+                try {
+                    return RootContainerStatement.buildRootContainer(
+                            _testClass, _method);
+                } finally {
+                    timer.stop(_testClass, _method);
+                }
+            } finally {
+                GLOBAL_LOCK.unlock();
+                thread.setContextClassLoader(original);
+            }
+        }
+    }
+}
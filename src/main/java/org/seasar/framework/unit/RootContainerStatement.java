@@ -6,7 +6,6 @@ import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.Statement;
 import org.junit.runners.model.TestClass;
 import org.seasar.framework.container.S2Container;
-import org.seasar.framework.container.factory.S2ContainerFactory;
 import org.seasar.framework.container.factory.SingletonS2ContainerFactory;
 import org.seasar.framework.unit.impl.ConventionTestIntrospector;
 import org.seasar.framework.util.StringUtil;
@@ -27,6 +26,8 @@ class RootContainerStatement extends Statement {
     private final Class<?> _testClass;
     /** テストメソッド */
     private final Method _method;
+    /** 事前に作成したルートコンテナのプール */
+    private final RootContainerPool _pool;
 
     /**
      * ルートコンテナを作成する statement を作成する.
@@ -39,9 +40,26 @@ class RootContainerStatement extends Statement {
             final Statement statement,
             final TestClass clazz,
             final FrameworkMethod method) {
+        this(statement, clazz, method, null);
+    }
+
+    /**
+     * ルートコンテナをプールから取得する statement を作成する.
+     *
+     * @param statement 元のstatement
+     * @param clazz  テストクラス
+     * @param method テストメソッド
+     * @param pool   ルートコンテナのプール、使用しない場合は {@code null}
+     */
+    public RootContainerStatement(
+            final Statement statement,
+            final TestClass clazz,
+            final FrameworkMethod method,
+            final RootContainerPool pool) {
         _statement = statement;
         _testClass = clazz.getJavaClass();
         _method = method.getMethod();
+        _pool = pool;
     }
 
     @Override
@@ -56,17 +74,42 @@ class RootContainerStatement extends Statement {
      * @return ルートのコンテナ
      */
     protected S2Container createRootContainer() {
+        TestPhaseTimer timer = TestPhaseTimer.start(TestPhase.ROOT_CONTAINER);
+        S2Container container = null;
+        if (_pool != null) {
+            container = _pool.checkout(_method);
+        }
+        if (container == null) {
+            container = buildRootContainer(_testClass, _method);
+        }
+        SingletonS2ContainerFactory.setContainer(container);
+        timer.stop(_testClass, _method);
+        return container;
+    }
+
+    /**
+     * dicon を読み込んでルートのコンテナを構築します.
+     * <p>
+     * 構築したコンテナはまだ初期化されていません。
+     * dicon の定義は {@link ContainerDefinitionCache} にキャッシュします。
+     * </p>
+     *
+     * @param testClass テストクラス
+     * @param method テストメソッド
+     * @return ルートのコンテナ
+     */
+    static S2Container buildRootContainer(
+            final Class<?> testClass, final Method method) {
         S2Container container = null;
         ConventionTestIntrospector introspector =
                 ConventionIntrospectorRepository.get();
-        String rootDicon = introspector.getRootDicon(_testClass, _method);
+        String rootDicon = introspector.getRootDicon(testClass, method);
         if (StringUtil.isEmpty(rootDicon)) {
-            container = S2ContainerFactory.create(_s2junit4Path);
+            container = ContainerDefinitionCache.create(_s2junit4Path);
         } else {
-            container = S2ContainerFactory.create(rootDicon);
-            S2ContainerFactory.include(container, _s2junit4Path);
+            container = ContainerDefinitionCache.create(rootDicon);
+            ContainerDefinitionCache.include(container, _s2junit4Path);
         }
-        SingletonS2ContainerFactory.setContainer(container);
         return container;
     }
 
@@ -0,0 +1,494 @@
+package org.seasar.framework.unit;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import org.seasar.framework.util.tiger.CollectionsUtil;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.LocatorImpl;
+
+/**
+ * XML を解析した際に、パーサーがハンドラーに通知した SAX のイベント.
+ * <p>
+ * 同じ XML を解析する代わりに、記録したイベントを同じ順序で
+ * 別のハンドラーに通知する。
+ * {@link Locator} の行と列も、イベントごとに解析した時点の値を再現する。
+ * </p>
+ * <p>
+ * イベントは {@link #write(DataOutput)} で書き出し、
+ * {@link #read(DataInput)} で読み込める。
+ * </p>
+ */
+final class SaxDocument {
+    /** {@code startDocument} */
+    private static final byte START_DOCUMENT = 1;
+    /** {@code endDocument} */
+    private static final byte END_DOCUMENT = 2;
+    /** {@code startPrefixMapping} */
+    private static final byte START_PREFIX_MAPPING = 3;
+    /** {@code endPrefixMapping} */
+    private static final byte END_PREFIX_MAPPING = 4;
+    /** {@code startElement} */
+    private static final byte START_ELEMENT = 5;
+    /** {@code endElement} */
+    private static final byte END_ELEMENT = 6;
+    /** {@code characters} */
+    private static final byte CHARACTERS = 7;
+    /** {@code ignorableWhitespace} */
+    private static final byte IGNORABLE_WHITESPACE = 8;
+    /** {@code processingInstruction} */
+    private static final byte PROCESSING_INSTRUCTION = 9;
+    /** {@code skippedEntity} */
+    private static final byte SKIPPED_ENTITY = 10;
+    /** {@code notationDecl} */
+    private static final byte NOTATION_DECL = 11;
+    /** {@code unparsedEntityDecl} */
+    private static final byte UNPARSED_ENTITY_DECL = 12;
+
+    /** 属性ごとの値の数 */
+    private static final int ATTRIBUTE_VALUES = 5;
+
+    /** 書き出す形式のバージョン */
+    private static final int FORMAT_VERSION = 1;
+
+    /** パーサーが報告した XML の公開識別子 */
+    private final String _publicId;
+    /** パーサーが報告した XML のシステム識別子 */
+    private final String _systemId;
+    /** 記録したイベント */
+    private final List<Event> _events;
+
+    /**
+     * 記録したイベントから作成する.
+     *
+     * @param publicId パーサーが報告した XML の公開識別子
+     * @param systemId パーサーが報告した XML のシステム識別子
+     * @param events 記録したイベント
+     */
+    SaxDocument(
+            final String publicId,
+            final String systemId,
+            final List<Event> events) {
+        _publicId = publicId;
+        _systemId = systemId;
+        _events = Collections.unmodifiableList(events);
+    }
+
+    /**
+     * 記録したイベントをハンドラーに通知する.
+     *
+     * @param handler ハンドラー
+     * @throws SAXException ハンドラーが例外を発生させた場合
+     */
+    void replay(final DefaultHandler handler) throws SAXException {
+        LocatorImpl locator = new LocatorImpl();
+        locator.setPublicId(_publicId);
+        locator.setSystemId(_systemId);
+        handler.setDocumentLocator(locator);
+        for (final Event event : _events) {
+            locator.setLineNumber(event._line);
+            locator.setColumnNumber(event._column);
+            event.dispatch(handler);
+        }
+    }
+
+    /**
+     * 記録したイベントを書き出す.
+     *
+     * @param out 出力先
+     * @throws IOException 書き出しに失敗した場合
+     */
+    void write(final DataOutput out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, _publicId);
+        writeString(out, _systemId);
+        out.writeInt(_events.size());
+        for (final Event event : _events) {
+            out.writeByte(event._type);
+            out.writeInt(event._line);
+            out.writeInt(event._column);
+            out.writeInt(event._values.length);
+            for (final String value : event._values) {
+                writeString(out, value);
+            }
+        }
+    }
+
+    /**
+     * {@link #write(DataOutput)} で書き出したイベントを読み込む.
+     *
+     * @param in 入力元
+     * @return 読み込んだイベント
+     * @throws IOException 読み込みに失敗した場合や、形式が異なる場合
+     */
+    static SaxDocument read(final DataInput in) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("unsupported format: " + version);
+        }
+        String publicId = readString(in);
+        String systemId = readString(in);
+        int size = in.readInt();
+        List<Event> events = CollectionsUtil.newArrayList();
+        for (int i = 0; i < size; ++i) {
+            byte type = in.readByte();
+            if (type < START_DOCUMENT || type > UNPARSED_ENTITY_DECL) {
+                throw new IOException("unknown event: " + type);
+            }
+            int line = in.readInt();
+            int column = in.readInt();
+            String[] values = new String[in.readInt()];
+            for (int j = 0; j < values.length; ++j) {
+                values[j] = readString(in);
+            }
+            events.add(new Event(type, line, column, values));
+        }
+        return new SaxDocument(publicId, systemId, events);
+    }
+
+    /**
+     * {@code null} を含む文字列を書き出す.
+     * <p>
+     * {@link DataOutput#writeUTF(String)} は 64KB を超える文字列を
+     * 書き出せないため、長さと UTF-8 のバイト列を書き出す。
+     * </p>
+     *
+     * @param out 出力先
+     * @param value 文字列
+     * @throws IOException 書き出しに失敗した場合
+     */
+    private static void writeString(final DataOutput out, final String value)
+            throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * {@link #writeString(DataOutput, String)} で書き出した文字列を読み込む.
+     *
+     * @param in 入力元
+     * @return 文字列
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private static String readString(final DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * SAX のイベント.
+     */
+    static final class Event {
+        /** イベントの種類 */
+        private final byte _type;
+        /** イベントが発生した行 */
+        private final int _line;
+        /** イベントが発生した列 */
+        private final int _column;
+        /** イベントの引数 */
+        private final String[] _values;
+
+        /**
+         * イベントを作成する.
+         *
+         * @param type イベントの種類
+         * @param line イベントが発生した行
+         * @param column イベントが発生した列
+         * @param values イベントの引数
+         */
+        Event(final byte type, final int line, final int column,
+                final String... values) {
+            _type = type;
+            _line = line;
+            _column = column;
+            _values = values;
+        }
+
+        /**
+         * イベントをハンドラーに通知する.
+         *
+         * @param handler ハンドラー
+         * @throws SAXException ハンドラーが例外を発生させた場合
+         */
+        void dispatch(final DefaultHandler handler) throws SAXException {
+            String[] v = _values;
+            switch (_type) {
+            case START_DOCUMENT:
+                handler.startDocument();
+                break;
+            case END_DOCUMENT:
+                handler.endDocument();
+                break;
+            case START_PREFIX_MAPPING:
+                handler.startPrefixMapping(v[0], v[1]);
+                break;
+            case END_PREFIX_MAPPING:
+                handler.endPrefixMapping(v[0]);
+                break;
+            case START_ELEMENT:
+                handler.startElement(v[0], v[1], v[2], toAttributes(v));
+                break;
+            case END_ELEMENT:
+                handler.endElement(v[0], v[1], v[2]);
+                break;
+            case CHARACTERS:
+                char[] text = v[0].toCharArray();
+                handler.characters(text, 0, text.length);
+                break;
+            case IGNORABLE_WHITESPACE:
+                char[] space = v[0].toCharArray();
+                handler.ignorableWhitespace(space, 0, space.length);
+                break;
+            case PROCESSING_INSTRUCTION:
+                handler.processingInstruction(v[0], v[1]);
+                break;
+            case SKIPPED_ENTITY:
+                handler.skippedEntity(v[0]);
+                break;
+            case NOTATION_DECL:
+                handler.notationDecl(v[0], v[1], v[2]);
+                break;
+            case UNPARSED_ENTITY_DECL:
+                handler.unparsedEntityDecl(v[0], v[1], v[2], v[3]);
+                break;
+            default:
+                throw new IllegalStateException("unknown event: " + _type);
+            }
+        }
+
+        /**
+         * {@code startElement} の引数から属性を作成する.
+         *
+         * @param values {@code startElement} の引数
+         * @return 属性
+         */
+        private static Attributes toAttributes(final String[] values) {
+            AttributesImpl attributes = new AttributesImpl();
+            for (int i = 3; i < values.length; i += ATTRIBUTE_VALUES) {
+                attributes.addAttribute(values[i], values[i + 1],
+                        values[i + 2], values[i + 3], values[i + 4]);
+            }
+            return attributes;
+        }
+    }
+
+    /**
+     * パーサーが通知したイベントをハンドラーに渡しながら記録する.
+     * <p>
+     * 警告やエラーが通知された場合は、ハンドラーがエラーを無視しても
+     * 同じ結果を再現できないため、記録を使用しない。
+     * </p>
+     */
+    static final class Recorder extends DefaultHandler {
+        /** イベントを渡すハンドラー */
+        private final DefaultHandler _handler;
+        /** 記録したイベント */
+        private final List<Event> _events = CollectionsUtil.newArrayList();
+        /** パーサーの位置 */
+        private Locator _locator = null;
+        /** パーサーが報告した XML の公開識別子 */
+        private String _publicId = null;
+        /** パーサーが報告した XML のシステム識別子 */
+        private String _systemId = null;
+        /** 記録を使用できるか否か */
+        private boolean _reusable = true;
+
+        /**
+         * イベントを記録するハンドラーを作成する.
+         *
+         * @param handler イベントを渡すハンドラー
+         */
+        Recorder(final DefaultHandler handler) {
+            _handler = handler;
+        }
+
+        /**
+         * 記録したイベントを返す.
+         *
+         * @return 記録したイベント、記録を使用できない場合は {@code null}
+         */
+        SaxDocument getDocument() {
+            if (!_reusable) {
+                return null;
+            }
+            return new SaxDocument(_publicId, _systemId, _events);
+        }
+
+        /**
+         * イベントを記録する.
+         *
+         * @param type イベントの種類
+         * @param values イベントの引数
+         */
+        private void record(final byte type, final String... values) {
+            int line = _locator == null ? -1 : _locator.getLineNumber();
+            int column = _locator == null ? -1 : _locator.getColumnNumber();
+            _events.add(new Event(type, line, column, values));
+        }
+
+        @Override
+        public InputSource resolveEntity(
+                final String publicId, final String systemId)
+                throws IOException, SAXException {
+            return _handler.resolveEntity(publicId, systemId);
+        }
+
+        @Override
+        public void notationDecl(
+                final String name,
+                final String publicId,
+                final String systemId) throws SAXException {
+            record(NOTATION_DECL, name, publicId, systemId);
+            _handler.notationDecl(name, publicId, systemId);
+        }
+
+        @Override
+        public void unparsedEntityDecl(
+                final String name,
+                final String publicId,
+                final String systemId,
+                final String notationName) throws SAXException {
+            record(UNPARSED_ENTITY_DECL,
+                    name, publicId, systemId, notationName);
+            _handler.unparsedEntityDecl(
+                    name, publicId, systemId, notationName);
+        }
+
+        @Override
+        public void setDocumentLocator(final Locator locator) {
+            _locator = locator;
+            _handler.setDocumentLocator(locator);
+        }
+
+        @Override
+        public void startDocument() throws SAXException {
+            if (_locator != null) {
+                _publicId = _locator.getPublicId();
+                _systemId = _locator.getSystemId();
+            }
+            record(START_DOCUMENT);
+            _handler.startDocument();
+        }
+
+        @Override
+        public void endDocument() throws SAXException {
+            record(END_DOCUMENT);
+            _handler.endDocument();
+        }
+
+        @Override
+        public void startPrefixMapping(final String prefix, final String uri)
+                throws SAXException {
+            record(START_PREFIX_MAPPING, prefix, uri);
+            _handler.startPrefixMapping(prefix, uri);
+        }
+
+        @Override
+        public void endPrefixMapping(final String prefix)
+                throws SAXException {
+            record(END_PREFIX_MAPPING, prefix);
+            _handler.endPrefixMapping(prefix);
+        }
+
+        @Override
+        public void startElement(
+                final String uri,
+                final String localName,
+                final String qName,
+                final Attributes attributes) throws SAXException {
+            String[] values = new String[3
+                    + attributes.getLength() * ATTRIBUTE_VALUES];
+            values[0] = uri;
+            values[1] = localName;
+            values[2] = qName;
+            for (int i = 0; i < attributes.getLength(); ++i) {
+                int offset = 3 + i * ATTRIBUTE_VALUES;
+                values[offset] = attributes.getURI(i);
+                values[offset + 1] = attributes.getLocalName(i);
+                values[offset + 2] = attributes.getQName(i);
+                values[offset + 3] = attributes.getType(i);
+                values[offset + 4] = attributes.getValue(i);
+            }
+            record(START_ELEMENT, values);
+            _handler.startElement(uri, localName, qName, attributes);
+        }
+
+        @Override
+        public void endElement(
+                final String uri,
+                final String localName,
+                final String qName) throws SAXException {
+            record(END_ELEMENT, uri, localName, qName);
+            _handler.endElement(uri, localName, qName);
+        }
+
+        @Override
+        public void characters(
+                final char[] ch, final int start, final int length)
+                throws SAXException {
+            record(CHARACTERS, new String(ch, start, length));
+            _handler.characters(ch, start, length);
+        }
+
+        @Override
+        public void ignorableWhitespace(
+                final char[] ch, final int start, final int length)
+                throws SAXException {
+            record(IGNORABLE_WHITESPACE, new String(ch, start, length));
+            _handler.ignorableWhitespace(ch, start, length);
+        }
+
+        @Override
+        public void processingInstruction(
+                final String target, final String data)
+                throws SAXException {
+            record(PROCESSING_INSTRUCTION, target, data);
+            _handler.processingInstruction(target, data);
+        }
+
+        @Override
+        public void skippedEntity(final String name) throws SAXException {
+            record(SKIPPED_ENTITY, name);
+            _handler.skippedEntity(name);
+        }
+
+        @Override
+        public void warning(final SAXParseException e) throws SAXException {
+            _reusable = false;
+            _handler.warning(e);
+        }
+
+        @Override
+        public void error(final SAXParseException e) throws SAXException {
+            _reusable = false;
+            _handler.error(e);
+        }
+
+        @Override
+        public void fatalError(final SAXParseException e)
+                throws SAXException {
+            _reusable = false;
+            _handler.fatalError(e);
+        }
+    }
+}
@@ -1,16 +1,35 @@
 package org.seasar.framework.unit;
 
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.junit.Ignore;
+import org.junit.Test;
 import org.junit.internal.runners.model.ReflectiveCallable;
 import org.junit.internal.runners.statements.Fail;
 import org.junit.rules.RunRules;
 import org.junit.rules.TestRule;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.manipulation.NoTestsRemainException;
+import org.junit.runner.manipulation.Sorter;
 import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.BlockJUnit4ClassRunner;
 import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerScheduler;
 import org.junit.runners.model.Statement;
+import org.seasar.framework.unit.annotation.IsolatedClassLoader;
+import org.seasar.framework.unit.annotation.Mock;
+import org.seasar.framework.unit.annotation.MockInterface;
+import org.seasar.framework.unit.annotation.Mocks;
+import org.seasar.framework.unit.annotation.SavepointIsolation;
+import org.seasar.framework.unit.annotation.SharedContainer;
+import org.seasar.framework.unit.annotation.SynchronousTeardown;
+import org.seasar.framework.unit.impl.ConventionTestIntrospector;
+import org.seasar.framework.util.tiger.CollectionsUtil;
 
 /**
  * S2JUnit4を実行するための{@link org.junit.runner.Runner}です。
@@ -28,6 +47,49 @@ import org.junit.runners.model.Statement;
  *
  */
 public class Seasar24 extends BlockJUnit4ClassRunner {
+    /**
+     * テストメソッドをコンテナの構成ごとにまとめて実行するか否かを指定する
+     * システムプロパティのキー.
+     */
+    public static final String SORT_BY_CONTAINER_KEY =
+            "org.seasar.framework.unit.sortByContainerConfiguration";
+    /**
+     * テストクラスを他のテストクラスと同時に実行しないようにするか否かを指定する
+     * システムプロパティのキー.
+     */
+    public static final String SERIALIZE_KEY =
+            "org.seasar.framework.unit.serializeTestClasses";
+
+    /** 適用されたフィルター */
+    private Filter _filter = null;
+    /** 適用された順に並べた、テストメソッドの並べ替え */
+    private final List<Sorter> _sorters = CollectionsUtil.newArrayList();
+    /** 事前に作成したルートコンテナのプール */
+    private RootContainerPool _containerPool = null;
+    /** テストクラスで共有している S2 コンテナの状態 */
+    private final SharedContainerState _sharedState =
+            new SharedContainerState();
+    /** テストクラスで共有するトランザクション */
+    private ClassTransaction _classTransaction = null;
+    /** テストメソッドで共有するクラスローダー */
+    private SharedClassLoader _sharedClassLoader = null;
+    /** コンテナをバックグラウンドで破棄する処理 */
+    private AsyncTeardown _asyncTeardown = null;
+    /** クラスローダーを共有する範囲 */
+    private final ClassLoaderScope _classLoaderScope =
+            ClassLoaderScope.getConfiguredScope();
+
+    /**
+     * テストクラスごとに呼び出す必要がある {@link Seasar2.Configurator}.
+     * <p>
+     * コンフィグレーションS2コンテナは JVM で共有されるため、
+     * {@link Seasar2.Configurator} は通常、コンテナを構築した際に一度だけ呼び出される。
+     * テストクラスごとに設定を行う必要がある場合は、このインタフェースを実装する。
+     * </p>
+     */
+    public interface PerClassConfigurator extends Seasar2.Configurator {
+    }
+
     /**
      * テストクラス {@code klass} を実行するためのテストランナーを作成する.
      *
@@ -38,13 +100,200 @@ public class Seasar24 extends BlockJUnit4ClassRunner {
         super(klass);
     }
 
+    /**
+     * テストメソッドを返す.
+     * <p>
+     * システムプロパティ {@value #SORT_BY_CONTAINER_KEY} が {@code true} の場合は、
+     * ルートの dicon や WARM deploy などのコンテナの構成が同じテストメソッドが
+     * 連続するように並べ替える。
+     * 構成ごとのグループは最初に現れた順に、グループ内は元の順に並べる。
+     * </p>
+     *
+     * @return テストメソッド
+     */
+    @Override
+    protected List<FrameworkMethod> computeTestMethods() {
+        List<FrameworkMethod> methods = super.computeTestMethods();
+        if (!Boolean.getBoolean(SORT_BY_CONTAINER_KEY)) {
+            return methods;
+        }
+
+        Class<?> testClass = getTestClass().getJavaClass();
+        Map<ContainerSignature, List<FrameworkMethod>> groups =
+                new LinkedHashMap<>();
+        for (final FrameworkMethod method : methods) {
+            ContainerSignature signature =
+                    ContainerSignature.of(testClass, method.getMethod());
+            List<FrameworkMethod> group = groups.get(signature);
+            if (group == null) {
+                group = CollectionsUtil.newArrayList();
+                groups.put(signature, group);
+            }
+            group.add(method);
+        }
+
+        List<FrameworkMethod> sorted = CollectionsUtil.newArrayList();
+        for (final List<FrameworkMethod> group : groups.values()) {
+            sorted.addAll(group);
+        }
+        return sorted;
+    }
+
+    /**
+     * テストクラスを検証する.
+     * <p>
+     * テストクラスで S2 コンテナを共有する場合は、テストメソッドごとに
+     * コンテナにモックを登録する {@link Mock}、{@link Mocks}、
+     * {@link MockInterface} は使用できない。
+     * {@link SavepointIsolation} を指定した場合は、別のスレッドで実行される
+     * テストメソッドがトランザクションに参加できないため、
+     * {@link Test#timeout()} は使用できない。
+     * </p>
+     *
+     * @param errors 検証のエラー
+     */
+    @Override
+    protected void collectInitializationErrors(final List<Throwable> errors) {
+        super.collectInitializationErrors(errors);
+        if (!isClassScopedContainer()) {
+            return;
+        }
+        Class<?> testClass = getTestClass().getJavaClass();
+        for (final FrameworkMethod method : getChildren()) {
+            Test test = method.getAnnotation(Test.class);
+            if (isSavepointIsolation() && test != null && test.timeout() > 0) {
+                errors.add(new Exception("Method " + method.getName()
+                        + " cannot use a timeout with @SavepointIsolation"));
+            }
+            if (method.getAnnotation(Mock.class) != null
+                    || method.getAnnotation(Mocks.class) != null) {
+                errors.add(new Exception("Method " + method.getName()
+                        + " cannot use @Mock with a shared container"));
+            }
+        }
+        if (MockInterfacePlan.get(testClass).hasMocks()) {
+            errors.add(new Exception("Class " + testClass.getName()
+                    + " cannot use @MockInterface with a shared container"));
+        }
+    }
+
+    @Override
+    public void filter(final Filter filter) throws NoTestsRemainException {
+        super.filter(filter);
+        _filter = _filter == null ? filter : _filter.intersect(filter);
+    }
+
+    @Override
+    public void sort(final Sorter sorter) {
+        super.sort(sorter);
+        _sorters.add(sorter);
+    }
+
+    /**
+     * フィルターと並べ替えを適用した、実行するテストメソッドを返す.
+     *
+     * @return 実行するテストメソッド
+     */
+    protected List<FrameworkMethod> getRunnableChildren() {
+        List<FrameworkMethod> children = CollectionsUtil.newArrayList();
+        for (final FrameworkMethod method : getChildren()) {
+            if (_filter == null || _filter.shouldRun(describeChild(method))) {
+                children.add(method);
+            }
+        }
+        for (final Sorter sorter : _sorters) {
+            Collections.sort(children, new Comparator<FrameworkMethod>() {
+                @Override
+                public int compare(
+                        final FrameworkMethod o1, final FrameworkMethod o2) {
+                    return sorter.compare(describeChild(o1), describeChild(o2));
+                }
+            });
+        }
+        return children;
+    }
+
+    /**
+     * テストメソッドを実行する statement を返す.
+     * <p>
+     * テストクラスで S2 コンテナを共有する場合は、共有するコンテナを作成して
+     * テストメソッドを実行する。
+     * </p>
+     *
+     * @param notifier 通知先
+     * @return テストメソッドを実行する statement
+     */
+    @Override
+    protected Statement childrenInvoker(final RunNotifier notifier) {
+        if (!isClassScopedContainer()) {
+            return super.childrenInvoker(notifier);
+        }
+        return new SharedContainerStatement(
+                this, getRunnableChildren(), notifier, _sharedState);
+    }
+
     @Override
     protected Statement classBlock(final RunNotifier notifier) {
         Statement statement = super.classBlock(notifier);
+        if (!isClassScopedContainer()) {
+            statement = withContainerPool(statement);
+            statement = withAsyncTeardown(statement);
+            statement = withSharedClassLoader(statement);
+        }
         statement = withEnvironment(statement);
+        statement = withSerialization(statement);
         return statement;
     }
 
+    /**
+     * テストメソッドを実行するスケジューラーを設定する.
+     * <p>
+     * システムプロパティ {@value #SERIALIZE_KEY} が {@code true} の場合は、
+     * テストメソッドを並列に実行するスケジューラーは使用できない。
+     * テストメソッドごとのコンテナやテストコンテキストは、
+     * Seasar2 のグローバルな状態を経由して参照されるためである。
+     * </p>
+     *
+     * @param scheduler スケジューラー
+     * @throws UnsupportedOperationException
+     *          テストクラスを直列に実行する設定の場合
+     */
+    @Override
+    public void setScheduler(final RunnerScheduler scheduler) {
+        if (isSerialized()) {
+            throw new UnsupportedOperationException(
+                    getTestClass().getName()
+                    + ": test methods cannot be scheduled in parallel"
+                    + " when " + SERIALIZE_KEY + " is true");
+        }
+        super.setScheduler(scheduler);
+    }
+
+    /**
+     * 他のテストクラスと同時に実行しないようにする.
+     * <p>
+     * システムプロパティ {@value #SERIALIZE_KEY} が {@code true} の場合だけ有効になる。
+     * </p>
+     *
+     * @param statement 元の statement
+     * @return テストクラスを直列に実行する statement
+     */
+    protected Statement withSerialization(final Statement statement) {
+        if (!isSerialized()) {
+            return statement;
+        }
+        return new SerializedStatement(statement);
+    }
+
+    /**
+     * テストクラスを他のテストクラスと同時に実行しないようにするか否かを返す.
+     *
+     * @return 直列に実行する場合、{@code true}
+     */
+    protected boolean isSerialized() {
+        return Boolean.getBoolean(SERIALIZE_KEY);
+    }
+
     /**
      * S2JUnit4 の振る舞いを設定する.
      *
@@ -52,7 +301,184 @@ public class Seasar24 extends BlockJUnit4ClassRunner {
      * @return S2JUnit4 の振る舞いを設定する statement
      */
     protected Statement withEnvironment(final Statement statement) {
-        return new EnvironmentStatement(statement);
+        return new EnvironmentStatement(statement, getTestClass());
+    }
+
+    /**
+     * テストクラスで S2 コンテナを共有するか否かを返す.
+     *
+     * @return テストクラスで共有する場合、{@code true}
+     */
+    protected boolean isClassScopedContainer() {
+        if (isSavepointIsolation()) {
+            return true;
+        }
+        SharedContainer sharedContainer =
+                getTestClass().getJavaClass().getAnnotation(
+                        SharedContainer.class);
+        return sharedContainer != null
+                && sharedContainer.scope() == SharedContainer.Scope.CLASS;
+    }
+
+    /**
+     * テストメソッドをセーブポイントで分離するか否かを返す.
+     *
+     * @return セーブポイントで分離する場合、{@code true}
+     */
+    protected boolean isSavepointIsolation() {
+        return getTestClass().getJavaClass().isAnnotationPresent(
+                SavepointIsolation.class);
+    }
+
+    /**
+     * テストクラスで共有する S2 コンテナを作成、破棄する.
+     * <p>
+     * コンテナの構成には、コンテナを作成した後に最初に実行する
+     * テストメソッドの設定を使用する。
+     * </p>
+     *
+     * @param method コンテナを作成した後に最初に実行するテストメソッド
+     * @param statement 元の statement
+     * @return 共有する S2 コンテナを作成する statement
+     */
+    protected Statement withSharedContainer(
+            final FrameworkMethod method, final Statement statement) {
+        Statement result = statement;
+        if (isSavepointIsolation()) {
+            _classTransaction = new ClassTransaction();
+            result = new ClassTransactionStatement(result, _classTransaction);
+        }
+        result = withContainer(method, null, result);
+        result = withContext(method, null, result);
+        result = withRootContainer(method, null, result);
+        result = withClassLoader(result);
+        return result;
+    }
+
+    /**
+     * これから実行するテストメソッドのルートコンテナを、事前に構築する.
+     * <p>
+     * システムプロパティ {@value RootContainerPool#POOL_SIZE_KEY} に
+     * プールのサイズが指定されている場合だけ有効になる。
+     * フィルターと並べ替えを適用した、実際に実行するテストメソッドが対象になる。
+     * </p>
+     *
+     * @param statement 元の statement
+     * @return ルートコンテナのプールを開始、終了する statement
+     */
+    protected Statement withContainerPool(final Statement statement) {
+        int size = RootContainerPool.getConfiguredSize();
+        if (size <= 0) {
+            return statement;
+        }
+
+        Class<?> testClass = getTestClass().getJavaClass();
+        List<FrameworkMethod> methods = CollectionsUtil.newArrayList();
+        for (final FrameworkMethod method : getRunnableChildren()) {
+            if (method.getAnnotation(Ignore.class) != null) {
+                continue;
+            }
+            if (TestImpact.isSelecting()
+                    && TestImpact.isUnchanged(testClass, method.getMethod())) {
+                continue;
+            }
+            methods.add(method);
+        }
+        _containerPool = new RootContainerPool(testClass, methods, size);
+        return new ContainerPoolStatement(statement, _containerPool);
+    }
+
+    /**
+     * テストメソッドの本体を実行している間だけ、ルートコンテナのプールが
+     * コンテナを構築できるようにする.
+     * <p>
+     * WARM deploy を使用するテストメソッドの本体では、
+     * {@link org.seasar.framework.container.factory.S2ContainerFactory}
+     * の設定が WARM deploy に変わっているため、構築させない。
+     * </p>
+     *
+     * @param method テストメソッド
+     * @param statement 元の statement
+     * @return ロックを解放して実行する statement
+     */
+    protected Statement withContainerPoolWindow(
+            final FrameworkMethod method, final Statement statement) {
+        if (_containerPool == null
+                || ConventionIntrospectorRepository.get().needsWarmDeploy(
+                        getTestClass().getJavaClass(), method.getMethod())) {
+            return statement;
+        }
+        return new ContainerPoolWindowStatement(statement);
+    }
+
+    /**
+     * テストメソッドの S2 コンテナを、バックグラウンドで破棄する.
+     * <p>
+     * システムプロパティ {@value AsyncTeardown#THREADS_KEY} に
+     * スレッド数が指定されている場合だけ有効になる。
+     * テストクラスに {@link SynchronousTeardown} が指定されている場合は何もしない。
+     * </p>
+     *
+     * @param statement 元の statement
+     * @return テストクラスの終了時に、コンテナの破棄を待つ statement
+     */
+    protected Statement withAsyncTeardown(final Statement statement) {
+        if (AsyncTeardown.getConfiguredThreads() <= 0
+                || getTestClass().getJavaClass().isAnnotationPresent(
+                        SynchronousTeardown.class)) {
+            return statement;
+        }
+        _asyncTeardown = new AsyncTeardown();
+        return new TeardownBarrierStatement(statement, _asyncTeardown);
+    }
+
+    /**
+     * テストメソッドで、クラスローダーを共有する.
+     * <p>
+     * システムプロパティ {@value ClassLoaderScope#SCOPE_KEY} に
+     * {@code class} を指定した場合はテストクラスで、
+     * {@code fork} を指定した場合は JVM で、同じ {@link UnitClassLoader} を使用する。
+     * 指定しない場合は、WARM deploy のテストメソッドも含めて
+     * テストメソッドごとに {@link UnitClassLoader} を作成する。
+     * </p>
+     *
+     * @param statement 元の statement
+     * @return 共有するクラスローダーを破棄する statement
+     */
+    protected Statement withSharedClassLoader(final Statement statement) {
+        if (_classLoaderScope == ClassLoaderScope.FORK) {
+            _sharedClassLoader = SharedClassLoader.FORK;
+            return statement;
+        }
+        if (_classLoaderScope == ClassLoaderScope.CLASS) {
+            _sharedClassLoader = new SharedClassLoader();
+            return new SharedClassLoaderStatement(
+                    statement, _sharedClassLoader);
+        }
+        return statement;
+    }
+
+    /**
+     * テストメソッドを実行する.
+     * <p>
+     * システムプロパティ {@value TestImpact#MODE_KEY} に {@code select} が
+     * 指定されている場合、前回の記録から使用したファイルが変わっていない
+     * テストメソッドは実行せずに無視する。
+     * </p>
+     *
+     * @param method テストメソッド
+     * @param notifier 通知先
+     */
+    @Override
+    protected void runChild(
+            final FrameworkMethod method, final RunNotifier notifier) {
+        if (TestImpact.isSelecting()
+                && TestImpact.isUnchanged(
+                        getTestClass().getJavaClass(), method.getMethod())) {
+            notifier.fireTestIgnored(describeChild(method));
+            return;
+        }
+        super.runChild(method, notifier);
     }
 
     @SuppressWarnings("deprecation")
@@ -71,20 +497,48 @@ public class Seasar24 extends BlockJUnit4ClassRunner {
         }
 
         Statement statement = methodInvoker(method, test);
+        statement = withPhase(method, TestPhase.TEST, statement);
         statement = withTransaction(method, test, statement);
         statement = possiblyExpectingExceptions(method, test, statement);
         statement = withPotentialTimeout(method, test, statement);
+        statement = withContainerPoolWindow(method, statement);
         statement = withFieldsBinding(method, test, statement);
+        if (isClassScopedContainer()) {
+            statement = withBefores(method, test, statement);
+            statement = withAfters(method, test, statement);
+            statement = withSharedContext(method, test, statement);
+            statement = withRules(method, test, statement);
+            statement = withPhase(method, TestPhase.METHOD, statement);
+            statement = withImpactRecording(method, statement);
+            return statement;
+        }
         statement = withContainer(method, test, statement);
         statement = withBefores(method, test, statement);
         statement = withAfters(method, test, statement);
         statement = withContext(method, test, statement);
         statement = withRootContainer(method, test, statement);
-        statement = withClassLoader(statement);
+        statement = withClassLoader(method, statement);
         statement = withRules(method, test, statement);
+        statement = withPhase(method, TestPhase.METHOD, statement);
+        statement = withImpactRecording(method, statement);
         return statement;
     }
 
+    /**
+     * 成功したテストメソッドが使用したファイルを記録する.
+     *
+     * @param method テストメソッド
+     * @param statement 元の statement
+     * @return 使用したファイルを記録する statement
+     */
+    protected Statement withImpactRecording(
+            final FrameworkMethod method, final Statement statement) {
+        if (!TestImpact.isRecording()) {
+            return statement;
+        }
+        return new TestImpactStatement(statement, getTestClass(), method);
+    }
+
     /**
      * クラスローダーを作成、破棄する.
      *
@@ -95,6 +549,41 @@ public class Seasar24 extends BlockJUnit4ClassRunner {
         return new ClassLoaderStatement(statement);
     }
 
+    /**
+     * テストメソッドで使用するクラスローダーを設定する.
+     * <p>
+     * クラスローダーを共有する設定の場合は、共有するクラスローダーを使用する。
+     * ただし、{@link IsolatedClassLoader} が指定されたテストメソッドでは、
+     * テストメソッドごとにクラスローダーを作成する。
+     * </p>
+     *
+     * @param method テストメソッド
+     * @param statement 元のstatement
+     * @return クラスローダーを設定する statement
+     */
+    protected Statement withClassLoader(
+            final FrameworkMethod method, final Statement statement) {
+        if (usesSharedClassLoader(method)) {
+            return new ClassLoaderStatement(statement, _sharedClassLoader);
+        }
+        return withClassLoader(statement);
+    }
+
+    /**
+     * テストメソッドで共有するクラスローダーを使用するか否かを返す.
+     *
+     * @param method テストメソッド
+     * @return 共有するクラスローダーを使用する場合、{@code true}
+     */
+    private boolean usesSharedClassLoader(final FrameworkMethod method) {
+        if (_sharedClassLoader == null) {
+            return false;
+        }
+        Class<?> testClass = getTestClass().getJavaClass();
+        return !testClass.isAnnotationPresent(IsolatedClassLoader.class)
+                && method.getAnnotation(IsolatedClassLoader.class) == null;
+    }
+
     /**
      * ルートコンテナを作成する.
      *
@@ -107,7 +596,8 @@ public class Seasar24 extends BlockJUnit4ClassRunner {
             final FrameworkMethod method,
             final Object target,
             final Statement statement) {
-        return new RootContainerStatement(statement, getTestClass(), method);
+        return new RootContainerStatement(
+                statement, getTestClass(), method, _containerPool);
     }
 
     /**
@@ -123,8 +613,25 @@ public class Seasar24 extends BlockJUnit4ClassRunner {
             final FrameworkMethod method,
             final Object target,
             final Statement statement) {
-        return new TestContextStatement(
-                statement, target, getTestClass(), method);
+        return new TestContextStatement(statement, target, getTestClass(),
+                method, getAsyncTeardown(method, target));
+    }
+
+    /**
+     * テストクラスで共有している {@link org.seasar.framework.unit.TestContext}
+     * を、テストクラスのフィールドにバインディングする.
+     *
+     * @param method テストメソッド
+     * @param target テストクラスのインスタンス
+     * @param statement 元の statement
+     * @return {@link org.seasar.framework.unit.TestContext} を設定する statement
+     */
+    protected Statement withSharedContext(
+            final FrameworkMethod method,
+            final Object target,
+            final Statement statement) {
+        return new SharedContextStatement(
+                statement, target, getTestClass(), method, _sharedState);
     }
 
     /**
@@ -139,7 +646,25 @@ public class Seasar24 extends BlockJUnit4ClassRunner {
             final FrameworkMethod method,
             final Object target,
             final Statement statement) {
-        return new ContainerStatement(statement, target, method);
+        return new ContainerStatement(statement, target, getTestClass(),
+                method, getAsyncTeardown(method, target));
+    }
+
+    /**
+     * テストメソッドの S2 コンテナをバックグラウンドで破棄する処理を返す.
+     *
+     * @param method テストメソッド
+     * @param target テストクラスのインスタンス
+     * @return コンテナをバックグラウンドで破棄する処理、
+     *          テストを実行しているスレッドで破棄する場合は {@code null}
+     */
+    private AsyncTeardown getAsyncTeardown(
+            final FrameworkMethod method, final Object target) {
+        if (target == null
+                || method.getAnnotation(SynchronousTeardown.class) != null) {
+            return null;
+        }
+        return _asyncTeardown;
     }
 
     /**
@@ -155,7 +680,24 @@ public class Seasar24 extends BlockJUnit4ClassRunner {
             final FrameworkMethod method,
             final Object target,
             final Statement statement) {
-        return new FieldsBindingStatement(statement, target, getTestClass());
+        return new FieldsBindingStatement(
+                statement, target, getTestClass(), method);
+    }
+
+    /**
+     * 元の statement の実行時間を、処理の段階として計測する.
+     *
+     * @param method テストメソッド
+     * @param phase 処理の段階
+     * @param statement 元の statement
+     * @return 実行時間を計測する statement
+     */
+    protected Statement withPhase(
+            final FrameworkMethod method,
+            final TestPhase phase,
+            final Statement statement) {
+        return new TestPhaseStatement(
+                statement, getTestClass(), method, phase);
     }
 
     /**
@@ -171,7 +713,7 @@ public class Seasar24 extends BlockJUnit4ClassRunner {
             final Object target,
             final Statement statement) {
         return new TransactionManagerStatement(
-                statement, getTestClass(), method);
+                statement, getTestClass(), method, _classTransaction);
     }
 
     /**
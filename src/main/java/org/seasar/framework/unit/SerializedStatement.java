@@ -0,0 +1,36 @@
+package org.seasar.framework.unit;
+
+import org.junit.runners.model.Statement;
+
+/**
+ * Seasar2 のグローバルな状態を共有するテストクラスを、同時に実行しないようにする.
+ * <p>
+ * {@link org.seasar.framework.container.factory.SingletonS2ContainerFactory}、
+ * {@link org.seasar.framework.container.impl.S2ContainerBehavior}、
+ * {@link org.seasar.framework.env.Env} は JVM で共有されるため、
+ * 並列に実行されるテストクラスはこの statement で直列化する。
+ * </p>
+ */
+class SerializedStatement extends Statement {
+    /** Seasar2 のグローバルな状態を保護するロック */
+    private static final Object LOCK = new Object();
+
+    /** 元の statement */
+    private final Statement _statement;
+
+    /**
+     * テストクラスを直列に実行する statement を作成する.
+     *
+     * @param statement 元の statement
+     */
+    public SerializedStatement(final Statement statement) {
+        _statement = statement;
+    }
+
+    @Override
+    public void evaluate() throws Throwable {
+        synchronized (LOCK) {
+            _statement.evaluate();
+        }
+    }
+}
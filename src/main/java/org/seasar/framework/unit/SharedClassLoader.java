@@ -0,0 +1,37 @@
+package org.seasar.framework.unit;
+
+/**
+ * 複数のテストメソッドで共有する {@link UnitClassLoader}.
+ * <p>
+ * 最初に要求された時点で {@link CachingUnitClassLoader} を作成し、
+ * {@link #dispose()} で破棄する。
+ * 親のクラスローダーが変わった場合は作成し直す。
+ * </p>
+ */
+class SharedClassLoader {
+    /** JVM で共有するクラスローダー */
+    static final SharedClassLoader FORK = new SharedClassLoader();
+
+    /** 共有するクラスローダー */
+    private ClassLoader _classLoader = null;
+
+    /**
+     * 共有するクラスローダーを返す.
+     *
+     * @param parent 作成する場合の親のクラスローダー
+     * @return 共有するクラスローダー
+     */
+    public synchronized ClassLoader get(final ClassLoader parent) {
+        if (_classLoader == null || _classLoader.getParent() != parent) {
+            _classLoader = new CachingUnitClassLoader(parent);
+        }
+        return _classLoader;
+    }
+
+    /**
+     * 共有しているクラスローダーを破棄する.
+     */
+    public synchronized void dispose() {
+        _classLoader = null;
+    }
+}
@@ -0,0 +1,34 @@
+package org.seasar.framework.unit;
+
+import org.junit.runners.model.Statement;
+
+/**
+ * テストクラスの終了時に、共有しているクラスローダーを破棄する.
+ */
+class SharedClassLoaderStatement extends Statement {
+    /** 元の statement */
+    private final Statement _statement;
+    /** 共有するクラスローダー */
+    private final SharedClassLoader _classLoader;
+
+    /**
+     * 共有しているクラスローダーを破棄する statement を作成する.
+     *
+     * @param statement 元の statement
+     * @param classLoader 共有するクラスローダー
+     */
+    public SharedClassLoaderStatement(
+            final Statement statement, final SharedClassLoader classLoader) {
+        _statement = statement;
+        _classLoader = classLoader;
+    }
+
+    @Override
+    public void evaluate() throws Throwable {
+        try {
+            _statement.evaluate();
+        } finally {
+            _classLoader.dispose();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.seasar.framework.unit;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.seasar.framework.container.ExternalContext;
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * テストクラスで共有している S2 コンテナを、テストメソッド間で元に戻すための状態.
+ * <p>
+ * テストメソッドの開始時に、リクエストスコープのコンポーネントを破棄し、
+ * コンテナに登録されているコンポーネントの数を記録する。
+ * テストメソッドがコンポーネントを登録した場合は、
+ * コンテナを作成し直す必要があるものとして記録する。
+ * </p>
+ */
+class SharedContainerState {
+    /** コンテナを作成し直す必要があるか否か */
+    private boolean _dirty = false;
+
+    /**
+     * 新しく作成したコンテナの使用を開始する.
+     */
+    public void reset() {
+        _dirty = false;
+    }
+
+    /**
+     * コンテナを作成し直す必要があるか否かを返す.
+     *
+     * @return 作成し直す必要がある場合、{@code true}
+     */
+    public boolean isDirty() {
+        return _dirty;
+    }
+
+    /**
+     * テストメソッドの開始時に、リクエストスコープのコンポーネントを破棄する.
+     *
+     * @param root ルートのコンテナ
+     * @return コンテナに登録されているコンポーネントの数
+     */
+    public int beforeMethod(final S2Container root) {
+        ExternalContext externalContext = root.getExternalContext();
+        if (externalContext != null
+                && externalContext.getRequest() != null) {
+            Map<?, ?> requestMap = externalContext.getRequestMap();
+            List<Object> keys =
+                    CollectionsUtil.newArrayList(requestMap.keySet());
+            for (final Object key : keys) {
+                requestMap.remove(key);
+            }
+        }
+        return countComponentDefs(root);
+    }
+
+    /**
+     * テストメソッドの終了時に、コンポーネントが登録されたか否かを記録する.
+     *
+     * @param root ルートのコンテナ
+     * @param size テストメソッドの開始時のコンポーネントの数
+     */
+    public void afterMethod(final S2Container root, final int size) {
+        if (countComponentDefs(root) != size) {
+            _dirty = true;
+        }
+    }
+
+    /**
+     * コンテナと子孫のコンテナに登録されているコンポーネントの数を返す.
+     *
+     * @param root ルートのコンテナ
+     * @return コンポーネントの数
+     */
+    static int countComponentDefs(final S2Container root) {
+        return countComponentDefs(root,
+                Collections.newSetFromMap(
+                        new IdentityHashMap<S2Container, Boolean>()));
+    }
+
+    /**
+     * コンテナと子孫のコンテナに登録されているコンポーネントの数を返す.
+     *
+     * @param container コンテナ
+     * @param visited 数えたコンテナ
+     * @return コンポーネントの数
+     */
+    private static int countComponentDefs(
+            final S2Container container, final Set<S2Container> visited) {
+        if (!visited.add(container)) {
+            return 0;
+        }
+        int size = container.getComponentDefSize();
+        for (int i = 0; i < container.getChildSize(); ++i) {
+            size += countComponentDefs(container.getChild(i), visited);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,93 @@
+package org.seasar.framework.unit;
+
+import java.util.List;
+
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.Statement;
+
+/**
+ * テストクラスで共有する S2 コンテナを作成し、テストメソッドを順番に実行する.
+ * <p>
+ * テストメソッドがコンポーネントを登録した場合は、そのテストメソッドの終了後に
+ * コンテナを破棄し、次のテストメソッドの設定で作成し直す。
+ * </p>
+ */
+class SharedContainerStatement extends Statement {
+    /** テストランナー */
+    private final Seasar24 _runner;
+    /** 実行するテストメソッド */
+    private final List<FrameworkMethod> _methods;
+    /** 通知先 */
+    private final RunNotifier _notifier;
+    /** 共有しているコンテナの状態 */
+    private final SharedContainerState _state;
+
+    /**
+     * テストメソッドを実行する statement を作成する.
+     *
+     * @param runner テストランナー
+     * @param methods 実行するテストメソッド
+     * @param notifier 通知先
+     * @param state 共有しているコンテナの状態
+     */
+    public SharedContainerStatement(
+            final Seasar24 runner,
+            final List<FrameworkMethod> methods,
+            final RunNotifier notifier,
+            final SharedContainerState state) {
+        _runner = runner;
+        _methods = methods;
+        _notifier = notifier;
+        _state = state;
+    }
+
+    @Override
+    public void evaluate() throws Throwable {
+        int index = 0;
+        while (index < _methods.size()) {
+            Segment segment = new Segment(index);
+            _runner.withSharedContainer(_methods.get(index), segment)
+                    .evaluate();
+            index = segment.getNext();
+        }
+    }
+
+    /**
+     * 同じコンテナで実行できる、連続したテストメソッドを実行する.
+     */
+    private class Segment extends Statement {
+        /** 次に実行するテストメソッドの位置 */
+        private int _next;
+
+        /**
+         * テストメソッドを実行する statement を作成する.
+         *
+         * @param start 最初に実行するテストメソッドの位置
+         */
+        Segment(final int start) {
+            _next = start;
+        }
+
+        @Override
+        public void evaluate() throws Throwable {
+            _state.reset();
+            while (_next < _methods.size()) {
+                FrameworkMethod method = _methods.get(_next++);
+                _runner.runChild(method, _notifier);
+                if (_state.isDirty()) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * 次に実行するテストメソッドの位置を返す.
+         *
+         * @return 次に実行するテストメソッドの位置
+         */
+        int getNext() {
+            return _next;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.seasar.framework.unit;
+
+import java.lang.reflect.Method;
+
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.Statement;
+import org.junit.runners.model.TestClass;
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.container.factory.SingletonS2ContainerFactory;
+
+/**
+ * テストクラスで共有しているテストコンテキストを、テストメソッドに設定する.
+ * <p>
+ * テストメソッドの開始時にリクエストスコープのコンポーネントを破棄し、
+ * テストメソッドがコンポーネントを登録した場合は、
+ * コンテナを作成し直す必要があることを {@link SharedContainerState} に記録する。
+ * </p>
+ */
+class SharedContextStatement extends Statement {
+    /** 元の statement */
+    private final Statement _statement;
+
+    /** テストオブジェクト */
+    private final Object _test;
+    /** テストクラス */
+    private final Class<?> _testClass;
+    /** テストメソッド */
+    private final Method _method;
+    /** 共有しているコンテナの状態 */
+    private final SharedContainerState _state;
+
+    /**
+     * 共有しているテストコンテキストを設定する statement を作成する.
+     *
+     * @param statement 元の statement
+     * @param target テストクラスのインスタンス
+     * @param clazz テストクラス
+     * @param method テストメソッド
+     * @param state 共有しているコンテナの状態
+     */
+    public SharedContextStatement(
+            final Statement statement,
+            final Object target,
+            final TestClass clazz,
+            final FrameworkMethod method,
+            final SharedContainerState state) {
+        _statement = statement;
+        _test = target;
+        _testClass = clazz.getJavaClass();
+        _method = method.getMethod();
+        _state = state;
+    }
+
+    @Override
+    public void evaluate() throws Throwable {
+        InternalTestContext testContext = TestContextRepository.get();
+        testContext.setTestMethod(_method);
+        TestContextBindingPlan.get(_testClass).bind(_test, testContext);
+
+        S2Container root = SingletonS2ContainerFactory.getContainer();
+        int size = _state.beforeMethod(root);
+        try {
+            _statement.evaluate();
+            TestImpact.collect();
+        } finally {
+            _state.afterMethod(root, size);
+        }
+    }
+}
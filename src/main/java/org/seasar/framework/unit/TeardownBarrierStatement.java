@@ -0,0 +1,45 @@
+package org.seasar.framework.unit;
+
+import java.util.List;
+
+import org.junit.runners.model.MultipleFailureException;
+import org.junit.runners.model.Statement;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * テストクラスの終了時に、バックグラウンドで破棄している S2 コンテナを待つ.
+ */
+class TeardownBarrierStatement extends Statement {
+    /** 元の statement */
+    private final Statement _statement;
+    /** コンテナをバックグラウンドで破棄する処理 */
+    private final AsyncTeardown _teardown;
+
+    /**
+     * コンテナの破棄を待つ statement を作成する.
+     *
+     * @param statement 元の statement
+     * @param teardown コンテナをバックグラウンドで破棄する処理
+     */
+    public TeardownBarrierStatement(
+            final Statement statement, final AsyncTeardown teardown) {
+        _statement = statement;
+        _teardown = teardown;
+    }
+
+    @Override
+    public void evaluate() throws Throwable {
+        List<Throwable> errors = CollectionsUtil.newArrayList();
+        try {
+            _statement.evaluate();
+        } catch (Throwable e) {
+            errors.add(e);
+        }
+        try {
+            _teardown.await();
+        } catch (Throwable e) {
+            errors.add(e);
+        }
+        MultipleFailureException.assertEmpty(errors);
+    }
+}
@@ -0,0 +1,86 @@
+package org.seasar.framework.unit;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+
+import org.seasar.framework.unit.annotation.PublishedTestContext;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+import org.seasar.framework.util.tiger.ReflectionUtil;
+
+/**
+ * テストクラスのインスタンスにテストコンテキストをバインディングするための、
+ * 事前に解決した情報.
+ * <p>
+ * {@link PublishedTestContext} が付与された型のフィールドは、
+ * テストクラスごとに一度だけ探索する。
+ * </p>
+ */
+final class TestContextBindingPlan {
+    /** テストクラスごとのバインディングの情報 */
+    private static final ClassValue<TestContextBindingPlan> PLANS =
+            new ClassValue<TestContextBindingPlan>() {
+                @Override
+                protected TestContextBindingPlan computeValue(
+                        final Class<?> type) {
+                    return new TestContextBindingPlan(type);
+                }
+            };
+
+    /** テストコンテキストをバインディングするフィールド */
+    private final List<Field> _fields;
+
+    /**
+     * テストクラスのバインディングの情報を作成する.
+     *
+     * @param testClass テストクラス
+     */
+    private TestContextBindingPlan(final Class<?> testClass) {
+        List<Field> fields = CollectionsUtil.newArrayList();
+        for (Class<?> clazz = testClass;
+                clazz != null && !Object.class.equals(clazz);
+                clazz = clazz.getSuperclass()) {
+            for (final Field field : clazz.getDeclaredFields()) {
+                if (!BindUtils.isAutoBindable(field)) {
+                    continue;
+                }
+                if (!field.getType().isAnnotationPresent(
+                        PublishedTestContext.class)) {
+                    continue;
+                }
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+        _fields = Collections.unmodifiableList(fields);
+    }
+
+    /**
+     * テストクラスのバインディングの情報を取得する.
+     *
+     * @param testClass テストクラス
+     * @return バインディングの情報
+     */
+    public static TestContextBindingPlan get(final Class<?> testClass) {
+        return PLANS.get(testClass);
+    }
+
+    /**
+     * テストクラスのインスタンスにテストコンテキストをバインディングする.
+     *
+     * @param test テストクラスのインスタンス
+     * @param testContext テストコンテキスト
+     */
+    public void bind(final Object test, final InternalTestContext testContext) {
+        final Class<?> contextClass = testContext.getClass();
+        for (final Field field : _fields) {
+            if (!field.getType().isAssignableFrom(contextClass)) {
+                continue;
+            }
+            if (ReflectionUtil.getValue(field, test) != null) {
+                continue;
+            }
+            ReflectionUtil.setValue(field, test, testContext);
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package org.seasar.framework.unit;
 
-import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 
 import org.junit.runners.model.FrameworkMethod;
@@ -12,10 +11,7 @@ import org.seasar.framework.container.factory.SingletonS2ContainerFactory;
 import org.seasar.framework.container.impl.S2ContainerBehavior;
 import org.seasar.framework.convention.NamingConvention;
 import org.seasar.framework.convention.impl.NamingConventionImpl;
-import org.seasar.framework.unit.annotation.PublishedTestContext;
 import org.seasar.framework.util.DisposableUtil;
-import org.seasar.framework.util.ResourceUtil;
-import org.seasar.framework.util.tiger.ReflectionUtil;
 
 /**
  * テスト実行前後で、{@link InternalTestContext} を作成する、削除する.
@@ -33,12 +29,15 @@ class TestContextStatement extends Statement {
 
     /** テストクラスのイントロスペクター */
     private final S2TestIntrospector _introspector;
+    /** コンテナをバックグラウンドで破棄する処理 */
+    private final AsyncTeardown _teardown;
 
     /**
      * {@link InternalTestContext} を作成、削除する statement を作成する.
      *
      * @param statement 元の statement
-     * @param target テストクラスのインスタンス
+     * @param target テストクラスのインスタンス、
+     *          テストクラスでコンテナを共有する場合は {@code null}
      * @param clazz テストクラス
      * @param method テストメソッド
      */
@@ -47,7 +46,28 @@ class TestContextStatement extends Statement {
             final Object target,
             final TestClass clazz,
             final FrameworkMethod method) {
+        this(statement, target, clazz, method, null);
+    }
+
+    /**
+     * {@link InternalTestContext} を作成、削除する statement を作成する.
+     *
+     * @param statement 元の statement
+     * @param target テストクラスのインスタンス、
+     *          テストクラスでコンテナを共有する場合は {@code null}
+     * @param clazz テストクラス
+     * @param method テストメソッド
+     * @param teardown 破棄を延期したコンテナをバックグラウンドで破棄する処理、
+     *          テストを実行しているスレッドで破棄する場合は {@code null}
+     */
+    public TestContextStatement(
+            final Statement statement,
+            final Object target,
+            final TestClass clazz,
+            final FrameworkMethod method,
+            final AsyncTeardown teardown) {
         _introspector = ConventionIntrospectorRepository.get();
+        _teardown = teardown;
         _statement = statement;
         _test = target;
         _testClass = clazz.getJavaClass();
@@ -61,6 +81,9 @@ class TestContextStatement extends Statement {
         try {
             _statement.evaluate();
         } finally {
+            if (_teardown != null) {
+                _teardown.destroy(testContext, _testClass, _method);
+            }
             tearDownTestContext();
         }
     }
@@ -72,9 +95,13 @@ class TestContextStatement extends Statement {
      */
     protected InternalTestContext setUpTestContext() {
         if (needsWarmDeploy()) {
-            S2ContainerFactory.configure("warmdeploy.dicon");
+            TestPhaseTimer timer = TestPhaseTimer.start(TestPhase.WARM_DEPLOY);
+            S2ContainerFactory.configure(
+                    WarmDeployConfiguration.WARM_DEPLOY_PATH);
+            timer.stop(_testClass, _method);
         }
 
+        TestPhaseTimer timer = TestPhaseTimer.start(TestPhase.TEST_CONTEXT);
         InternalTestContext testContext = createTestContext(_testClass);
         testContext.setTestMethod(_method);
 
@@ -86,7 +113,10 @@ class TestContextStatement extends Statement {
             testContext.setNamingConvention(namingConvention);
         }
 
-        bindTestContext(_testClass, testContext);
+        if (_test != null) {
+            TestContextBindingPlan.get(_testClass).bind(_test, testContext);
+        }
+        timer.stop(_testClass, _method);
 
         return testContext;
     }
@@ -115,10 +145,7 @@ class TestContextStatement extends Statement {
      */
     protected boolean needsWarmDeploy() {
         return _introspector.needsWarmDeploy(_testClass, _method)
-                && !ResourceUtil.isExist("s2container.dicon")
-                && ResourceUtil.isExist("convention.dicon")
-                && ResourceUtil.isExist("creator.dicon")
-                && ResourceUtil.isExist("customizer.dicon");
+                && WarmDeployConfiguration.isAvailable();
     }
 
     /**
@@ -133,48 +160,16 @@ class TestContextStatement extends Statement {
         return _introspector.isRegisterNamingConvention(clazz, method);
     }
 
-    /**
-     * テストクラスのインスタンスにj {@link InternalTestContext} をバインディングする.
-     *
-     * @param clazz テストクラス
-     * @param testContext テストコンテキスト
-     */
-    private void bindTestContext(
-            final Class<?> clazz,
-            final InternalTestContext testContext) {
-        if (Object.class.equals(clazz)) {
-            return;
-        }
-
-        for (final Field field : clazz.getDeclaredFields()) {
-            final Class<?> fieldClass = field.getType();
-            if (!BindUtils.isAutoBindable(field)) {
-                continue;
-            }
-            if (!fieldClass.isAssignableFrom(testContext.getClass())) {
-                continue;
-            }
-            if (!fieldClass.isAnnotationPresent(PublishedTestContext.class)) {
-                continue;
-            }
-
-            field.setAccessible(true);
-            if (ReflectionUtil.getValue(field, _test) != null) {
-                continue;
-            }
-            ReflectionUtil.setValue(field, _test, testContext);
-        }
-
-        bindTestContext(clazz.getSuperclass(), testContext);
-    }
-
     /**
      * テストコンテキストを解放します.
      */
     protected void tearDownTestContext() {
+        TestPhaseTimer timer =
+                TestPhaseTimer.start(TestPhase.TEST_CONTEXT_DISPOSE);
         TestContextRepository.remove();
         DisposableUtil.dispose();
         S2ContainerBehavior.setProvider(
                 new S2ContainerBehavior.DefaultProvider());
+        timer.stop(_testClass, _method);
     }
 }
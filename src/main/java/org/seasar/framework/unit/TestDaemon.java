@@ -0,0 +1,272 @@
+package org.seasar.framework.unit;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * テストクラスの実行の要求を受け付ける、常駐する JVM.
+ * <p>
+ * ループバックアドレスのポートで {@link TestDaemonClient} からの要求を待ち、
+ * 要求ごとに {@link ReloadingClassLoader} でテストクラスを読み込み直して
+ * {@link JUnitCore} で実行し、結果を 1 行ずつ返す。
+ * コンフィグレーションS2コンテナや Seasar2 のクラスは JVM に残るため、
+ * 2 回目以降の実行では JVM の起動や設定の処理を省略できる。
+ * 読み込み直したクラスやファイルをキーにするキャッシュは、要求ごとに破棄する。
+ * </p>
+ * <p>
+ * 要求は 1 行目がコマンドで、{@code RUN} の場合は続く行に
+ * テストクラス名を空行まで指定する。{@code STOP} の場合はデーモンを終了する。
+ * </p>
+ *
+ * <pre>
+ * java org.seasar.framework.unit.TestDaemon \
+ *     build/classes/main build/classes/test \
+ *     build/resources/test build/resources/main
+ * </pre>
+ */
+public final class TestDaemon {
+    /** ポート番号を指定するシステムプロパティのキー */
+    public static final String PORT_KEY =
+            "org.seasar.framework.unit.daemonPort";
+    /** デフォルトのポート番号 */
+    public static final int DEFAULT_PORT = 7842;
+
+    /** テストクラスを実行するコマンド */
+    static final String RUN = "RUN";
+    /** デーモンを終了するコマンド */
+    static final String STOP = "STOP";
+    /** 実行結果の集計を表す行の接頭辞 */
+    static final String RESULT = "RESULT";
+    /** エラーを表す行の接頭辞 */
+    static final String ERROR = "ERROR";
+
+    /** 要求を受け付けるソケット */
+    private final ServerSocket _serverSocket;
+    /** 読み込み直すクラスやリソースのディレクトリ */
+    private final URL[] _urls;
+
+    /**
+     * デーモンを作成する.
+     *
+     * @param port ポート番号
+     * @param urls 読み込み直すクラスやリソースのディレクトリ
+     * @throws IOException ポートを開けなかった場合
+     */
+    public TestDaemon(final int port, final URL[] urls) throws IOException {
+        _serverSocket =
+                new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        _urls = urls.clone();
+    }
+
+    /**
+     * 要求を受け付けるポート番号を返す.
+     *
+     * @return ポート番号
+     */
+    int getLocalPort() {
+        return _serverSocket.getLocalPort();
+    }
+
+    /**
+     * デーモンを起動する.
+     *
+     * @param args 読み込み直すクラスやリソースのディレクトリ
+     * @throws IOException 通信に失敗した場合
+     */
+    public static void main(final String[] args) throws IOException {
+        URL[] urls = new URL[args.length];
+        for (int i = 0; i < args.length; i++) {
+            urls[i] = toURL(args[i]);
+        }
+        int port = Integer.getInteger(PORT_KEY, DEFAULT_PORT);
+        TestDaemon daemon = new TestDaemon(port, urls);
+        System.out.println("Seasar24 test daemon listening on "
+                + daemon._serverSocket.getLocalSocketAddress());
+        daemon.serve();
+    }
+
+    /**
+     * {@code STOP} の要求を受け付けるまで、要求を 1 つずつ処理する.
+     *
+     * @throws IOException 通信に失敗した場合
+     */
+    public void serve() throws IOException {
+        try {
+            boolean running = true;
+            while (running) {
+                try (Socket socket = _serverSocket.accept()) {
+                    running = handle(socket);
+                }
+            }
+        } finally {
+            _serverSocket.close();
+        }
+    }
+
+    /**
+     * 要求を処理する.
+     *
+     * @param socket クライアントとのソケット
+     * @return 要求の受け付けを続ける場合、{@code true}
+     * @throws IOException 通信に失敗した場合
+     */
+    private boolean handle(final Socket socket) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                socket.getInputStream(), StandardCharsets.UTF_8));
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                socket.getOutputStream(), StandardCharsets.UTF_8), true);
+        String command = reader.readLine();
+        if (STOP.equals(command)) {
+            writer.println(STOP);
+            return false;
+        }
+        if (!RUN.equals(command)) {
+            writer.println(ERROR + " unknown command: " + command);
+            return true;
+        }
+
+        List<String> classNames = CollectionsUtil.newArrayList();
+        for (String line = reader.readLine();
+                line != null && !line.isEmpty();
+                line = reader.readLine()) {
+            classNames.add(line.trim());
+        }
+        try {
+            run(classNames, writer);
+        } catch (RuntimeException | LinkageError e) {
+            writer.println(ERROR + " " + e);
+        }
+        return true;
+    }
+
+    /**
+     * テストクラスを読み込み直して実行する.
+     *
+     * @param classNames テストクラス名
+     * @param writer 結果の出力先
+     */
+    private void run(final List<String> classNames, final PrintWriter writer) {
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        ClassLoader loader = new ReloadingClassLoader(
+                _urls, TestDaemon.class.getClassLoader());
+        thread.setContextClassLoader(loader);
+        try {
+            List<Class<?>> classes = CollectionsUtil.newArrayList();
+            for (final String className : classNames) {
+                try {
+                    classes.add(Class.forName(className, false, loader));
+                } catch (ClassNotFoundException e) {
+                    writer.println(ERROR + " class not found: " + className);
+                }
+            }
+
+            JUnitCore core = new JUnitCore();
+            core.addListener(new StreamingListener(writer));
+            Result result = core.run(classes.toArray(new Class<?>[0]));
+            writer.println(RESULT
+                    + " run=" + result.getRunCount()
+                    + " failures=" + result.getFailureCount()
+                    + " ignored=" + result.getIgnoreCount()
+                    + " time=" + result.getRunTime());
+        } finally {
+            thread.setContextClassLoader(original);
+            TestImpact.flush();
+            clearCaches(loader);
+        }
+    }
+
+    /**
+     * 読み込み直したクラスやファイルを参照しているキャッシュを破棄する.
+     * <p>
+     * クラスをキーにする {@link ClassValue} のキャッシュは、
+     * 読み込み直したクラスとともに破棄される。
+     * </p>
+     *
+     * @param loader 読み込み直したクラスローダー
+     */
+    static void clearCaches(final ClassLoader loader) {
+        ConventionIntrospectorRepository.clear();
+        WarmDeployConfiguration.invalidate();
+        FixtureLoader.clear();
+        ContainerDefinitionCache.clear();
+        EmbeddedDatabaseSupport.clear();
+        TestImpact.clear();
+        ConfigurationContainerCache.clear(loader);
+        SharedClassLoader.FORK.dispose();
+    }
+
+    /**
+     * パスを URL に変換する.
+     *
+     * @param path ディレクトリのパス
+     * @return URL
+     * @throws MalformedURLException 変換できなかった場合
+     */
+    private static URL toURL(final String path) throws MalformedURLException {
+        return new File(path).getAbsoluteFile().toURI().toURL();
+    }
+
+    /**
+     * テストの実行状況を 1 行ずつクライアントに返すリスナー.
+     */
+    static final class StreamingListener extends RunListener {
+        /** 出力先 */
+        private final PrintWriter _writer;
+
+        /**
+         * リスナーを作成する.
+         *
+         * @param writer 出力先
+         */
+        StreamingListener(final PrintWriter writer) {
+            _writer = writer;
+        }
+
+        @Override
+        public void testStarted(final Description description) {
+            _writer.println("STARTED " + description.getDisplayName());
+        }
+
+        @Override
+        public void testFinished(final Description description) {
+            _writer.println("FINISHED " + description.getDisplayName());
+        }
+
+        @Override
+        public void testFailure(final Failure failure) {
+            _writer.println("FAILED " + failure.getTestHeader());
+            for (final String line : failure.getTrace().split("\r?\n")) {
+                _writer.println("TRACE " + line);
+            }
+        }
+
+        @Override
+        public void testAssumptionFailure(final Failure failure) {
+            _writer.println("SKIPPED " + failure.getTestHeader());
+        }
+
+        @Override
+        public void testIgnored(final Description description) {
+            _writer.println("IGNORED " + description.getDisplayName());
+        }
+    }
+}
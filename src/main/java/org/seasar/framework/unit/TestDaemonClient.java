@@ -0,0 +1,73 @@
+package org.seasar.framework.unit;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link TestDaemon} にテストクラスの実行を要求するクライアント.
+ * <p>
+ * 実行結果を標準出力に出力し、失敗したテストがある場合や
+ * 実行できなかった場合は、終了コード {@code 1} で終了する。
+ * 引数に {@code --stop} を指定した場合は、デーモンを終了する。
+ * </p>
+ *
+ * <pre>
+ * java org.seasar.framework.unit.TestDaemonClient \
+ *     jp.example.dao.EmployeeDaoTest
+ * </pre>
+ */
+public final class TestDaemonClient {
+    /** ユーティリティクラスであるため、インスタンスを生成しない. */
+    private TestDaemonClient() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * テストクラスの実行を要求する.
+     *
+     * @param args テストクラス名、または {@code --stop}
+     * @throws IOException 通信に失敗した場合
+     */
+    public static void main(final String[] args) throws IOException {
+        int port = Integer.getInteger(
+                TestDaemon.PORT_KEY, TestDaemon.DEFAULT_PORT);
+        boolean success = false;
+        boolean error = false;
+        try (Socket socket =
+                new Socket(InetAddress.getLoopbackAddress(), port)) {
+            PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                    socket.getOutputStream(), StandardCharsets.UTF_8), true);
+            if (args.length == 1 && "--stop".equals(args[0])) {
+                writer.println(TestDaemon.STOP);
+            } else {
+                writer.println(TestDaemon.RUN);
+                for (final String className : args) {
+                    writer.println(className);
+                }
+                writer.println();
+            }
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.UTF_8));
+            for (String line = reader.readLine();
+                    line != null;
+                    line = reader.readLine()) {
+                System.out.println(line);
+                if (line.startsWith(TestDaemon.RESULT)) {
+                    success = line.contains(" failures=0 ");
+                } else if (line.startsWith(TestDaemon.STOP)) {
+                    success = true;
+                } else if (line.startsWith(TestDaemon.ERROR)) {
+                    error = true;
+                }
+            }
+        }
+        System.exit(success && !error ? 0 : 1);
+    }
+}
@@ -0,0 +1,477 @@
+package org.seasar.framework.unit;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.seasar.framework.container.ComponentDef;
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.container.factory.SingletonS2ContainerFactory;
+import org.seasar.framework.log.Logger;
+import org.seasar.framework.unit.annotation.Fixture;
+import org.seasar.framework.util.ResourceUtil;
+import org.seasar.framework.util.StringUtil;
+
+/**
+ * テストメソッドが使用したコンポーネントのクラス、dicon、テストデータを記録し、
+ * 変更がないテストメソッドの実行を省略する.
+ * <p>
+ * システムプロパティ {@value #MODE_KEY} に {@code record} を指定すると、
+ * 成功したテストメソッドごとに、テストメソッドの終了時に S2 コンテナに
+ * 登録されていたコンポーネントのクラス、読み込んだ dicon、
+ * テストメソッドのクラスローダーが読み込んだクラス、{@link Fixture} のテストデータ、
+ * テストクラスと、それらのクラスが参照しているクラスを集め、
+ * それらの内容のハッシュを記録する。
+ * 記録は {@link #flush()} または JVM の終了時に {@value #FILE_KEY} の
+ * ファイルに出力する。
+ * {@code select} を指定すると、記録したすべてのファイルの内容が変わっていない
+ * テストメソッドを実行せずに無視し、実行したテストメソッドは記録し直す。
+ * </p>
+ * <p>
+ * 記録するのは、クラスパスのディレクトリにあるファイルだけである。
+ * jar に含まれるクラスや dicon の変更は検出しない。
+ * クラスファイルの参照を読み取れなかったテストメソッドは、
+ * 使用したファイルがわからないため、次回も変更があったものとして実行する。
+ * </p>
+ */
+final class TestImpact {
+    /** 動作を指定するシステムプロパティのキー */
+    static final String MODE_KEY = "org.seasar.framework.unit.impactMode";
+    /** 記録するファイルを指定するシステムプロパティのキー */
+    static final String FILE_KEY = "org.seasar.framework.unit.impactFile";
+    /** 記録するファイルのデフォルトのパス */
+    static final String DEFAULT_FILE = "build/s2junit4-impact.properties";
+
+    /** ファイルとハッシュの区切り */
+    private static final String HASH_SEPARATOR = "@";
+    /** ファイルの区切り */
+    private static final String INPUT_SEPARATOR = ",";
+
+    /** ロガー */
+    private static final Logger LOGGER = Logger.getLogger(TestImpact.class);
+
+    /** 記録するか否か */
+    private static final boolean RECORDING;
+    /** 変更がないテストメソッドを省略するか否か */
+    private static final boolean SELECTING;
+    /** 記録するファイル */
+    private static final File FILE;
+
+    /** 以前に記録した内容 */
+    private static final Properties PREVIOUS = new Properties();
+    /** この JVM で記録した内容 */
+    private static final Properties RECORDS = new Properties();
+    /** ファイルごとの内容のハッシュ */
+    private static final ConcurrentMap<String, String> HASHES =
+            new ConcurrentHashMap<>();
+    /** クラスファイルごとの、参照しているクラスファイル */
+    private static final ConcurrentMap<String, Set<String>> REFERENCES =
+            new ConcurrentHashMap<>();
+    /** 実行中のテストメソッドで使用したファイル */
+    private static final ThreadLocal<Set<String>> PENDING =
+            new ThreadLocal<>();
+
+    static {
+        String mode = System.getProperty(MODE_KEY, "");
+        SELECTING = "select".equals(mode);
+        RECORDING = SELECTING || "record".equals(mode);
+        FILE = new File(System.getProperty(FILE_KEY, DEFAULT_FILE));
+        if (RECORDING) {
+            load();
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            });
+        }
+    }
+
+    /** ユーティリティクラスであるため、インスタンスを生成しない. */
+    private TestImpact() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 使用したファイルを記録するか否かを返す.
+     *
+     * @return 記録する場合、{@code true}
+     */
+    public static boolean isRecording() {
+        return RECORDING;
+    }
+
+    /**
+     * 変更がないテストメソッドを省略するか否かを返す.
+     *
+     * @return 省略する場合、{@code true}
+     */
+    public static boolean isSelecting() {
+        return SELECTING;
+    }
+
+    /**
+     * テストメソッドの本体の終了時に、現在の S2 コンテナが使用している
+     * コンポーネントのクラスと dicon、コンテキストクラスローダーが読み込んだクラスを集める.
+     * <p>
+     * コンテナを破棄する前に呼び出す。
+     * </p>
+     */
+    public static void collect() {
+        if (!RECORDING) {
+            return;
+        }
+        Set<String> inputs = new TreeSet<>();
+        if (SingletonS2ContainerFactory.hasContainer()) {
+            collect(SingletonS2ContainerFactory.getContainer(), inputs,
+                    Collections.newSetFromMap(
+                            new IdentityHashMap<S2Container, Boolean>()));
+        }
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader instanceof TrackingUnitClassLoader) {
+            for (final String className
+                    : ((TrackingUnitClassLoader) loader).getClassNames()) {
+                addClass(className, inputs);
+            }
+        }
+        PENDING.set(inputs);
+    }
+
+    /**
+     * 成功したテストメソッドが使用したファイルを記録する.
+     * <p>
+     * クラスファイルの参照を読み取れなかった場合は、
+     * 変更がないと判定されないように空の記録を残す。
+     * </p>
+     *
+     * @param testClass テストクラス
+     * @param method テストメソッド
+     */
+    public static void commit(final Class<?> testClass, final Method method) {
+        if (!RECORDING) {
+            return;
+        }
+        Set<String> inputs = new TreeSet<>();
+        Set<String> pending = PENDING.get();
+        if (pending != null) {
+            inputs.addAll(pending);
+        }
+        addClass(testClass.getName(), inputs);
+        boolean complete = addReferences(inputs);
+        addFixture(testClass.getAnnotation(Fixture.class), inputs);
+        addFixture(method.getAnnotation(Fixture.class), inputs);
+
+        StringBuilder value = new StringBuilder();
+        if (complete) {
+            for (final String input : inputs) {
+                String hash = getHash(input);
+                if (hash == null) {
+                    continue;
+                }
+                if (value.length() > 0) {
+                    value.append(INPUT_SEPARATOR);
+                }
+                value.append(input).append(HASH_SEPARATOR).append(hash);
+            }
+        }
+        synchronized (RECORDS) {
+            RECORDS.setProperty(getKey(testClass, method), value.toString());
+        }
+    }
+
+    /**
+     * 実行中のテストメソッドで集めたファイルを破棄する.
+     */
+    public static void discard() {
+        PENDING.remove();
+    }
+
+    /**
+     * ファイルの内容のハッシュと、クラスファイルが参照しているクラスを破棄する.
+     * <p>
+     * ファイルを変更してから再度実行する場合に呼び出す。
+     * </p>
+     */
+    static void clear() {
+        HASHES.clear();
+        REFERENCES.clear();
+    }
+
+    /**
+     * この JVM で記録した内容をファイルに出力し、以降の判定に使用する.
+     */
+    public static void flush() {
+        synchronized (RECORDS) {
+            if (RECORDS.isEmpty()) {
+                return;
+            }
+            PREVIOUS.putAll(RECORDS);
+            RECORDS.clear();
+            store();
+        }
+    }
+
+    /**
+     * テストメソッドが使用したファイルが、前回の記録から変わっていないか否かを返す.
+     *
+     * @param testClass テストクラス
+     * @param method テストメソッド
+     * @return 記録があり、すべてのファイルが変わっていない場合 {@code true}
+     */
+    public static boolean isUnchanged(
+            final Class<?> testClass, final Method method) {
+        String value = PREVIOUS.getProperty(getKey(testClass, method));
+        if (StringUtil.isEmpty(value)) {
+            return false;
+        }
+        for (final String entry : value.split(INPUT_SEPARATOR)) {
+            int index = entry.lastIndexOf(HASH_SEPARATOR);
+            if (index < 0) {
+                return false;
+            }
+            String hash = getHash(entry.substring(0, index));
+            if (!entry.substring(index + 1).equals(hash)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * コンテナとその子のコンテナが使用しているファイルを集める.
+     *
+     * @param container コンテナ
+     * @param inputs 使用しているファイル
+     * @param visited 探索済みのコンテナ
+     */
+    private static void collect(
+            final S2Container container,
+            final Set<String> inputs,
+            final Set<S2Container> visited) {
+        if (!visited.add(container)) {
+            return;
+        }
+        String path = container.getPath();
+        if (!StringUtil.isEmpty(path)) {
+            addResource(path, inputs);
+        }
+        for (int i = 0; i < container.getComponentDefSize(); i++) {
+            ComponentDef componentDef = container.getComponentDef(i);
+            Class<?> clazz = componentDef.getComponentClass();
+            if (clazz != null) {
+                addClass(clazz.getName(), inputs);
+            }
+        }
+        for (int i = 0; i < container.getChildSize(); i++) {
+            collect(container.getChild(i), inputs, visited);
+        }
+    }
+
+    /**
+     * テストデータのファイルを追加する.
+     *
+     * @param fixture テストデータの指定
+     * @param inputs 使用しているファイル
+     */
+    private static void addFixture(
+            final Fixture fixture, final Set<String> inputs) {
+        if (fixture == null) {
+            return;
+        }
+        for (final String path : fixture.value()) {
+            addResource(path, inputs);
+        }
+    }
+
+    /**
+     * クラスファイルを追加する.
+     *
+     * @param className クラス名
+     * @param inputs 使用しているファイル
+     */
+    private static void addClass(
+            final String className, final Set<String> inputs) {
+        addResource(className.replace('.', '/') + ".class", inputs);
+    }
+
+    /**
+     * 使用しているクラスファイルが参照しているクラスファイルを、再帰的に追加する.
+     * <p>
+     * スーパークラスやインタフェース、フィールドやメソッドの型も参照に含まれる。
+     * </p>
+     *
+     * @param inputs 使用しているファイル
+     * @return すべてのクラスファイルの参照を読み取れた場合 {@code true}
+     */
+    static boolean addReferences(final Set<String> inputs) {
+        boolean complete = true;
+        Deque<String> queue = new ArrayDeque<>();
+        for (final String input : inputs) {
+            if (input.endsWith(".class")) {
+                queue.add(input);
+            }
+        }
+        while (!queue.isEmpty()) {
+            Set<String> references = getReferences(queue.remove());
+            if (references == null) {
+                complete = false;
+                continue;
+            }
+            for (final String reference : references) {
+                if (inputs.add(reference)) {
+                    queue.add(reference);
+                }
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * クラスファイルが参照している、クラスパスのディレクトリにあるクラスファイルを返す.
+     * <p>
+     * 参照はクラスファイルごとに一度だけ読み取る。
+     * 読み取れなかった場合は保持せず、次回に読み取り直す。
+     * </p>
+     *
+     * @param path クラスファイルのパス
+     * @return 参照しているクラスファイルのパス、読み取れない場合は {@code null}
+     */
+    private static Set<String> getReferences(final String path) {
+        Set<String> references = REFERENCES.get(path);
+        if (references == null) {
+            references = new TreeSet<>();
+            URL url = ResourceUtil.getResourceNoException(path);
+            if (url != null) {
+                try (InputStream in = url.openStream()) {
+                    for (final String name : ClassFileReferences.read(in)) {
+                        addResource(name + ".class", references);
+                    }
+                } catch (IOException e) {
+                    LOGGER.warn("failed to read references of " + path, e);
+                    return null;
+                }
+            }
+            REFERENCES.putIfAbsent(path, references);
+        }
+        return references;
+    }
+
+    /**
+     * クラスパスのディレクトリにあるファイルを追加する.
+     *
+     * @param path リソースのパス
+     * @param inputs 使用しているファイル
+     */
+    private static void addResource(
+            final String path, final Set<String> inputs) {
+        URL url = ResourceUtil.getResourceNoException(path);
+        if (url != null && "file".equals(url.getProtocol())) {
+            inputs.add(path);
+        }
+    }
+
+    /**
+     * リソースの内容のハッシュを返す.
+     * <p>
+     * ハッシュは JVM でリソースごとに一度だけ計算する。
+     * </p>
+     *
+     * @param path リソースのパス
+     * @return ハッシュ、リソースが存在しない場合は {@code null}
+     */
+    private static String getHash(final String path) {
+        String hash = HASHES.get(path);
+        if (hash == null) {
+            hash = computeHash(path);
+            if (hash == null) {
+                return null;
+            }
+            HASHES.putIfAbsent(path, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * リソースの内容のハッシュを計算する.
+     *
+     * @param path リソースのパス
+     * @return ハッシュ、リソースが存在しない場合は {@code null}
+     */
+    private static String computeHash(final String path) {
+        URL url = ResourceUtil.getResourceNoException(path);
+        if (url == null) {
+            return null;
+        }
+        try (InputStream in = url.openStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] buffer = new byte[8192];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                digest.update(buffer, 0, n);
+            }
+            return new BigInteger(1, digest.digest()).toString(16);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * テストメソッドを表すキーを返す.
+     *
+     * @param testClass テストクラス
+     * @param method テストメソッド
+     * @return キー
+     */
+    private static String getKey(
+            final Class<?> testClass, final Method method) {
+        return testClass.getName() + "#" + method.getName();
+    }
+
+    /**
+     * 前回の記録を読み込む.
+     */
+    private static void load() {
+        if (!FILE.exists()) {
+            return;
+        }
+        try (InputStream in = new FileInputStream(FILE)) {
+            PREVIOUS.load(in);
+        } catch (IOException e) {
+            LOGGER.warn("failed to read " + FILE, e);
+        }
+    }
+
+    /**
+     * 記録した内容をファイルに出力する.
+     */
+    private static void store() {
+        Properties properties = new Properties();
+        properties.putAll(PREVIOUS);
+        File parent = FILE.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        try (OutputStream out = new FileOutputStream(FILE)) {
+            properties.store(out, "S2JUnit4 test impact");
+        } catch (IOException e) {
+            LOGGER.warn("failed to write " + FILE, e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.seasar.framework.unit;
+
+import java.lang.reflect.Method;
+
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.Statement;
+import org.junit.runners.model.TestClass;
+
+/**
+ * 成功したテストメソッドが使用したファイルを記録する.
+ */
+class TestImpactStatement extends Statement {
+    /** 元の statement */
+    private final Statement _statement;
+    /** テストクラス */
+    private final Class<?> _testClass;
+    /** テストメソッド */
+    private final Method _method;
+
+    /**
+     * 使用したファイルを記録する statement を作成する.
+     *
+     * @param statement 元の statement
+     * @param clazz テストクラス
+     * @param method テストメソッド
+     */
+    public TestImpactStatement(
+            final Statement statement,
+            final TestClass clazz,
+            final FrameworkMethod method) {
+        _statement = statement;
+        _testClass = clazz.getJavaClass();
+        _method = method.getMethod();
+    }
+
+    @Override
+    public void evaluate() throws Throwable {
+        try {
+            _statement.evaluate();
+            TestImpact.commit(_testClass, _method);
+        } finally {
+            TestImpact.discard();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.seasar.framework.unit;
+
+/**
+ * {@link Seasar24} がテストを実行する際の処理の段階.
+ */
+public enum TestPhase {
+    /** S2JUnit4 の振る舞いの設定 */
+    ENVIRONMENT,
+    /** ルートコンテナの作成 */
+    ROOT_CONTAINER,
+    /** プールのスレッドでの、ルートコンテナの事前の構築 */
+    ROOT_CONTAINER_PREBUILD,
+    /** WARM deploy の設定 */
+    WARM_DEPLOY,
+    /** テストコンテキストの作成 */
+    TEST_CONTEXT,
+    /** コンテナへの dicon のインクルード */
+    CONTAINER_INCLUDE,
+    /** コンテナの初期化 */
+    CONTAINER_INIT,
+    /** フィールドへのバインディング */
+    FIELDS_BINDING,
+    /** テストデータの準備 */
+    TEST_DATA,
+    /** テストメソッドの本体 */
+    TEST,
+    /** トランザクションのコミットまたはロールバック */
+    TRANSACTION_END,
+    /** フィールドのバインディングの解除 */
+    FIELDS_UNBINDING,
+    /** コンテナの破棄 */
+    CONTAINER_DESTROY,
+    /** テストコンテキストの解放 */
+    TEST_CONTEXT_DISPOSE,
+    /** テストメソッドの全体(上記の段階を含む) */
+    METHOD
+}
@@ -0,0 +1,137 @@
+package org.seasar.framework.unit;
+
+import java.lang.reflect.Method;
+
+/**
+ * テストを実行する際の処理の段階が終了したことを表すイベント.
+ * <p>
+ * イベントを作成したスレッドを、処理の段階を実行したスレッドとして記録する。
+ * </p>
+ */
+public class TestPhaseEvent {
+    /** テストクラス */
+    private final Class<?> _testClass;
+    /** テストメソッド */
+    private final Method _method;
+    /** 処理の段階 */
+    private final TestPhase _phase;
+    /** 経過時間(ナノ秒) */
+    private final long _elapsedNanos;
+    /** 消費した CPU 時間(ナノ秒) */
+    private final long _cpuNanos;
+    /** 割り当てたメモリの量(バイト) */
+    private final long _allocatedBytes;
+    /** 処理の段階を実行したスレッドの ID */
+    private final long _threadId;
+
+    /**
+     * イベントを作成する.
+     *
+     * @param testClass テストクラス
+     * @param method テストメソッド、テストクラス単位の処理の場合は {@code null}
+     * @param phase 処理の段階
+     * @param elapsedNanos 経過時間(ナノ秒)
+     */
+    public TestPhaseEvent(
+            final Class<?> testClass,
+            final Method method,
+            final TestPhase phase,
+            final long elapsedNanos) {
+        this(testClass, method, phase, elapsedNanos, -1L, -1L);
+    }
+
+    /**
+     * CPU 時間とメモリの割り当て量を含むイベントを作成する.
+     *
+     * @param testClass テストクラス
+     * @param method テストメソッド、テストクラス単位の処理の場合は {@code null}
+     * @param phase 処理の段階
+     * @param elapsedNanos 経過時間(ナノ秒)
+     * @param cpuNanos 消費した CPU 時間(ナノ秒)、計測していない場合は {@code -1}
+     * @param allocatedBytes 割り当てたメモリの量(バイト)、
+     *          計測していない場合は {@code -1}
+     */
+    public TestPhaseEvent(
+            final Class<?> testClass,
+            final Method method,
+            final TestPhase phase,
+            final long elapsedNanos,
+            final long cpuNanos,
+            final long allocatedBytes) {
+        _testClass = testClass;
+        _method = method;
+        _phase = phase;
+        _elapsedNanos = elapsedNanos;
+        _cpuNanos = cpuNanos;
+        _allocatedBytes = allocatedBytes;
+        _threadId = Thread.currentThread().getId();
+    }
+
+    /**
+     * テストクラスを返す.
+     *
+     * @return テストクラス
+     */
+    public Class<?> getTestClass() {
+        return _testClass;
+    }
+
+    /**
+     * テストメソッドを返す.
+     *
+     * @return テストメソッド、テストクラス単位の処理の場合は {@code null}
+     */
+    public Method getMethod() {
+        return _method;
+    }
+
+    /**
+     * 処理の段階を返す.
+     *
+     * @return 処理の段階
+     */
+    public TestPhase getPhase() {
+        return _phase;
+    }
+
+    /**
+     * 経過時間を返す.
+     *
+     * @return 経過時間(ナノ秒)
+     */
+    public long getElapsedNanos() {
+        return _elapsedNanos;
+    }
+
+    /**
+     * テストを実行したスレッドが消費した CPU 時間を返す.
+     *
+     * @return CPU 時間(ナノ秒)、計測していない場合は {@code -1}
+     */
+    public long getCpuNanos() {
+        return _cpuNanos;
+    }
+
+    /**
+     * テストを実行したスレッドが割り当てたメモリの量を返す.
+     *
+     * @return メモリの量(バイト)、計測していない場合は {@code -1}
+     */
+    public long getAllocatedBytes() {
+        return _allocatedBytes;
+    }
+
+    /**
+     * 処理の段階を実行したスレッドの ID を返す.
+     * <p>
+     * タイムアウトを指定したテストメソッドの本体や、
+     * ルートコンテナの事前の構築、バックグラウンドでのコンテナの破棄は、
+     * テストメソッドを実行しているスレッドとは別のスレッドで実行される。
+     * </p>
+     *
+     * @return スレッドの ID
+     */
+    public long getThreadId() {
+        return _threadId;
+    }
+}
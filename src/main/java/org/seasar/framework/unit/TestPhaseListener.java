@@ -0,0 +1,18 @@
+package org.seasar.framework.unit;
+
+/**
+ * テストを実行する際の処理の段階ごとの計測結果を受け取るリスナー.
+ * <p>
+ * {@link TestPhaseMetrics#addListener(TestPhaseListener)} で登録するか、
+ * システムプロパティ {@value TestPhaseMetrics#LISTENER_KEY} に
+ * クラス名を指定する。
+ * </p>
+ */
+public interface TestPhaseListener {
+    /**
+     * 処理の段階が終了した際に呼び出される.
+     *
+     * @param event イベント
+     */
+    void phaseFinished(TestPhaseEvent event);
+}
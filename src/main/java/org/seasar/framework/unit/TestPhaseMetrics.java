@@ -0,0 +1,162 @@
+package org.seasar.framework.unit;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.seasar.framework.util.ClassUtil;
+import org.seasar.framework.util.StringUtil;
+
+/**
+ * 処理の段階ごとの計測結果を通知するリスナーのレジストリ.
+ * <p>
+ * 次のシステムプロパティで、リスナーとレポートを設定できる。
+ * </p>
+ * <dl>
+ * <dt>{@value #LISTENER_KEY}</dt>
+ * <dd>カンマ区切りの {@link TestPhaseListener} のクラス名</dd>
+ * <dt>{@value #REPORT_KEY}</dt>
+ * <dd>JVM の終了時に集計結果を出力するファイルのパス。
+ * 拡張子が {@code .json} の場合は JSON、それ以外は CSV で出力する</dd>
+ * <dt>{@value #ALLOCATION_REPORT_KEY}</dt>
+ * <dd>JVM の終了時に、テストメソッドごとのメモリの割り当て量と CPU 時間を、
+ * 割り当て量の多い順に CSV で出力するファイルのパス</dd>
+ * </dl>
+ */
+public final class TestPhaseMetrics {
+    /** リスナーのクラス名を指定するシステムプロパティのキー */
+    public static final String LISTENER_KEY =
+            "org.seasar.framework.unit.phaseListener";
+    /** レポートの出力先を指定するシステムプロパティのキー */
+    public static final String REPORT_KEY =
+            "org.seasar.framework.unit.phaseReport";
+    /** メモリの割り当て量のレポートの出力先を指定するシステムプロパティのキー */
+    public static final String ALLOCATION_REPORT_KEY =
+            "org.seasar.framework.unit.allocationReport";
+
+    /** 登録されているリスナー */
+    private static final List<TestPhaseListener> LISTENERS =
+            new CopyOnWriteArrayList<>();
+
+    static {
+        registerListeners(System.getProperty(LISTENER_KEY));
+        registerReport(System.getProperty(REPORT_KEY));
+        registerAllocationReport(System.getProperty(ALLOCATION_REPORT_KEY));
+    }
+
+    /** ユーティリティクラスであるため、インスタンスを生成しない. */
+    private TestPhaseMetrics() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * リスナーを登録する.
+     *
+     * @param listener リスナー
+     */
+    public static void addListener(final TestPhaseListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * リスナーの登録を解除する.
+     *
+     * @param listener リスナー
+     */
+    public static void removeListener(final TestPhaseListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * リスナーが登録されているか否かを返す.
+     *
+     * @return 登録されている場合、{@code true}
+     */
+    static boolean hasListeners() {
+        return !LISTENERS.isEmpty();
+    }
+
+    /**
+     * 登録されているリスナーにイベントを通知する.
+     *
+     * @param event イベント
+     */
+    static void fire(final TestPhaseEvent event) {
+        for (final TestPhaseListener listener : LISTENERS) {
+            listener.phaseFinished(event);
+        }
+    }
+
+    /**
+     * システムプロパティで指定されたリスナーを登録する.
+     * <p>
+     * 作成できないリスナーは、標準エラー出力に報告して無視する。
+     * </p>
+     *
+     * @param classNames カンマ区切りのリスナーのクラス名
+     */
+    static void registerListeners(final String classNames) {
+        if (StringUtil.isEmpty(classNames)) {
+            return;
+        }
+        for (final String className : classNames.split(",")) {
+            if (StringUtil.isEmpty(className.trim())) {
+                continue;
+            }
+            try {
+                addListener(TestPhaseListener.class.cast(
+                        ClassUtil.newInstance(className.trim())));
+            } catch (RuntimeException | LinkageError e) {
+                System.err.println("Ignored " + LISTENER_KEY + " "
+                        + className.trim() + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * JVM の終了時に集計結果を出力するレポートを登録する.
+     *
+     * @param path 出力先のパス
+     */
+    private static void registerReport(final String path) {
+        if (StringUtil.isEmpty(path)) {
+            return;
+        }
+        final TestPhaseReport report = new TestPhaseReport();
+        addListener(report);
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                try {
+                    report.write(new File(path));
+                } catch (IOException e) {
+                    System.err.println(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * JVM の終了時にメモリの割り当て量を出力するレポートを登録する.
+     *
+     * @param path 出力先のパス
+     */
+    private static void registerAllocationReport(final String path) {
+        if (StringUtil.isEmpty(path)) {
+            return;
+        }
+        final AllocationReport report = new AllocationReport();
+        addListener(report);
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                try {
+                    report.write(new File(path));
+                } catch (IOException e) {
+                    System.err.println(e);
+                }
+            }
+        });
+    }
+}
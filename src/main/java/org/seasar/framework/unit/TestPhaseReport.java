@@ -0,0 +1,248 @@
+package org.seasar.framework.unit;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 処理の段階ごとの経過時間を、テストクラスごとに集計するリスナー.
+ * <p>
+ * 件数、合計、平均、パーセンタイル(50%、90%、99%)、最大値を
+ * CSV または JSON で出力する。
+ * </p>
+ */
+public class TestPhaseReport implements TestPhaseListener {
+    /** CSV のヘッダー */
+    private static final String CSV_HEADER =
+            "class,phase,count,total_ns,mean_ns,p50_ns,p90_ns,p99_ns,max_ns";
+
+    /** テストクラス名ごと、処理の段階ごとの計測結果 */
+    private final Map<String, Map<TestPhase, Samples>> _samples =
+            new TreeMap<>();
+
+    @Override
+    public synchronized void phaseFinished(final TestPhaseEvent event) {
+        String className = event.getTestClass().getName();
+        Map<TestPhase, Samples> phases = _samples.get(className);
+        if (phases == null) {
+            phases = new EnumMap<>(TestPhase.class);
+            _samples.put(className, phases);
+        }
+        Samples samples = phases.get(event.getPhase());
+        if (samples == null) {
+            samples = new Samples();
+            phases.put(event.getPhase(), samples);
+        }
+        samples.add(event.getElapsedNanos());
+    }
+
+    /**
+     * 集計結果をファイルに出力する.
+     * <p>
+     * 拡張子が {@code .json} の場合は JSON、それ以外は CSV で出力する。
+     * </p>
+     *
+     * @param file 出力先のファイル
+     * @throws IOException 出力に失敗した場合
+     */
+    public void write(final File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            if (file.getName().endsWith(".json")) {
+                writeJson(writer);
+            } else {
+                writeCsv(writer);
+            }
+        }
+    }
+
+    /**
+     * 集計結果を CSV で出力する.
+     *
+     * @param writer 出力先
+     */
+    public synchronized void writeCsv(final PrintWriter writer) {
+        writer.println(CSV_HEADER);
+        for (final Map.Entry<String, Map<TestPhase, Samples>> clazz
+                : _samples.entrySet()) {
+            for (final Map.Entry<TestPhase, Samples> phase
+                    : clazz.getValue().entrySet()) {
+                Samples s = phase.getValue();
+                writer.printf("%s,%s,%d,%d,%d,%d,%d,%d,%d%n",
+                        clazz.getKey(), phase.getKey(), s.count(), s.total(),
+                        s.mean(), s.percentile(50), s.percentile(90),
+                        s.percentile(99), s.max());
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * 集計結果を JSON で出力する.
+     *
+     * @param writer 出力先
+     */
+    public synchronized void writeJson(final PrintWriter writer) {
+        writer.println("{\"classes\": [");
+        String classSeparator = "";
+        for (final Map.Entry<String, Map<TestPhase, Samples>> clazz
+                : _samples.entrySet()) {
+            writer.print(classSeparator);
+            writer.printf("  {\"class\": \"%s\", \"phases\": [%n",
+                    escapeJson(clazz.getKey()));
+            String phaseSeparator = "";
+            for (final Map.Entry<TestPhase, Samples> phase
+                    : clazz.getValue().entrySet()) {
+                Samples s = phase.getValue();
+                writer.print(phaseSeparator);
+                writer.printf("    {\"phase\": \"%s\", \"count\": %d, "
+                        + "\"totalNanos\": %d, \"meanNanos\": %d, "
+                        + "\"p50Nanos\": %d, \"p90Nanos\": %d, "
+                        + "\"p99Nanos\": %d, \"maxNanos\": %d}",
+                        phase.getKey(), s.count(), s.total(), s.mean(),
+                        s.percentile(50), s.percentile(90),
+                        s.percentile(99), s.max());
+                phaseSeparator = String.format(",%n");
+            }
+            writer.printf("%n  ]}");
+            classSeparator = String.format(",%n");
+        }
+        writer.printf("%n]}%n");
+        writer.flush();
+    }
+
+    /**
+     * JSON の文字列として出力できるように、文字をエスケープする.
+     *
+     * @param value 文字列
+     * @return エスケープした文字列
+     */
+    static String escapeJson(final String value) {
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                builder.append("\\\"");
+                break;
+            case '\\':
+                builder.append("\\\\");
+                break;
+            case '\n':
+                builder.append("\\n");
+                break;
+            case '\r':
+                builder.append("\\r");
+                break;
+            case '\t':
+                builder.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    builder.append(String.format("\\u%04x", (int) c));
+                } else {
+                    builder.append(c);
+                }
+                break;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 計測結果の集合.
+     */
+    private static final class Samples {
+        /** 計測結果 */
+        private long[] _values = new long[16];
+        /** 計測結果の件数 */
+        private int _size = 0;
+        /** 計測結果がソートされているか */
+        private boolean _sorted = true;
+
+        /**
+         * 計測結果を追加する.
+         *
+         * @param value 計測結果
+         */
+        void add(final long value) {
+            if (_size == _values.length) {
+                _values = Arrays.copyOf(_values, _size * 2);
+            }
+            _values[_size++] = value;
+            _sorted = false;
+        }
+
+        /**
+         * 件数を返す.
+         *
+         * @return 件数
+         */
+        int count() {
+            return _size;
+        }
+
+        /**
+         * 合計を返す.
+         *
+         * @return 合計
+         */
+        long total() {
+            long total = 0;
+            for (int i = 0; i < _size; i++) {
+                total += _values[i];
+            }
+            return total;
+        }
+
+        /**
+         * 平均を返す.
+         *
+         * @return 平均
+         */
+        long mean() {
+            if (_size == 0) {
+                return 0;
+            }
+            return total() / _size;
+        }
+
+        /**
+         * 最大値を返す.
+         *
+         * @return 最大値
+         */
+        long max() {
+            return percentile(100);
+        }
+
+        /**
+         * パーセンタイルを返す.
+         *
+         * @param percent パーセント
+         * @return パーセンタイル
+         */
+        long percentile(final int percent) {
+            if (_size == 0) {
+                return 0;
+            }
+            if (!_sorted) {
+                Arrays.sort(_values, 0, _size);
+                _sorted = true;
+            }
+            int rank = (int) Math.ceil(percent / 100.0 * _size);
+            return _values[Math.max(rank, 1) - 1];
+        }
+    }
+}
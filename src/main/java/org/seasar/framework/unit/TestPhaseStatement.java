@@ -0,0 +1,51 @@
+package org.seasar.framework.unit;
+
+import java.lang.reflect.Method;
+
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.Statement;
+import org.junit.runners.model.TestClass;
+
+/**
+ * 元の statement の実行時間を、処理の段階として計測する.
+ */
+class TestPhaseStatement extends Statement {
+    /** 元の statement */
+    private final Statement _statement;
+
+    /** テストクラス */
+    private final Class<?> _testClass;
+    /** テストメソッド */
+    private final Method _method;
+    /** 処理の段階 */
+    private final TestPhase _phase;
+
+    /**
+     * 実行時間を計測する statement を作成する.
+     *
+     * @param statement 元の statement
+     * @param clazz テストクラス
+     * @param method テストメソッド
+     * @param phase 処理の段階
+     */
+    public TestPhaseStatement(
+            final Statement statement,
+            final TestClass clazz,
+            final FrameworkMethod method,
+            final TestPhase phase) {
+        _statement = statement;
+        _testClass = clazz.getJavaClass();
+        _method = method.getMethod();
+        _phase = phase;
+    }
+
+    @Override
+    public void evaluate() throws Throwable {
+        TestPhaseTimer timer = TestPhaseTimer.start(_phase);
+        try {
+            _statement.evaluate();
+        } finally {
+            timer.stop(_testClass, _method);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.seasar.framework.unit;
+
+import java.lang.reflect.Method;
+
+/**
+ * 処理の段階の経過時間を計測する.
+ * <p>
+ * リスナーが登録されている場合は、現在のスレッドが消費した CPU 時間と、
+ * 割り当てたメモリの量も計測する。
+ * </p>
+ */
+final class TestPhaseTimer {
+    /** 処理の段階 */
+    private final TestPhase _phase;
+    /** 計測を開始した時刻(ナノ秒) */
+    private final long _start;
+    /** 計測を開始した時点の CPU 時間(ナノ秒)、計測しない場合は {@code -1} */
+    private final long _startCpu;
+    /** 計測を開始した時点のメモリの割り当て量、計測しない場合は {@code -1} */
+    private final long _startAllocated;
+
+    /**
+     * 計測を開始する.
+     *
+     * @param phase 処理の段階
+     */
+    private TestPhaseTimer(final TestPhase phase) {
+        _phase = phase;
+        if (TestPhaseMetrics.hasListeners()) {
+            _startCpu = ThreadResourceMeter.currentCpuNanos();
+            _startAllocated = ThreadResourceMeter.currentAllocatedBytes();
+        } else {
+            _startCpu = -1L;
+            _startAllocated = -1L;
+        }
+        _start = System.nanoTime();
+    }
+
+    /**
+     * 計測を開始する.
+     *
+     * @param phase 処理の段階
+     * @return タイマー
+     */
+    public static TestPhaseTimer start(final TestPhase phase) {
+        return new TestPhaseTimer(phase);
+    }
+
+    /**
+     * 計測を終了し、リスナーに通知する.
+     *
+     * @param testClass テストクラス
+     * @param method テストメソッド、テストクラス単位の処理の場合は {@code null}
+     */
+    public void stop(final Class<?> testClass, final Method method) {
+        long elapsed = System.nanoTime() - _start;
+        if (!TestPhaseMetrics.hasListeners()) {
+            return;
+        }
+        long cpu = difference(_startCpu, ThreadResourceMeter.currentCpuNanos());
+        long allocated = difference(
+                _startAllocated, ThreadResourceMeter.currentAllocatedBytes());
+        TestPhaseMetrics.fire(new TestPhaseEvent(
+                testClass, method, _phase, elapsed, cpu, allocated));
+    }
+
+    /**
+     * 計測を開始した時点からの差分を返す.
+     *
+     * @param start 計測を開始した時点の値
+     * @param end 計測を終了した時点の値
+     * @return 差分、計測していない場合は {@code -1}
+     */
+    private static long difference(final long start, final long end) {
+        if (start < 0 || end < 0) {
+            return -1L;
+        }
+        return end - start;
+    }
+}
@@ -0,0 +1,130 @@
+package org.seasar.framework.unit;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * 現在のスレッドが消費した CPU 時間と、割り当てたメモリの量を取得する.
+ * <p>
+ * メモリの割り当て量は {@code com.sun.management.ThreadMXBean} で取得するため、
+ * HotSpot 以外の JVM では取得できない場合がある。
+ * 取得できない値は {@code -1} を返す。
+ * </p>
+ */
+final class ThreadResourceMeter {
+    /** スレッドの管理インタフェース */
+    private static final ThreadMXBean THREADS =
+            ManagementFactory.getThreadMXBean();
+    /** CPU 時間を取得できるか否か */
+    private static final boolean CPU_TIME_SUPPORTED = enableCpuTime();
+    /** メモリの割り当て量を取得できるか否か */
+    private static final boolean ALLOCATION_SUPPORTED = enableAllocation();
+
+    /** ユーティリティクラスであるため、インスタンスを生成しない. */
+    private ThreadResourceMeter() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 現在のスレッドが消費した CPU 時間を返す.
+     *
+     * @return CPU 時間(ナノ秒)、取得できない場合は {@code -1}
+     */
+    public static long currentCpuNanos() {
+        if (!CPU_TIME_SUPPORTED) {
+            return -1L;
+        }
+        return THREADS.getCurrentThreadCpuTime();
+    }
+
+    /**
+     * 現在のスレッドが割り当てたメモリの量を返す.
+     *
+     * @return 割り当てたメモリの量(バイト)、取得できない場合は {@code -1}
+     */
+    public static long currentAllocatedBytes() {
+        if (!ALLOCATION_SUPPORTED) {
+            return -1L;
+        }
+        return Allocation.current();
+    }
+
+    /**
+     * CPU 時間の計測を有効にする.
+     *
+     * @return CPU 時間を取得できる場合、{@code true}
+     */
+    private static boolean enableCpuTime() {
+        try {
+            if (!THREADS.isCurrentThreadCpuTimeSupported()) {
+                return false;
+            }
+            if (!THREADS.isThreadCpuTimeEnabled()) {
+                THREADS.setThreadCpuTimeEnabled(true);
+            }
+            return true;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * メモリの割り当て量の計測を有効にする.
+     *
+     * @return メモリの割り当て量を取得できる場合、{@code true}
+     */
+    private static boolean enableAllocation() {
+        try {
+            return Allocation.enable();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * {@code com.sun.management.ThreadMXBean} を参照するクラス.
+     * <p>
+     * {@code com.sun.management} がない JVM でも
+     * {@link ThreadResourceMeter} を読み込めるように、参照をこのクラスに分離する。
+     * </p>
+     */
+    private static final class Allocation {
+        /** インスタンスを生成しない. */
+        private Allocation() {
+        }
+
+        /**
+         * メモリの割り当て量の計測を有効にする.
+         *
+         * @return メモリの割り当て量を取得できる場合、{@code true}
+         */
+        static boolean enable() {
+            if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+                return false;
+            }
+            com.sun.management.ThreadMXBean threads =
+                    (com.sun.management.ThreadMXBean) THREADS;
+            try {
+                if (!threads.isThreadAllocatedMemorySupported()) {
+                    return false;
+                }
+                if (!threads.isThreadAllocatedMemoryEnabled()) {
+                    threads.setThreadAllocatedMemoryEnabled(true);
+                }
+                return true;
+            } catch (UnsupportedOperationException | SecurityException e) {
+                return false;
+            }
+        }
+
+        /**
+         * 現在のスレッドが割り当てたメモリの量を返す.
+         *
+         * @return 割り当てたメモリの量(バイト)
+         */
+        static long current() {
+            return ((com.sun.management.ThreadMXBean) THREADS)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.seasar.framework.unit;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 読み込みを要求されたクラスの名前を記録する {@link UnitClassLoader}.
+ * <p>
+ * dicon のコンポーネントや WARM deploy のクラスのように、
+ * コンテキストクラスローダーから名前で読み込まれたクラスを
+ * {@link TestImpact} がテストメソッドの使用したファイルとして記録する。
+ * </p>
+ */
+class TrackingUnitClassLoader extends UnitClassLoader {
+    /** 読み込みを要求されたクラスの名前 */
+    private final Set<String> _classNames =
+            Collections.newSetFromMap(
+                    new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * クラスローダーを作成する.
+     *
+     * @param parent 親のクラスローダー
+     */
+    public TrackingUnitClassLoader(final ClassLoader parent) {
+        super(parent);
+    }
+
+    @Override
+    protected Class<?> loadClass(final String name, final boolean resolve)
+            throws ClassNotFoundException {
+        Class<?> clazz = super.loadClass(name, resolve);
+        _classNames.add(name);
+        return clazz;
+    }
+
+    /**
+     * 読み込みを要求されたクラスの名前を返す.
+     *
+     * @return クラスの名前
+     */
+    public Set<String> getClassNames() {
+        return Collections.unmodifiableSet(_classNames);
+    }
+}
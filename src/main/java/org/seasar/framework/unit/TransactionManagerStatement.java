@@ -1,12 +1,16 @@
 package org.seasar.framework.unit;
 
 import java.lang.reflect.Method;
+import java.sql.Savepoint;
+import java.util.List;
 
 import javax.transaction.TransactionManager;
 
 import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.MultipleFailureException;
 import org.junit.runners.model.Statement;
 import org.junit.runners.model.TestClass;
+import org.seasar.framework.util.tiger.CollectionsUtil;
 
 /**
  * {@link TransactionManager} でトランザクションの開始、ロールバックを実行する.
@@ -19,6 +23,8 @@ class TransactionManagerStatement extends Statement {
     private final Class<?> _testClass;
     /** テストメソッド */
     private final Method _method;
+    /** テストクラスで共有するトランザクション */
+    private final ClassTransaction _classTransaction;
 
     /** テストクラスのイントロスペクター */
     private S2TestIntrospector _introspector;
@@ -37,9 +43,28 @@ class TransactionManagerStatement extends Statement {
             final Statement statement,
             final TestClass clazz,
             final FrameworkMethod method) {
+        this(statement, clazz, method, null);
+    }
+
+    /**
+     * テストクラスで共有するトランザクション内で、
+     * テストメソッドをセーブポイントで分離する {@code Statement} を作成する.
+     *
+     * @param statement 元の statement
+     * @param clazz テストクラス
+     * @param method テストメソッド
+     * @param classTransaction テストクラスで共有するトランザクション、
+     *          共有しない場合は {@code null}
+     */
+    public TransactionManagerStatement(
+            final Statement statement,
+            final TestClass clazz,
+            final FrameworkMethod method,
+            final ClassTransaction classTransaction) {
         _statement = statement;
         _testClass = clazz.getJavaClass();
         _method = method.getMethod();
+        _classTransaction = classTransaction;
     }
 
     @Override
@@ -48,12 +73,21 @@ class TransactionManagerStatement extends Statement {
         _introspector = ConventionIntrospectorRepository.get();
 
         if (!_testContext.isJtaEnabled()) {
+            checkNoFixture("JTA is disabled");
             _statement.evaluate();
             return;
         }
 
+        if (_classTransaction != null
+                && _introspector.needsTransaction(_testClass, _method)) {
+            evaluateInSavepoint();
+            return;
+        }
+
         TransactionManager tm = null;
-        if (_introspector.needsTransaction(_testClass, _method)) {
+        if (!_introspector.needsTransaction(_testClass, _method)) {
+            checkNoFixture("no transaction is started");
+        } else {
             try {
                 tm = _testContext.getComponent(TransactionManager.class);
                 tm.begin();
@@ -63,15 +97,22 @@ class TransactionManagerStatement extends Statement {
         }
 
         try {
+            TestPhaseTimer timer = TestPhaseTimer.start(TestPhase.TEST_DATA);
             _testContext.prepareTestData();
+            FixtureLoader.load(_testClass, _testContext);
+            FixtureLoader.load(_method, _testContext);
+            timer.stop(_testClass, _method);
+
             _statement.evaluate();
 
             if (tm != null) {
+                timer = TestPhaseTimer.start(TestPhase.TRANSACTION_END);
                 if (requiresTransactionCommitment()) {
                     tm.commit();
                 } else {
                     tm.rollback();
                 }
+                timer.stop(_testClass, _method);
             }
         } catch (Throwable t) {
             if (tm != null) {
@@ -81,6 +122,58 @@ class TransactionManagerStatement extends Statement {
         }
     }
 
+    /**
+     * トランザクションを開始しない場合に、テストデータが指定されていないことを確認する.
+     * <p>
+     * {@link org.seasar.framework.unit.annotation.Fixture} のテストデータは
+     * トランザクション内で登録し、テストメソッドの終了後にロールバックする。
+     * トランザクションがない場合は登録したデータが残るため、エラーにする。
+     * </p>
+     *
+     * @param reason トランザクションを開始しない理由
+     */
+    private void checkNoFixture(final String reason) {
+        if (FixtureLoader.hasFixture(_testClass, _method)) {
+            throw new IllegalStateException("@Fixture of "
+                    + _testClass.getName() + "#" + _method.getName()
+                    + " cannot be loaded because " + reason);
+        }
+    }
+
+    /**
+     * テストクラスで共有するトランザクション内で、
+     * セーブポイントを設定してテストを実行し、セーブポイントまでロールバックする.
+     * <p>
+     * テストとロールバックの両方が失敗した場合は、両方の例外を報告する。
+     * </p>
+     *
+     * @throws Throwable 何らかの例外またはエラーが発生した場合
+     */
+    private void evaluateInSavepoint() throws Throwable {
+        _classTransaction.begin(_testClass, _testContext);
+        Savepoint savepoint = _classTransaction.setSavepoint();
+        List<Throwable> errors = CollectionsUtil.newArrayList();
+        try {
+            TestPhaseTimer timer = TestPhaseTimer.start(TestPhase.TEST_DATA);
+            _testContext.prepareTestData();
+            FixtureLoader.load(_method, _testContext);
+            timer.stop(_testClass, _method);
+
+            _statement.evaluate();
+        } catch (Throwable t) {
+            errors.add(t);
+        }
+        try {
+            TestPhaseTimer timer =
+                    TestPhaseTimer.start(TestPhase.TRANSACTION_END);
+            _classTransaction.rollback(savepoint);
+            timer.stop(_testClass, _method);
+        } catch (Throwable t) {
+            errors.add(t);
+        }
+        MultipleFailureException.assertEmpty(errors);
+    }
+
     /**
      * テストが失敗していない場合かつトランザクションをコミットするように設定されてい
      * る場合に<code>true</code>を返します.
@@ -0,0 +1,83 @@
+package org.seasar.framework.unit;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.seasar.framework.util.ResourceUtil;
+
+/**
+ * WARM deploy が可能か否かの判定結果をキャッシュする.
+ * <p>
+ * WARM deploy に必要な dicon が存在するか否かは、クラスローダーごとに
+ * 一度だけクラスパスを探索して判定する。
+ * テストメソッドごとに作成される {@link UnitClassLoader} は親に委譲するだけなので、
+ * その親のクラスローダーをキーにする。
+ * {@code convention.dicon} などを追加、削除した場合は {@link #invalidate()} を呼び出す。
+ * </p>
+ */
+final class WarmDeployConfiguration {
+    /** WARM deploy の設定ファイルのパス */
+    static final String WARM_DEPLOY_PATH = "warmdeploy.dicon";
+
+    /** クラスローダーごとの WARM deploy が可能か否かの判定結果 */
+    private static final Map<ClassLoader, Boolean> AVAILABILITIES =
+            Collections.synchronizedMap(
+                    new WeakHashMap<ClassLoader, Boolean>());
+
+    /** ユーティリティクラスであるため、インスタンスを生成しない. */
+    private WarmDeployConfiguration() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 現在のクラスローダーで WARM deploy が可能な場合 {@code true} を返す.
+     *
+     * @return WARM deploy に必要な dicon が揃っている場合 {@code true}
+     */
+    public static boolean isAvailable() {
+        ClassLoader key =
+                getKey(Thread.currentThread().getContextClassLoader());
+        if (key == null) {
+            return lookup();
+        }
+        Boolean result = AVAILABILITIES.get(key);
+        if (result == null) {
+            result = lookup();
+            AVAILABILITIES.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * キャッシュしている判定結果を破棄する.
+     */
+    public static void invalidate() {
+        AVAILABILITIES.clear();
+    }
+
+    /**
+     * 判定結果のキーにするクラスローダーを返す.
+     *
+     * @param classLoader コンテキストクラスローダー
+     * @return キーにするクラスローダー
+     */
+    private static ClassLoader getKey(final ClassLoader classLoader) {
+        if (classLoader instanceof UnitClassLoader) {
+            return classLoader.getParent();
+        }
+        return classLoader;
+    }
+
+    /**
+     * クラスパスを探索して、WARM deploy に必要な dicon が揃っているか判定する.
+     *
+     * @return WARM deploy に必要な dicon が揃っている場合 {@code true}
+     */
+    private static boolean lookup() {
+        return !ResourceUtil.isExist("s2container.dicon")
+                && ResourceUtil.isExist("convention.dicon")
+                && ResourceUtil.isExist("creator.dicon")
+                && ResourceUtil.isExist("customizer.dicon");
+    }
+}
@@ -0,0 +1,66 @@
+package org.seasar.framework.unit.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * jdbc.dicon で設定されたデータソースの接続先を、組み込みのインメモリデータベースに切り替える.
+ * <p>
+ * スキーマのスクリプトは、接続先の URL ごとに JVM で一度だけ実行される。
+ * インメモリデータベースは JVM が終了するまで保持されるように
+ * URL を指定する(H2 の場合は {@code DB_CLOSE_DELAY=-1})。
+ * JDBC ドライバーはテストのクラスパスに追加する。
+ * </p>
+ *
+ * <pre>
+ * &#064;RunWith(Seasar24.class)
+ * &#064;EmbeddedDatabase(schema = "schema.sql")
+ * public class EmployeeDaoTest {
+ *   ...
+ * }
+ * </pre>
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface EmbeddedDatabase {
+    /**
+     * JDBC ドライバーのクラス名を返す.
+     *
+     * @return JDBC ドライバーのクラス名
+     */
+    String driverClassName() default "org.h2.Driver";
+
+    /**
+     * 接続先の URL を返す.
+     *
+     * @return 接続先の URL
+     */
+    String url() default "jdbc:h2:mem:s2junit4;DB_CLOSE_DELAY=-1";
+
+    /**
+     * ユーザー名を返す.
+     *
+     * @return ユーザー名
+     */
+    String user() default "sa";
+
+    /**
+     * パスワードを返す.
+     *
+     * @return パスワード
+     */
+    String password() default "";
+
+    /**
+     * スキーマを作成するスクリプトのパスを返す.
+     *
+     * @return クラスパスからのスクリプトのパス、実行しない場合は空文字列
+     */
+    String schema() default "";
+}
@@ -0,0 +1,35 @@
+package org.seasar.framework.unit.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * テストメソッドの実行前にデータベースに登録するテストデータを指定する.
+ * <p>
+ * テストデータのファイル(Excel)は JVM で一度だけ読み込まれ、
+ * メモリ上に保持される。
+ * データベースへの登録は、トランザクション内でバッチ更新により行う。
+ * テストクラスに指定したテストデータ、テストメソッドに指定したテストデータの順に登録する。
+ * </p>
+ *
+ * <pre>
+ * &#064;Fixture("jp/example/dao/EmployeeDaoTest.xls")
+ * public class EmployeeDaoTest {
+ *   ...
+ * }
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Fixture {
+    /**
+     * テストデータのファイルのパスを返す.
+     *
+     * @return クラスパスからのテストデータのファイルのパス
+     */
+    String[] value();
+}
@@ -0,0 +1,24 @@
+package org.seasar.framework.unit.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * テストメソッドごとにクラスローダーを作成する.
+ * <p>
+ * システムプロパティ {@code org.seasar.framework.unit.classLoaderScope} で
+ * クラスローダーを共有する設定をしている場合でも、
+ * このアノテーションを指定したテストクラスやテストメソッドは、
+ * テストメソッドごとに新しいクラスローダーで実行する。
+ * </p>
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface IsolatedClassLoader {
+}
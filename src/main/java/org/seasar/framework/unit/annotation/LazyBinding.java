@@ -0,0 +1,26 @@
+package org.seasar.framework.unit.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * インタフェース型のフィールドに、コンポーネントを遅延してバインディングする.
+ * <p>
+ * テストクラスに指定した場合はすべてのインタフェース型のフィールド、
+ * フィールドに指定した場合はそのフィールドに、コンポーネントの代わりに
+ * プロキシを設定する。
+ * コンポーネントは、プロキシのメソッドが最初に呼び出された時点で
+ * S2 コンテナから取得する。
+ * インタフェース型でないフィールドは、通常どおりバインディングする。
+ * </p>
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.FIELD })
+public @interface LazyBinding {
+}
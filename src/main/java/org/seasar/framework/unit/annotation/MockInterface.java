@@ -0,0 +1,49 @@
+package org.seasar.framework.unit.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * インタフェースのモックを S2 コンテナに登録する.
+ * <p>
+ * {@link org.seasar.framework.aop.interceptors.MockInterceptor} 型のフィールドに指定すると、
+ * テストメソッドの実行前に {@link #value()} のインタフェースを実装したモックを
+ * コンテナに登録し、モックの振る舞いを設定する
+ * {@link org.seasar.framework.aop.interceptors.MockInterceptor} をフィールドに設定する。
+ * モックのクラスはインタフェースごとに一度だけ作成し、JVM で共有する。
+ * </p>
+ *
+ * <pre>
+ * &#064;MockInterface(EmployeeDao.class)
+ * MockInterceptor employeeDaoMock;
+ *
+ * public void testFindAll() {
+ *   employeeDaoMock.setReturnValue("findAll", employees);
+ *   ...
+ * }
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface MockInterface {
+    /**
+     * モックにするインタフェースを返す.
+     *
+     * @return モックにするインタフェース
+     */
+    Class<?> value();
+
+    /**
+     * モックを登録するコンポーネント名を返す.
+     * <p>
+     * 指定しない場合は、型だけで登録する。
+     * </p>
+     *
+     * @return コンポーネント名
+     */
+    String name() default "";
+}
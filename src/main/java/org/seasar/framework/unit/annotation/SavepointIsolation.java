@@ -0,0 +1,30 @@
+package org.seasar.framework.unit.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * テストメソッドをセーブポイントで分離する.
+ * <p>
+ * テストクラスでトランザクションを一度だけ開始し、
+ * テストクラスに指定した {@link Fixture} を登録する。
+ * 各テストメソッドはセーブポイント内で実行され、
+ * 終了後にセーブポイントまでロールバックする。
+ * テストクラスのトランザクションは、テストクラスの終了時にロールバックする。
+ * </p>
+ * <p>
+ * トランザクションを共有するため、S2 コンテナはテストクラスで共有される
+ * ({@link SharedContainer.Scope#CLASS} と同じ)。
+ * このモードでは、テストメソッドの変更はコミットされない。
+ * </p>
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface SavepointIsolation {
+}
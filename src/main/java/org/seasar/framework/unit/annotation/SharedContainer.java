@@ -0,0 +1,58 @@
+package org.seasar.framework.unit.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * テストメソッド間で S2 コンテナを共有する範囲を指定する.
+ * <p>
+ * {@link Scope#CLASS} を指定すると、ルートコンテナ、テストコンテキスト、
+ * コンテナの初期化はテストクラスで一度だけ実行され、
+ * すべてのテストメソッドで同じコンテナを使用する。
+ * テストメソッドごとに、テストコンテキストのテストメソッドと
+ * フィールドのバインディングだけを設定し直す。
+ * </p>
+ * <p>
+ * コンテナの構成には、コンテナを作成した後に最初に実行するテストメソッドの
+ * 設定が使われるため、{@code RootDicon} などはテストクラスに指定する。
+ * テストメソッドの開始時にはリクエストスコープのコンポーネントを破棄する。
+ * {@code Before} やテストメソッドでコンポーネントを登録した場合は、
+ * そのテストメソッドの終了後にコンテナを破棄し、次のテストメソッドで作成し直す。
+ * テストメソッドごとにモックを登録する {@code Mock} と {@code MockInterface} は
+ * 使用できない。
+ * </p>
+ *
+ * <pre>
+ * &#064;RunWith(Seasar24.class)
+ * &#064;SharedContainer(scope = SharedContainer.Scope.CLASS)
+ * public class HogeTest {
+ *   ...
+ * }
+ * </pre>
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface SharedContainer {
+    /**
+     * S2 コンテナを共有する範囲.
+     */
+    enum Scope {
+        /** テストメソッドごとにコンテナを作成する */
+        METHOD,
+        /** テストクラスでコンテナを共有する */
+        CLASS
+    }
+
+    /**
+     * S2 コンテナを共有する範囲を返す.
+     *
+     * @return S2 コンテナを共有する範囲
+     */
+    Scope scope() default Scope.CLASS;
+}
@@ -0,0 +1,26 @@
+package org.seasar.framework.unit.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * テストメソッドの終了時に、S2 コンテナを同期して破棄する.
+ * <p>
+ * システムプロパティ {@code org.seasar.framework.unit.asyncTeardownThreads} で
+ * コンテナをバックグラウンドで破棄する設定をしている場合でも、
+ * このアノテーションを指定したテストクラスやテストメソッドでは、
+ * 次のテストメソッドを開始する前にコンテナの破棄を完了する。
+ * 破棄の処理が JVM で共有される状態を変更するコンポーネントや、
+ * 次のテストメソッドと並行して破棄できないコンポーネントを使用する場合に指定する。
+ * </p>
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface SynchronousTeardown {
+}
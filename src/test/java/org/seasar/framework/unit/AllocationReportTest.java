@@ -0,0 +1,70 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+/**
+ * {@link AllocationReport} のテスト.
+ */
+public class AllocationReportTest {
+
+    /**
+     * CSV のフィールドの引用符を二重にすること.
+     */
+    @Test
+    public void escapeCsv() {
+        assertThat(AllocationReport.escapeCsv("a\"b"), is("\"a\"\"b\""));
+        assertThat(AllocationReport.escapeCsv(""), is("\"\""));
+    }
+
+    /**
+     * 別のスレッドで実行した処理の段階を、テストメソッドの合計に加えること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void offThreadPhasesAreAdded() throws Exception {
+        final Method method = getClass().getMethod("offThreadPhasesAreAdded");
+        final AllocationReport report = new AllocationReport();
+        report.phaseFinished(newEvent(method, TestPhase.FIELDS_BINDING, 5L));
+        report.phaseFinished(newEvent(method, TestPhase.METHOD, 100L));
+        Thread helper = new Thread() {
+            @Override
+            public void run() {
+                report.phaseFinished(newEvent(method, TestPhase.TEST, 40L));
+                report.phaseFinished(
+                        newEvent(method, TestPhase.CONTAINER_DESTROY, 7L));
+            }
+        };
+        helper.start();
+        helper.join();
+
+        StringWriter out = new StringWriter();
+        report.writeCsv(new PrintWriter(out));
+
+        assertThat(out.toString(), containsString("1,"
+                + getClass().getName() + "#offThreadPhasesAreAdded,"
+                + "147,147,1,47,0,5,40,7,\""));
+    }
+
+    /**
+     * イベントを作成する.
+     *
+     * @param method テストメソッド
+     * @param phase 処理の段階
+     * @param bytes メモリの割り当て量と CPU 時間
+     * @return イベント
+     */
+    private static TestPhaseEvent newEvent(
+            final Method method, final TestPhase phase, final long bytes) {
+        return new TestPhaseEvent(
+                AllocationReportTest.class, method, phase, 1L, bytes, bytes);
+    }
+}
@@ -0,0 +1,178 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Test;
+import org.seasar.framework.container.impl.S2ContainerBehavior;
+import org.seasar.framework.util.Disposable;
+import org.seasar.framework.util.DisposableUtil;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * {@link AsyncTeardown} のテスト.
+ */
+public class AsyncTeardownTest {
+    /** 処理の順序 */
+    private final List<String> _events =
+            Collections.synchronizedList(
+                    CollectionsUtil.<String>newArrayList());
+
+    /**
+     * プロバイダを元に戻す.
+     */
+    @After
+    public void after() {
+        S2ContainerBehavior.setProvider(
+                new S2ContainerBehavior.DefaultProvider());
+    }
+
+    /**
+     * コンテナの破棄はバックグラウンドのスレッドで行われ、
+     * {@link DisposableUtil#dispose()} とプロバイダのリセットは行われないこと.
+     *
+     * @throws Throwable 例外が発生した場合
+     */
+    @Test
+    public void onlyDestroyRunsInBackground() throws Throwable {
+        S2ContainerBehavior.setProvider(new TestProvider());
+        DisposableUtil.add(new Disposable() {
+            @Override
+            public void dispose() {
+                _events.add("dispose");
+            }
+        });
+        final Thread[] destroyed = new Thread[1];
+        InternalTestContext testContext = newTestContext(new Runnable() {
+            @Override
+            public void run() {
+                destroyed[0] = Thread.currentThread();
+                _events.add("destroy");
+            }
+        });
+
+        try {
+            AsyncTeardown teardown = new AsyncTeardown();
+            teardown.defer(testContext);
+            teardown.destroy(testContext, getClass(), null);
+            teardown.await();
+
+            assertThat(destroyed[0], is(not(sameInstance(
+                    Thread.currentThread()))));
+            assertThat(_events.toString(), is("[destroy]"));
+            assertThat(S2ContainerBehavior.getProvider(),
+                    is(instanceOf(TestProvider.class)));
+        } finally {
+            DisposableUtil.dispose();
+        }
+    }
+
+    /**
+     * 破棄を延期していないテストコンテキストは破棄しないこと.
+     *
+     * @throws Throwable 例外が発生した場合
+     */
+    @Test
+    public void destroyOnlyDeferred() throws Throwable {
+        InternalTestContext testContext = newTestContext(new Runnable() {
+            @Override
+            public void run() {
+                _events.add("destroy");
+            }
+        });
+        AsyncTeardown teardown = new AsyncTeardown();
+        teardown.destroy(testContext, getClass(), null);
+        teardown.await();
+        assertThat(_events.toString(), is("[]"));
+
+        teardown.defer(testContext);
+        teardown.destroy(testContext, getClass(), null);
+        teardown.destroy(testContext, getClass(), null);
+        teardown.await();
+        assertThat(_events.toString(), is("[destroy]"));
+    }
+
+    /**
+     * 破棄を待たずに戻り、例外は {@link AsyncTeardown#await()} で報告されること.
+     *
+     * @throws Throwable 例外が発生した場合
+     */
+    @Test
+    public void destroyDoesNotWait() throws Throwable {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final IllegalStateException error = new IllegalStateException();
+        InternalTestContext testContext = newTestContext(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                _events.add("destroy");
+                throw error;
+            }
+        });
+
+        AsyncTeardown teardown = new AsyncTeardown();
+        teardown.defer(testContext);
+        teardown.destroy(testContext, getClass(), null);
+        assertThat(_events.toString(), is("[]"));
+        latch.countDown();
+
+        try {
+            teardown.await();
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e, is(sameInstance(error)));
+        }
+        assertThat(_events.toString(), is("[destroy]"));
+    }
+
+    /**
+     * コンテナの破棄で処理を実行するテストコンテキストを作成する.
+     *
+     * @param destroy コンテナの破棄で実行する処理
+     * @return テストコンテキスト
+     */
+    private InternalTestContext newTestContext(final Runnable destroy) {
+        return (InternalTestContext) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] {InternalTestContext.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(
+                            final Object proxy,
+                            final Method method,
+                            final Object[] args) {
+                        if (method.getName().equals("destroyContainer")
+                                && destroy != null) {
+                            destroy.run();
+                        }
+                        if (method.getReturnType() == boolean.class) {
+                            return false;
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * リセットされたことを確認するためのプロバイダ.
+     */
+    private static class TestProvider
+            extends S2ContainerBehavior.DefaultProvider {
+    }
+}
@@ -0,0 +1,94 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * {@link CachingUnitClassLoader} のテスト.
+ */
+public class CachingUnitClassLoaderTest {
+    /** 親のクラスローダーで検索したリソースの名前 */
+    private final List<String> _lookups = CollectionsUtil.newArrayList();
+    /** 親のクラスローダーが持つリソース */
+    private final Map<String, URL> _resources = CollectionsUtil.newHashMap();
+
+    /** 検索したリソースを記録する親のクラスローダー */
+    private final ClassLoader _parent = new ClassLoader(null) {
+        @Override
+        public URL getResource(final String name) {
+            _lookups.add(name);
+            return _resources.get(name);
+        }
+    };
+
+    /**
+     * 見つかったリソースは、親のクラスローダーで一度だけ検索すること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void foundResourceIsCached() throws Exception {
+        URL url = new URL("file:/foo.dicon");
+        _resources.put("foo.dicon", url);
+        ClassLoader classLoader = new CachingUnitClassLoader(_parent);
+
+        assertThat(classLoader.getResource("foo.dicon"), is(url));
+        assertThat(classLoader.getResource("foo.dicon"), is(url));
+        assertThat(_lookups.size(), is(1));
+    }
+
+    /**
+     * 見つからなかったリソースは保持せず、後から追加されたリソースを返すこと.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void missingResourceIsNotCached() throws Exception {
+        ClassLoader classLoader = new CachingUnitClassLoader(_parent);
+
+        assertThat(classLoader.getResource("bar.dicon"), is(nullValue()));
+        URL url = new URL("file:/bar.dicon");
+        _resources.put("bar.dicon", url);
+        assertThat(classLoader.getResource("bar.dicon"), is(url));
+        assertThat(_lookups.size(), is(2));
+    }
+
+    /**
+     * 最大件数を超えた場合は、最も長く使用されていないものから破棄すること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void eldestResourceIsEvicted() throws Exception {
+        for (int i = 0; i <= CachingUnitClassLoader.MAX_RESOURCES; ++i) {
+            _resources.put(name(i), new URL("file:/" + name(i)));
+        }
+        ClassLoader classLoader = new CachingUnitClassLoader(_parent);
+        for (int i = 0; i <= CachingUnitClassLoader.MAX_RESOURCES; ++i) {
+            classLoader.getResource(name(i));
+        }
+        _lookups.clear();
+
+        classLoader.getResource(name(CachingUnitClassLoader.MAX_RESOURCES));
+        classLoader.getResource(name(0));
+        assertThat(_lookups.toString(), is("[" + name(0) + "]"));
+    }
+
+    /**
+     * リソースの名前を返す.
+     *
+     * @param index 番号
+     * @return リソースの名前
+     */
+    private static String name(final int index) {
+        return "r" + index + ".dicon";
+    }
+}
@@ -0,0 +1,97 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * {@link ClassFileReferences} のテスト.
+ */
+public class ClassFileReferencesTest {
+
+    /**
+     * スーパークラス、フィールドとメソッドの型、ジェネリクスの型引数、
+     * メソッドの中で使用したクラスを読み取ること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void referencesAreReadFromConstantPool() throws Exception {
+        Set<String> references = read(Sample.class);
+
+        assertThat(references.contains(
+                "org/seasar/framework/unit/ClassFileReferencesTest$Base"),
+                is(true));
+        assertThat(references.contains("java/lang/StringBuilder"), is(true));
+        assertThat(references.contains("java/util/List"), is(true));
+        assertThat(references.contains("java/lang/Integer"), is(true));
+        assertThat(references.contains("java/util/Map"), is(true));
+        assertThat(references.contains("java/lang/Thread"), is(true));
+        assertThat(references.contains("java/lang/Long"), is(true));
+    }
+
+    /**
+     * クラスファイルでない場合は例外になること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test(expected = java.io.IOException.class)
+    public void nonClassFileIsRejected() throws Exception {
+        ClassFileReferences.read(
+                new java.io.ByteArrayInputStream(new byte[] {1, 2, 3, 4}));
+    }
+
+    /**
+     * クラスファイルが参照しているクラスを読み取る.
+     *
+     * @param clazz クラス
+     * @return 参照しているクラス
+     * @throws Exception 例外が発生した場合
+     */
+    private static Set<String> read(final Class<?> clazz) throws Exception {
+        String name = clazz.getName();
+        String path = name.substring(name.lastIndexOf('.') + 1) + ".class";
+        try (InputStream in = clazz.getResourceAsStream(path)) {
+            return ClassFileReferences.read(in);
+        }
+    }
+
+    /**
+     * スーパークラス.
+     */
+    public abstract static class Base {
+    }
+
+    /**
+     * 参照を持つクラス.
+     */
+    public abstract static class Sample extends Base {
+        /** フィールドの型 */
+        StringBuilder _builder;
+        /** ジェネリクスの型引数 */
+        List<Integer> _values;
+
+        /**
+         * メソッドの型.
+         *
+         * @param values 引数
+         * @return 戻り値
+         */
+        abstract Map<String, Object> convert(Map<String, Object> values);
+
+        /**
+         * メソッドの中でクラスを使用する.
+         *
+         * @return スレッド名
+         */
+        String run() {
+            return new Thread().getName() + Long.valueOf(1L);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * {@link ClassLoaderScope} のテスト.
+ */
+public class ClassLoaderScopeTest {
+
+    /**
+     * システムプロパティを元に戻す.
+     */
+    @After
+    public void after() {
+        System.clearProperty(ClassLoaderScope.SCOPE_KEY);
+    }
+
+    /**
+     * 指定しない場合はテストメソッドごとに作成すること.
+     */
+    @Test
+    public void defaultIsMethod() {
+        assertThat(ClassLoaderScope.getConfiguredScope(),
+                is(ClassLoaderScope.METHOD));
+    }
+
+    /**
+     * 大文字と小文字を区別せずに指定できること.
+     */
+    @Test
+    public void valueIsCaseInsensitive() {
+        System.setProperty(ClassLoaderScope.SCOPE_KEY, " Fork ");
+        assertThat(ClassLoaderScope.getConfiguredScope(),
+                is(ClassLoaderScope.FORK));
+    }
+
+    /**
+     * 不正な値の場合はテストメソッドごとに作成すること.
+     */
+    @Test
+    public void invalidValueFallsBackToMethod() {
+        System.setProperty(ClassLoaderScope.SCOPE_KEY, "suite");
+        assertThat(ClassLoaderScope.getConfiguredScope(),
+                is(ClassLoaderScope.METHOD));
+    }
+}
@@ -0,0 +1,235 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.List;
+
+import javax.sql.DataSource;
+import javax.transaction.Status;
+import javax.transaction.TransactionManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runners.model.InitializationError;
+import org.seasar.framework.unit.annotation.SavepointIsolation;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * {@link ClassTransaction} のテスト.
+ */
+public class ClassTransactionTest {
+    /** 呼び出しの記録 */
+    private final List<String> _events = CollectionsUtil.newArrayList();
+    /** トランザクションの状態 */
+    private int _status = Status.STATUS_NO_TRANSACTION;
+    /** テストコンテキスト */
+    private InternalTestContext _testContext = null;
+    /** 失敗させるメソッドの名前 */
+    private String _failure = null;
+
+    /**
+     * テストコンテキストを作成する.
+     */
+    @Before
+    public void before() {
+        final TransactionManager tm = newProxy(TransactionManager.class);
+        final DataSource dataSource = newProxy(DataSource.class);
+        _testContext = (InternalTestContext) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] {InternalTestContext.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(
+                            final Object proxy,
+                            final Method method,
+                            final Object[] args) {
+                        if (args[0] == TransactionManager.class) {
+                            return tm;
+                        }
+                        return dataSource;
+                    }
+                });
+    }
+
+    /**
+     * テストメソッドの終了時にセーブポイントまでロールバックし、
+     * トランザクションを継続すること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void rollbackToSavepoint() throws Exception {
+        ClassTransaction transaction = new ClassTransaction();
+        transaction.begin(ClassTransactionTest.class, _testContext);
+        transaction.rollback(transaction.setSavepoint());
+        transaction.begin(ClassTransactionTest.class, _testContext);
+        transaction.end();
+
+        assertThat(_events.toString(), is("[begin, getConnection,"
+                + " setSavepoint, rollback(savepoint), releaseSavepoint,"
+                + " close, rollback]"));
+    }
+
+    /**
+     * トランザクションがロールバックのみに設定された場合は、
+     * 次のテストメソッドでトランザクションを開始し直すこと.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void restartAfterRollbackOnly() throws Exception {
+        ClassTransaction transaction = new ClassTransaction();
+        transaction.begin(ClassTransactionTest.class, _testContext);
+        Savepoint savepoint = transaction.setSavepoint();
+        _status = Status.STATUS_MARKED_ROLLBACK;
+        transaction.rollback(savepoint);
+
+        assertThat(transaction.isActive(), is(false));
+
+        transaction.begin(ClassTransactionTest.class, _testContext);
+        assertThat(transaction.isActive(), is(true));
+        transaction.end();
+
+        assertThat(_events.toString(), is("[begin, getConnection,"
+                + " setSavepoint, close, rollback, begin, getConnection,"
+                + " close, rollback]"));
+    }
+
+    /**
+     * コネクションの取得に失敗した場合は、トランザクションをロールバックし、
+     * 次のテストメソッドで開始し直すこと.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void rollbackWhenBeginFails() throws Exception {
+        ClassTransaction transaction = new ClassTransaction();
+        _failure = "getConnection";
+        try {
+            transaction.begin(ClassTransactionTest.class, _testContext);
+            fail();
+        } catch (SQLException e) {
+            assertThat(e.getMessage(), is("getConnection"));
+        }
+        assertThat(transaction.isActive(), is(false));
+
+        _failure = null;
+        transaction.begin(ClassTransactionTest.class, _testContext);
+        assertThat(transaction.isActive(), is(true));
+        transaction.end();
+
+        assertThat(_events.toString(), is("[begin, getConnection, rollback,"
+                + " begin, getConnection, close, rollback]"));
+    }
+
+    /**
+     * セーブポイントの設定に失敗した場合は、トランザクションを終了すること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void endWhenSavepointFails() throws Exception {
+        ClassTransaction transaction = new ClassTransaction();
+        transaction.begin(ClassTransactionTest.class, _testContext);
+        _failure = "setSavepoint";
+        try {
+            transaction.setSavepoint();
+            fail();
+        } catch (SQLException e) {
+            assertThat(e.getMessage(), is("setSavepoint"));
+        }
+        assertThat(transaction.isActive(), is(false));
+        assertThat(_events.toString(), is("[begin, getConnection,"
+                + " setSavepoint, close, rollback]"));
+    }
+
+    /**
+     * {@link SavepointIsolation} では、タイムアウトを指定できないこと.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test(expected = InitializationError.class)
+    public void timeoutIsRejected() throws Exception {
+        new Seasar24(WithTimeout.class);
+    }
+
+    /**
+     * 呼び出しを記録するプロキシを作成する.
+     *
+     * @param <T> インタフェースの型
+     * @param type インタフェース
+     * @return プロキシ
+     */
+    private <T> T newProxy(final Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] {type},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(
+                            final Object proxy,
+                            final Method method,
+                            final Object[] args) throws SQLException {
+                        return handle(method, args);
+                    }
+                }));
+    }
+
+    /**
+     * プロキシの呼び出しを処理する.
+     *
+     * @param method メソッド
+     * @param args 引数
+     * @return 戻り値
+     */
+    private Object handle(final Method method, final Object[] args)
+            throws SQLException {
+        String name = method.getName();
+        if (name.equals("rollback") && args != null) {
+            name = "rollback(savepoint)";
+        }
+        if (name.equals(_failure)) {
+            _events.add(name);
+            throw new SQLException(name);
+        }
+        switch (name) {
+        case "getStatus":
+            return _status;
+        case "begin":
+            _status = Status.STATUS_ACTIVE;
+            break;
+        case "rollback":
+            _status = Status.STATUS_NO_TRANSACTION;
+            break;
+        case "getConnection":
+            _events.add(name);
+            return newProxy(Connection.class);
+        case "setSavepoint":
+            _events.add(name);
+            return newProxy(Savepoint.class);
+        default:
+            break;
+        }
+        _events.add(name);
+        return null;
+    }
+
+    /**
+     * タイムアウトを指定したテストクラス.
+     */
+    @SavepointIsolation
+    public abstract static class WithTimeout {
+        /** テスト */
+        @Test(timeout = 1000L)
+        public void a() {
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link ConfigurationContainerCache} のテスト.
+ */
+public class ConfigurationContainerCacheTest {
+    /** 一時ディレクトリ */
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    /**
+     * ファイルの更新日時を返し、更新されると異なる値を返すこと.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void lastModifiedOfFile() throws Exception {
+        File file = _folder.newFile("s2config.dicon");
+        file.setLastModified(1000000L);
+        assertThat(ConfigurationContainerCache.getLastModified(
+                file.toURI().toURL()), is(1000000L));
+
+        file.setLastModified(2000000L);
+        assertThat(ConfigurationContainerCache.getLastModified(
+                file.toURI().toURL()), is(2000000L));
+    }
+
+    /**
+     * ファイルが存在しない場合は {@code 0} を返すこと.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void lastModifiedOfMissingFile() throws Exception {
+        File file = new File(_folder.getRoot(), "missing.dicon");
+        assertThat(ConfigurationContainerCache.getLastModified(
+                file.toURI().toURL()), is(0L));
+    }
+}
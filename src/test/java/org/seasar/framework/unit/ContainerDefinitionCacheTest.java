@@ -0,0 +1,320 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.seasar.framework.container.S2Container;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * {@link ContainerDefinitionCache} のテスト.
+ */
+public class ContainerDefinitionCacheTest {
+    /** テストで使用する dicon */
+    private static final String PATH = "s2junit4.dicon";
+
+    /** テストで解析する XML */
+    private static final String XML = "<?xml version=\"1.0\"?>\n"
+            + "<!DOCTYPE components SYSTEM \"components.dtd\">\n"
+            + "<components namespace=\"test\">\n"
+            + "  <component name=\"a\">text</component>\n"
+            + "  <?target data?>\n"
+            + "</components>\n";
+
+    /** テストで使用する DTD */
+    private static final String DTD =
+            "<!ELEMENT components (component*)>"
+            + "<!ATTLIST components namespace CDATA #IMPLIED>"
+            + "<!ELEMENT component (#PCDATA)>"
+            + "<!ATTLIST component name CDATA #REQUIRED"
+            + " instance CDATA \"singleton\">";
+
+    /** 一時ディレクトリ */
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    /**
+     * キャッシュを元に戻す.
+     */
+    @After
+    public void after() {
+        System.clearProperty(ContainerDefinitionCache.DIRECTORY_KEY);
+        ContainerDefinitionCache.clear();
+    }
+
+    /**
+     * キャッシュから作成したコンテナは dicon の定義を持ち、
+     * 変更しても次のコンテナに影響しないこと.
+     */
+    @Test
+    public void cachedContainersAreIndependent() {
+        S2Container first = ContainerDefinitionCache.create(PATH);
+        int size = first.getComponentDefSize();
+        first.register(new StringBuilder());
+
+        S2Container second = ContainerDefinitionCache.create(PATH);
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(second.getComponentDefSize(), is(size));
+        assertThat(second.hasComponentDef("context"), is(true));
+    }
+
+    /**
+     * コンテナの構築の間だけ、{@link CachingSAXParserFactory} が使用されること.
+     */
+    @Test
+    public void factoryIsReplacedOnlyWhileBuilding() {
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        CachingSAXParserFactory.ServiceClassLoader loader =
+                CachingSAXParserFactory.ServiceClassLoader.install();
+        try {
+            assertThat(SAXParserFactory.newInstance(),
+                    is(instanceOf(CachingSAXParserFactory.class)));
+        } finally {
+            loader.uninstall();
+        }
+        assertThat(Thread.currentThread().getContextClassLoader(),
+                is(sameInstance(original)));
+        assertThat(SAXParserFactory.newInstance(),
+                is(not(instanceOf(CachingSAXParserFactory.class))));
+    }
+
+    /**
+     * 同じ XML は解析せずに、解析した時と同じイベントを通知すること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void parsedDocumentIsReplayed() throws Exception {
+        TranscriptHandler first = parse(XML);
+        TranscriptHandler second = parse(XML);
+
+        assertThat(first._resolved, is(1));
+        assertThat(second._resolved, is(0));
+        assertThat(second._transcript.toString(),
+                is(first._transcript.toString()));
+    }
+
+    /**
+     * 内容が異なる XML は解析し直すこと.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void changedDocumentIsParsed() throws Exception {
+        parse(XML);
+        TranscriptHandler handler =
+                parse(XML.replace("name=\"a\"", "name=\"b\""));
+
+        assertThat(handler._resolved, is(1));
+    }
+
+    /**
+     * 検証のエラーが発生した XML は保持しないこと.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void invalidDocumentIsNotCached() throws Exception {
+        String invalid = XML.replace(" name=\"a\"", "");
+        parse(invalid);
+        TranscriptHandler handler = parse(invalid);
+
+        assertThat(handler._resolved, is(1));
+        assertThat(handler._errors, is(1));
+    }
+
+    /**
+     * 書き出したイベントを読み込むと、同じイベントを通知すること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void writtenDocumentIsRead() throws Exception {
+        SaxDocument.Recorder recorder =
+                new SaxDocument.Recorder(new TranscriptHandler());
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setValidating(true);
+        InputSource source = new InputSource(new ByteArrayInputStream(
+                XML.getBytes(StandardCharsets.UTF_8)));
+        source.setSystemId("test.dicon");
+        factory.newSAXParser().parse(source, recorder);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        recorder.getDocument().write(new DataOutputStream(bytes));
+        SaxDocument read = SaxDocument.read(new DataInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())));
+
+        TranscriptHandler expected = new TranscriptHandler();
+        recorder.getDocument().replay(expected);
+        TranscriptHandler actual = new TranscriptHandler();
+        read.replay(actual);
+        assertThat(actual._transcript.toString(),
+                is(expected._transcript.toString()));
+    }
+
+    /**
+     * ディレクトリを指定すると、JVM に保持していなくても
+     * ファイルに書き出したイベントを使用すること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void storedDocumentIsReplayed() throws Exception {
+        File directory = _folder.newFolder();
+        System.setProperty(ContainerDefinitionCache.DIRECTORY_KEY,
+                directory.getPath());
+        TranscriptHandler first = parse(XML);
+        ContainerDefinitionCache.clear();
+        TranscriptHandler second = parse(XML);
+
+        assertThat(directory.list().length, is(1));
+        assertThat(first._resolved, is(1));
+        assertThat(second._resolved, is(0));
+        assertThat(second._transcript.toString(),
+                is(first._transcript.toString()));
+    }
+
+    /**
+     * 読み込めないファイルは無視して、XML を解析すること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void brokenFileIsIgnored() throws Exception {
+        File directory = _folder.newFolder();
+        System.setProperty(ContainerDefinitionCache.DIRECTORY_KEY,
+                directory.getPath());
+        parse(XML);
+        ContainerDefinitionCache.clear();
+        File[] files = directory.listFiles();
+        assertThat(files.length, is(1));
+        assertThat(files[0].delete(), is(true));
+        assertThat(files[0].createNewFile(), is(true));
+        TranscriptHandler handler = parse(XML);
+
+        assertThat(handler._resolved, is(1));
+    }
+
+    /**
+     * Seasar2 と同じ設定で、置き換えたファクトリを使用して XML を解析する.
+     *
+     * @param xml XML
+     * @return 通知されたイベントを記録したハンドラー
+     * @throws Exception 例外が発生した場合
+     */
+    private static TranscriptHandler parse(final String xml)
+            throws Exception {
+        TranscriptHandler handler = new TranscriptHandler();
+        CachingSAXParserFactory.ServiceClassLoader loader =
+                CachingSAXParserFactory.ServiceClassLoader.install();
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setValidating(true);
+            factory.setNamespaceAware(true);
+            SAXParser parser = factory.newSAXParser();
+            InputSource source = new InputSource(new ByteArrayInputStream(
+                    xml.getBytes(StandardCharsets.UTF_8)));
+            source.setSystemId("test.dicon");
+            parser.parse(source, handler);
+        } finally {
+            loader.uninstall();
+        }
+        return handler;
+    }
+
+    /**
+     * 通知されたイベントを記録するハンドラー.
+     */
+    private static class TranscriptHandler extends DefaultHandler {
+        /** 通知されたイベント */
+        private final StringBuilder _transcript = new StringBuilder();
+        /** DTD を解決した回数 */
+        private int _resolved = 0;
+        /** 通知されたエラーの数 */
+        private int _errors = 0;
+        /** パーサーの位置 */
+        private Locator _locator;
+
+        @Override
+        public InputSource resolveEntity(
+                final String publicId, final String systemId) {
+            ++_resolved;
+            return new InputSource(new StringReader(DTD));
+        }
+
+        @Override
+        public void setDocumentLocator(final Locator locator) {
+            _locator = locator;
+        }
+
+        @Override
+        public void startElement(
+                final String uri,
+                final String localName,
+                final String qName,
+                final Attributes attributes) {
+            _transcript.append(_locator.getSystemId()).append(':')
+                    .append(_locator.getLineNumber()).append(" <")
+                    .append(qName);
+            for (int i = 0; i < attributes.getLength(); ++i) {
+                _transcript.append(' ').append(attributes.getQName(i))
+                        .append('=').append(attributes.getValue(i));
+            }
+            _transcript.append('>');
+        }
+
+        @Override
+        public void endElement(
+                final String uri,
+                final String localName,
+                final String qName) {
+            _transcript.append("</").append(qName).append('>');
+        }
+
+        @Override
+        public void characters(
+                final char[] ch, final int start, final int length) {
+            _transcript.append(ch, start, length);
+        }
+
+        @Override
+        public void ignorableWhitespace(
+                final char[] ch, final int start, final int length) {
+            _transcript.append('[').append(length).append(']');
+        }
+
+        @Override
+        public void processingInstruction(
+                final String target, final String data) {
+            _transcript.append("<?").append(target).append(' ')
+                    .append(data).append("?>");
+        }
+
+        @Override
+        public void error(final SAXParseException e) {
+            ++_errors;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runners.model.FrameworkMethod;
+import org.seasar.framework.unit.annotation.RootDicon;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * {@link ContainerSignature} と、コンテナの構成ごとのテストメソッドの並べ替えのテスト.
+ */
+public class ContainerSignatureTest {
+
+    /**
+     * システムプロパティを元に戻す.
+     */
+    @After
+    public void after() {
+        System.clearProperty(Seasar24.SORT_BY_CONTAINER_KEY);
+    }
+
+    /**
+     * ルートの dicon が同じテストメソッドは、同じ構成になること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void signatureOfRootDicon() throws Exception {
+        ContainerSignature a1 = of("a1");
+        ContainerSignature a2 = of("a2");
+        ContainerSignature b1 = of("b1");
+
+        assertThat(a1, is(a2));
+        assertThat(a1.hashCode(), is(a2.hashCode()));
+        assertThat(a1, is(not(b1)));
+    }
+
+    /**
+     * 並べ替えを指定しない場合は、テストメソッドの順序を変えないこと.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void unsortedByDefault() throws Exception {
+        List<FrameworkMethod> methods =
+                new Seasar24(Sample.class).computeTestMethods();
+
+        System.setProperty(Seasar24.SORT_BY_CONTAINER_KEY, "false");
+        assertThat(new Seasar24(Sample.class).computeTestMethods(),
+                is(methods));
+    }
+
+    /**
+     * 構成が同じテストメソッドが連続するように並べ替えること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void groupedByContainerConfiguration() throws Exception {
+        System.setProperty(Seasar24.SORT_BY_CONTAINER_KEY, "true");
+        List<FrameworkMethod> methods =
+                new Seasar24(Sample.class).computeTestMethods();
+
+        assertThat(methods.size(), is(4));
+        List<ContainerSignature> groups = CollectionsUtil.newArrayList();
+        for (final FrameworkMethod method : methods) {
+            ContainerSignature signature =
+                    ContainerSignature.of(Sample.class, method.getMethod());
+            if (groups.isEmpty()
+                    || !groups.get(groups.size() - 1).equals(signature)) {
+                groups.add(signature);
+            }
+        }
+        assertThat(groups.size(), is(2));
+    }
+
+    /**
+     * テストメソッドのコンテナの構成を返す.
+     *
+     * @param name テストメソッドの名前
+     * @return コンテナの構成
+     * @throws Exception 例外が発生した場合
+     */
+    private static ContainerSignature of(final String name) throws Exception {
+        return ContainerSignature.of(
+                Sample.class, Sample.class.getMethod(name));
+    }
+
+    /**
+     * ルートの dicon が異なるテストメソッドを持つテストクラス.
+     */
+    public static class Sample {
+        /**
+         * a.dicon のテスト.
+         */
+        @RootDicon("a.dicon")
+        @Test
+        public void a1() {
+        }
+
+        /**
+         * b.dicon のテスト.
+         */
+        @RootDicon("b.dicon")
+        @Test
+        public void b1() {
+        }
+
+        /**
+         * a.dicon のテスト.
+         */
+        @RootDicon("a.dicon")
+        @Test
+        public void a2() {
+        }
+
+        /**
+         * b.dicon のテスト.
+         */
+        @RootDicon("b.dicon")
+        @Test
+        public void b2() {
+        }
+    }
+}
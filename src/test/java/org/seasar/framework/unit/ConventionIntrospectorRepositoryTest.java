@@ -0,0 +1,90 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+import org.seasar.framework.unit.annotation.RootDicon;
+import org.seasar.framework.unit.impl.ConventionTestIntrospector;
+
+/**
+ * {@link ConventionIntrospectorRepository} のテスト.
+ */
+public class ConventionIntrospectorRepositoryTest {
+
+    /**
+     * すべてのスレッドで同じイントロスペクターを共有すること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void introspectorIsSharedAcrossThreads() throws Exception {
+        final ConventionTestIntrospector[] other =
+                new ConventionTestIntrospector[1];
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                other[0] = ConventionIntrospectorRepository.get();
+            }
+        };
+        thread.start();
+        thread.join();
+
+        ConventionTestIntrospector introspector =
+                ConventionIntrospectorRepository.get();
+        assertThat(introspector, is(instanceOf(CachingTestIntrospector.class)));
+        assertThat(other[0], is(sameInstance(introspector)));
+    }
+
+    /**
+     * 解析結果を破棄しても、同じイントロスペクターを使用すること.
+     */
+    @Test
+    public void clearKeepsIntrospector() {
+        ConventionTestIntrospector introspector =
+                ConventionIntrospectorRepository.get();
+        ConventionIntrospectorRepository.clear();
+        assertThat(ConventionIntrospectorRepository.get(),
+                is(sameInstance(introspector)));
+    }
+
+    /**
+     * 継承したテストメソッドの解析結果を、テストクラスごとに保持すること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void resultsAreCachedPerClass() throws Exception {
+        CachingTestIntrospector introspector = new CachingTestIntrospector();
+        Method method = Base.class.getMethod("test");
+        for (int i = 0; i < 2; i++) {
+            assertThat(introspector.getRootDicon(Base.class, method),
+                    is(nullValue()));
+            assertThat(introspector.getRootDicon(Derived.class, method),
+                    is("derived.dicon"));
+            introspector.clear();
+        }
+    }
+
+    /**
+     * ルートの dicon を指定していないテストクラス.
+     */
+    public abstract static class Base {
+        /** テスト */
+        @Test
+        public void test() {
+        }
+    }
+
+    /**
+     * ルートの dicon を指定したテストクラス.
+     */
+    @RootDicon("derived.dicon")
+    public abstract static class Derived extends Base {
+    }
+}
@@ -0,0 +1,104 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.Statement;
+import org.junit.runners.model.TestClass;
+import org.seasar.extension.dbcp.impl.XADataSourceImpl;
+import org.seasar.framework.unit.annotation.EmbeddedDatabase;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * {@link EmbeddedDatabaseSupport} のテスト.
+ */
+public class EmbeddedDatabaseSupportTest {
+
+    /**
+     * テストコンテキストと記録を破棄する.
+     */
+    @After
+    public void after() {
+        TestContextRepository.remove();
+        EmbeddedDatabaseSupport.clear();
+    }
+
+    /**
+     * 同じ接続先でも、スキーマのスクリプトが異なる場合は別に作成すること.
+     */
+    @Test
+    public void initializationKeyIncludesSchema() {
+        EmbeddedDatabaseConfig first = new EmbeddedDatabaseConfig();
+        first.setUrl("jdbc:h2:mem:test");
+        first.setSchema("first.sql");
+        EmbeddedDatabaseConfig second = new EmbeddedDatabaseConfig();
+        second.setUrl("jdbc:h2:mem:test");
+        second.setSchema("second.sql");
+
+        assertThat(EmbeddedDatabaseSupport.getInitializationKey(first),
+                is(not(EmbeddedDatabaseSupport.getInitializationKey(second))));
+    }
+
+    /**
+     * コンテナを初期化する前に、接続先を切り替えること.
+     *
+     * @throws Throwable 例外が発生した場合
+     */
+    @Test
+    public void dataSourceIsSwitchedBeforeInit() throws Throwable {
+        final List<String> events = CollectionsUtil.newArrayList();
+        final XADataSourceImpl dataSource = new XADataSourceImpl();
+        TestContextRepository.put((InternalTestContext) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] {InternalTestContext.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(
+                            final Object proxy,
+                            final Method method,
+                            final Object[] args) {
+                        events.add(method.getName());
+                        if ("hasComponentDef".equals(method.getName())) {
+                            return args[0] == XADataSourceImpl.class;
+                        }
+                        if ("getComponent".equals(method.getName())) {
+                            return dataSource;
+                        }
+                        return null;
+                    }
+                }));
+
+        TestClass testClass = new TestClass(Sample.class);
+        FrameworkMethod method =
+                testClass.getAnnotatedMethods(Test.class).get(0);
+        new ContainerStatement(new Statement() {
+            @Override
+            public void evaluate() {
+                events.add("test");
+            }
+        }, null, testClass, method).evaluate();
+
+        assertThat(events.toString(), is("[include, hasComponentDef,"
+                + " getComponent, initContainer, test, destroyContainer]"));
+    }
+
+    /**
+     * 組み込みデータベースを使用するテストクラス.
+     */
+    @EmbeddedDatabase(driverClassName = "java.lang.String")
+    public abstract static class Sample {
+        /** テスト */
+        @Test
+        public void a() {
+        }
+    }
+}
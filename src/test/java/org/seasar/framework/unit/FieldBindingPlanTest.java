@@ -0,0 +1,123 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.ejb.EJB;
+
+import org.junit.Test;
+import org.seasar.framework.unit.annotation.LazyBinding;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * {@link FieldBindingPlan} のテスト.
+ */
+public class FieldBindingPlanTest {
+
+    /**
+     * バインディングの情報はテストクラスごとに一度だけ作成されること.
+     */
+    @Test
+    public void planIsCachedPerClass() {
+        assertThat(FieldBindingPlan.get(Sample.class),
+                is(sameInstance(FieldBindingPlan.get(Sample.class))));
+    }
+
+    /**
+     * スーパークラスを含めて、自動バインディングが可能なフィールドだけを対象にすること.
+     */
+    @Test
+    public void slotsAreCollectedFromClassHierarchy() {
+        Map<String, FieldBindingPlan.Slot> slots = getSlots(Sample.class);
+
+        assertThat(slots.size(), is(4));
+        assertThat(slots.containsKey("_base"), is(true));
+        assertThat(slots.containsKey("CONSTANT"), is(false));
+        assertThat(slots.containsKey("_count"), is(false));
+    }
+
+    /**
+     * フィールド名のアンダースコアを除いたコンポーネント名になること.
+     */
+    @Test
+    public void componentNameIsNormalized() {
+        FieldBindingPlan.Slot slot = getSlots(Sample.class).get("_fooDao");
+
+        assertThat(slot.getComponentName(false), is("fooDao"));
+        assertThat(slot.getComponentName(true), is("fooDao"));
+    }
+
+    /**
+     * {@link EJB} のコンポーネント名は、EJB3 が有効な場合だけ使用すること.
+     */
+    @Test
+    public void ejbNameIsUsedOnlyWhenEjb3IsEnabled() {
+        FieldBindingPlan.Slot slot = getSlots(Sample.class).get("_service");
+
+        assertThat(slot.getComponentName(false), is("service"));
+        assertThat(slot.getComponentName(true), is("fooService"));
+        assertThat(slot.getComponentName(false), is("service"));
+    }
+
+    /**
+     * {@link LazyBinding} はインタフェース型のフィールドだけに適用されること.
+     */
+    @Test
+    public void onlyInterfaceFieldsAreLazy() {
+        Map<String, FieldBindingPlan.Slot> slots = getSlots(Sample.class);
+
+        assertThat(slots.get("_fooDao").isLazy(), is(true));
+        assertThat(slots.get("_base").isLazy(), is(false));
+        assertThat(slots.get("_service").isLazy(), is(false));
+    }
+
+    /**
+     * フィールド名ごとのバインディングの対象を返す.
+     *
+     * @param testClass テストクラス
+     * @return フィールド名ごとのバインディングの対象
+     */
+    private static Map<String, FieldBindingPlan.Slot> getSlots(
+            final Class<?> testClass) {
+        List<FieldBindingPlan.Slot> slots =
+                FieldBindingPlan.get(testClass).getSlots();
+        Map<String, FieldBindingPlan.Slot> result =
+                CollectionsUtil.newHashMap();
+        for (final FieldBindingPlan.Slot slot : slots) {
+            result.put(slot.getField().getName(), slot);
+        }
+        return result;
+    }
+
+    /**
+     * スーパークラス.
+     */
+    public static class Base {
+        /** バインディングの対象 */
+        Object _base;
+    }
+
+    /**
+     * バインディングの対象を持つクラス.
+     */
+    public static class Sample extends Base {
+        /** 定数は対象外 */
+        static final String CONSTANT = "constant";
+        /** プリミティブ型は対象外 */
+        int _count;
+        /** インタフェース型 */
+        @LazyBinding
+        Runnable _fooDao;
+        /** EJB のコンポーネント名を指定 */
+        @EJB(beanName = "fooService")
+        @LazyBinding
+        StringBuilder _service;
+        /** 名前を指定しない EJB */
+        @EJB
+        Object _other;
+    }
+}
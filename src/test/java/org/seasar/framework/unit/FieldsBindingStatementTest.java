@@ -0,0 +1,190 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.Statement;
+import org.junit.runners.model.TestClass;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * {@link FieldsBindingStatement} のテスト.
+ * <p>
+ * 解決結果はテストクラスごとに共有されるため、
+ * 各テストはコンポーネント定義の数が重ならないようにしている。
+ * </p>
+ */
+public class FieldsBindingStatementTest {
+    /** コンテナに登録されているコンポーネント */
+    private final Map<Object, Object> _components =
+            CollectionsUtil.newHashMap();
+    /** 検索したキー */
+    private final List<Object> _lookups = CollectionsUtil.newArrayList();
+
+    /**
+     * テストコンテキストを破棄する.
+     */
+    @After
+    public void after() {
+        TestContextRepository.remove();
+    }
+
+    /**
+     * 以前のテストメソッドで取得できなかったフィールドにも、
+     * 後から登録されたコンポーネントをバインディングすること.
+     *
+     * @throws Throwable 例外が発生した場合
+     */
+    @Test
+    public void missingComponentIsLookedUpAgain() throws Throwable {
+        assertThat(bind(), is(nullValue()));
+
+        Runnable component = new Thread();
+        _components.put("foo", component);
+        assertThat(bind(), is(sameInstance(component)));
+    }
+
+    /**
+     * コンポーネント名で取得できなかった場合は、フィールドの型で取得すること.
+     *
+     * @throws Throwable 例外が発生した場合
+     */
+    @Test
+    public void componentIsLookedUpByType() throws Throwable {
+        Runnable component = new Thread();
+        _components.put(Runnable.class, component);
+        _components.put(String.class, "padding");
+        assertThat(bind(), is(sameInstance(component)));
+
+        _components.clear();
+        assertThat(bind(), is(nullValue()));
+    }
+
+    /**
+     * フィールドの型で取得した後でも、コンポーネント名で取得できる
+     * コンポーネントを優先すること.
+     *
+     * @throws Throwable 例外が発生した場合
+     */
+    @Test
+    public void componentNameTakesPrecedence() throws Throwable {
+        Runnable byType = new Thread();
+        _components.put(Runnable.class, byType);
+        _components.put(String.class, "padding");
+        _components.put(Integer.class, 0);
+        assertThat(bind(), is(sameInstance(byType)));
+
+        Runnable byName = new Thread();
+        _components.put("foo", byName);
+        assertThat(bind(), is(sameInstance(byName)));
+    }
+
+    /**
+     * コンポーネント定義の数が変わらない場合は、
+     * 取得できなかった検索を省略すること.
+     *
+     * @throws Throwable 例外が発生した場合
+     */
+    @Test
+    public void knownMissesAreSkipped() throws Throwable {
+        for (int i = 0; i < 5; ++i) {
+            _components.put(i, i);
+        }
+        assertThat(bind(), is(nullValue()));
+        assertThat(_lookups.isEmpty(), is(false));
+
+        _lookups.clear();
+        assertThat(bind(), is(nullValue()));
+        assertThat(_lookups.isEmpty(), is(true));
+
+        Runnable component = new Thread();
+        _components.put(Runnable.class, component);
+        assertThat(bind(), is(sameInstance(component)));
+
+        _lookups.clear();
+        assertThat(bind(), is(sameInstance(component)));
+        assertThat(_lookups.toString(), is("[" + Runnable.class + "]"));
+    }
+
+    /**
+     * テストメソッドの実行中にバインディングされていた値を返す.
+     *
+     * @return バインディングされていた値
+     * @throws Throwable 例外が発生した場合
+     */
+    private Runnable bind() throws Throwable {
+        final Sample test = new Sample() {
+        };
+        final Runnable[] bound = new Runnable[1];
+        TestClass testClass = new TestClass(Sample.class);
+        FrameworkMethod method =
+                testClass.getAnnotatedMethods(Test.class).get(0);
+        TestContextRepository.put(newTestContext());
+        new FieldsBindingStatement(new Statement() {
+            @Override
+            public void evaluate() {
+                bound[0] = test._foo;
+            }
+        }, test, testClass, method).evaluate();
+        assertThat(test._foo, is(nullValue()));
+        return bound[0];
+    }
+
+    /**
+     * 登録されているコンポーネントを返すテストコンテキストを作成する.
+     *
+     * @return テストコンテキスト
+     */
+    private InternalTestContext newTestContext() {
+        return (InternalTestContext) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] {InternalTestContext.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(
+                            final Object proxy,
+                            final Method method,
+                            final Object[] args) {
+                        switch (method.getName()) {
+                        case "hasComponentDef":
+                            _lookups.add(args[0]);
+                            return _components.containsKey(args[0]);
+                        case "getComponentDefSize":
+                            return _components.size();
+                        case "getComponent":
+                            return _components.get(args[0]);
+                        case "isEjb3Enabled":
+                            return false;
+                        default:
+                            return null;
+                        }
+                    }
+                });
+    }
+
+    /**
+     * バインディングの対象を持つテストクラス.
+     */
+    public abstract static class Sample {
+        /** バインディングの対象 */
+        Runnable _foo;
+
+        /**
+         * テスト.
+         */
+        @Test
+        public void test() {
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.seasar.extension.dataset.DataTable;
+import org.seasar.framework.unit.annotation.Fixture;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * {@link FixtureLoader} のテスト.
+ */
+public class FixtureLoaderTest {
+    /** 実行した SQL */
+    private final List<String> _queries = CollectionsUtil.newArrayList();
+    /** コネクションの現在のスキーマ */
+    private String _schema = "PUBLIC";
+
+    /**
+     * キャッシュを破棄する.
+     */
+    @After
+    public void after() {
+        FixtureLoader.clear();
+    }
+
+    /**
+     * 識別子を大文字で格納するデータベースでは、大文字にして引用符で囲むこと.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void quoteUpperCase() throws Exception {
+        DatabaseMetaData meta = newMetaData("\"", true, false);
+
+        assertThat(FixtureLoader.quote(meta, "emp"), is("\"EMP\""));
+        assertThat(FixtureLoader.quote(meta, "hr.emp"), is("\"HR\".\"EMP\""));
+        assertThat(FixtureLoader.quote(meta, "a\"b"), is("\"A\"\"B\""));
+    }
+
+    /**
+     * 引用符を使用できないデータベースでは、そのまま返すこと.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void quoteUnsupported() throws Exception {
+        DatabaseMetaData meta = newMetaData(" ", true, false);
+
+        assertThat(FixtureLoader.quote(meta, "emp"), is("emp"));
+    }
+
+    /**
+     * 列名とテーブル名を引用符で囲んだ INSERT 文を作成すること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void createInsertSql() throws Exception {
+        DatabaseMetaData meta = newMetaData("`", false, true);
+
+        assertThat(FixtureLoader.createInsertSql(meta, newTable()),
+                is("INSERT INTO `emp` (`id`, `order`) VALUES (?, ?)"));
+    }
+
+    /**
+     * テストクラスまたはテストメソッドのテストデータを検出すること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void hasFixture() throws Exception {
+        Method withFixture = Sample.class.getMethod("withFixture");
+        Method withoutFixture = Sample.class.getMethod("withoutFixture");
+
+        assertThat(FixtureLoader.hasFixture(Sample.class, withFixture),
+                is(true));
+        assertThat(FixtureLoader.hasFixture(Sample.class, withoutFixture),
+                is(false));
+        assertThat(FixtureLoader.hasFixture(
+                ClassFixture.class, withoutFixture), is(true));
+    }
+
+    /**
+     * 列の SQL の型は、データベースのスキーマとテーブルごとに一度だけ問い合わせること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void columnTypesAreCached() throws Exception {
+        Connection connection = newConnection();
+        DatabaseMetaData meta = newMetaData("\"", true, false);
+
+        int[] types = FixtureLoader.getColumnTypes(
+                connection, meta, newTable());
+        assertThat(types.length, is(2));
+        assertThat(types[1], is(Types.INTEGER));
+        FixtureLoader.getColumnTypes(connection, meta, newTable());
+        assertThat(_queries.size(), is(1));
+
+        _schema = "HR";
+        FixtureLoader.getColumnTypes(connection, meta, newTable());
+        assertThat(_queries.size(), is(2));
+        assertThat(_queries.get(0), is("SELECT \"ID\", \"ORDER\""
+                + " FROM \"EMP\" WHERE 1 = 0"));
+    }
+
+    /**
+     * 列の型を問い合わせるコネクションを作成する.
+     *
+     * @return コネクション
+     */
+    private Connection newConnection() {
+        final ResultSetMetaData rsmd = newProxy(ResultSetMetaData.class,
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(
+                            final Object proxy,
+                            final Method method,
+                            final Object[] args) {
+                        return Types.INTEGER;
+                    }
+                });
+        final ResultSet rs = newProxy(ResultSet.class,
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(
+                            final Object proxy,
+                            final Method method,
+                            final Object[] args) {
+                        return method.getName().equals("getMetaData")
+                                ? rsmd : null;
+                    }
+                });
+        final PreparedStatement ps = newProxy(PreparedStatement.class,
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(
+                            final Object proxy,
+                            final Method method,
+                            final Object[] args) {
+                        return method.getName().equals("executeQuery")
+                                ? rs : null;
+                    }
+                });
+        return newProxy(Connection.class, new InvocationHandler() {
+            @Override
+            public Object invoke(
+                    final Object proxy,
+                    final Method method,
+                    final Object[] args) {
+                switch (method.getName()) {
+                case "prepareStatement":
+                    _queries.add((String) args[0]);
+                    return ps;
+                case "getCatalog":
+                    return "TEST";
+                case "getSchema":
+                    return _schema;
+                default:
+                    throw new UnsupportedOperationException(
+                            method.getName());
+                }
+            }
+        });
+    }
+
+    /**
+     * プロキシを作成する.
+     *
+     * @param <T> インタフェースの型
+     * @param type インタフェース
+     * @param handler 呼び出しを処理するハンドラー
+     * @return プロキシ
+     */
+    private static <T> T newProxy(
+            final Class<T> type, final InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(
+                FixtureLoaderTest.class.getClassLoader(),
+                new Class<?>[] {type}, handler));
+    }
+
+    /**
+     * データベースのメタデータを作成する.
+     *
+     * @param quote 引用符
+     * @param upper 識別子を大文字で格納する場合 {@code true}
+     * @param lower 識別子を小文字で格納する場合 {@code true}
+     * @return データベースのメタデータ
+     */
+    private static DatabaseMetaData newMetaData(
+            final String quote, final boolean upper, final boolean lower) {
+        return (DatabaseMetaData) Proxy.newProxyInstance(
+                FixtureLoaderTest.class.getClassLoader(),
+                new Class<?>[] {DatabaseMetaData.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(
+                            final Object proxy,
+                            final Method method,
+                            final Object[] args) {
+                        switch (method.getName()) {
+                        case "getIdentifierQuoteString":
+                            return quote;
+                        case "storesUpperCaseIdentifiers":
+                            return upper;
+                        case "storesLowerCaseIdentifiers":
+                            return lower;
+                        case "getURL":
+                            return "jdbc:h2:mem:test";
+                        case "getUserName":
+                            return "SA";
+                        default:
+                            throw new UnsupportedOperationException(
+                                    method.getName());
+                        }
+                    }
+                });
+    }
+
+    /**
+     * 列 {@code id}、{@code order} を持つテーブル {@code emp} を作成する.
+     *
+     * @return テーブル
+     */
+    private static DataTable newTable() {
+        final String[] columns = {"id", "order"};
+        return (DataTable) Proxy.newProxyInstance(
+                FixtureLoaderTest.class.getClassLoader(),
+                new Class<?>[] {DataTable.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(
+                            final Object proxy,
+                            final Method method,
+                            final Object[] args) {
+                        switch (method.getName()) {
+                        case "getTableName":
+                            return "emp";
+                        case "getColumnSize":
+                            return columns.length;
+                        case "getColumnName":
+                            return columns[(Integer) args[0]];
+                        default:
+                            throw new UnsupportedOperationException(
+                                    method.getName());
+                        }
+                    }
+                });
+    }
+
+    /**
+     * テストメソッドにテストデータを指定したクラス.
+     */
+    public static class Sample {
+        /** テストデータあり */
+        @Fixture("emp.xls")
+        public void withFixture() {
+        }
+
+        /** テストデータなし */
+        public void withoutFixture() {
+        }
+    }
+
+    /**
+     * テストクラスにテストデータを指定したクラス.
+     */
+    @Fixture("emp.xls")
+    public static class ClassFixture {
+    }
+}
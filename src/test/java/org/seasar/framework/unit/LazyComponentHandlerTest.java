@@ -0,0 +1,92 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import org.junit.Test;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * {@link LazyComponentHandler} のテスト.
+ */
+public class LazyComponentHandlerTest {
+    /** テストコンテキストの呼び出しの記録 */
+    private final List<String> _events = CollectionsUtil.newArrayList();
+
+    /** コンテナに登録されているコンポーネント */
+    private final Runnable _component = new Runnable() {
+        @Override
+        public void run() {
+            _events.add("run");
+        }
+
+        @Override
+        public String toString() {
+            return "fooComponent";
+        }
+    };
+
+    /**
+     * {@link Object} のメソッドでは、コンポーネントを取得しないこと.
+     */
+    @Test
+    public void objectMethodsDoNotResolveComponent() {
+        LazyComponentHandler handler = newHandler();
+        Object proxy = ProxyConstructorCache.newProxy(Runnable.class, handler);
+
+        assertThat(proxy.equals(proxy), is(true));
+        assertThat(proxy.equals(_component), is(false));
+        assertThat(proxy.hashCode(), is(System.identityHashCode(proxy)));
+        assertThat(proxy.toString(), is("lazy java.lang.Runnable (foo)"));
+        assertThat(handler.isResolved(), is(false));
+        assertThat(_events.isEmpty(), is(true));
+    }
+
+    /**
+     * インタフェースのメソッドでは、最初の呼び出しでだけコンポーネントを取得すること.
+     */
+    @Test
+    public void componentIsResolvedOnFirstCall() {
+        LazyComponentHandler handler = newHandler();
+        Runnable proxy = (Runnable) ProxyConstructorCache.newProxy(
+                Runnable.class, handler);
+
+        proxy.run();
+        proxy.run();
+
+        assertThat(handler.isResolved(), is(true));
+        assertThat(_events.toString(),
+                is("[hasComponentDef, getComponent, run, run]"));
+        assertThat(proxy.toString(), is("fooComponent"));
+    }
+
+    /**
+     * コンポーネント名 {@code foo} で取得するハンドラーを作成する.
+     *
+     * @return ハンドラー
+     */
+    private LazyComponentHandler newHandler() {
+        TestContext testContext = (TestContext) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] {TestContext.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(
+                            final Object proxy,
+                            final Method method,
+                            final Object[] args) {
+                        _events.add(method.getName());
+                        if (method.getReturnType() == boolean.class) {
+                            return "foo".equals(args[0]);
+                        }
+                        return _component;
+                    }
+                });
+        return new LazyComponentHandler(testContext, "foo", Runnable.class);
+    }
+}
@@ -0,0 +1,104 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+import org.seasar.framework.aop.interceptors.MockInterceptor;
+
+/**
+ * {@link MockProxyFactory} と {@link ProxyConstructorCache} のテスト.
+ */
+public class MockProxyFactoryTest {
+
+    /**
+     * 同じインタフェースのモックは、同じプロキシクラスのインスタンスになること.
+     */
+    @Test
+    public void proxyClassIsShared() {
+        Object first = MockProxyFactory.newProxy(
+                Service.class, new MockInterceptor());
+        Object second = MockProxyFactory.newProxy(
+                Service.class, new MockInterceptor());
+
+        assertThat(first, is(not(sameInstance(second))));
+        assertThat(first.getClass(), is(sameInstance(
+                (Object) second.getClass())));
+    }
+
+    /**
+     * 戻り値が設定されていない場合は、プリミティブ型のデフォルト値を返すこと.
+     */
+    @Test
+    public void defaultValues() {
+        Service service = (Service) MockProxyFactory.newProxy(
+                Service.class, new MockInterceptor());
+
+        assertThat(service.count(), is(0));
+        assertThat(service.exists(), is(false));
+        assertThat(service.name(), is(nullValue()));
+    }
+
+    /**
+     * {@link Object} のメソッドはモックの振る舞いに委譲しないこと.
+     */
+    @Test
+    public void objectMethods() {
+        Object mock = MockProxyFactory.newProxy(
+                Service.class, new MockInterceptor());
+
+        assertThat(mock.equals(mock), is(true));
+        assertThat(mock.equals(MockProxyFactory.newProxy(
+                Service.class, new MockInterceptor())), is(false));
+        assertThat(mock.hashCode(), is(System.identityHashCode(mock)));
+        assertThat(mock.toString(), is("Mock of " + Service.class.getName()));
+    }
+
+    /**
+     * インタフェース以外のプロキシは作成できないこと.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsClass() {
+        ProxyConstructorCache.newProxy(Object.class, new InvocationHandler() {
+            @Override
+            public Object invoke(
+                    final Object proxy,
+                    final Method method,
+                    final Object[] args) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * モックにするインタフェース.
+     */
+    public interface Service {
+        /**
+         * 件数を返す.
+         *
+         * @return 件数
+         */
+        int count();
+
+        /**
+         * 存在するか否かを返す.
+         *
+         * @return 存在する場合、{@code true}
+         */
+        boolean exists();
+
+        /**
+         * 名前を返す.
+         *
+         * @return 名前
+         */
+        String name();
+    }
+}
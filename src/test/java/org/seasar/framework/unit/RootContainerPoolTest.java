@@ -0,0 +1,186 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.TestClass;
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.container.impl.S2ContainerBehavior;
+import org.seasar.framework.unit.annotation.WarmDeploy;
+
+/**
+ * {@link RootContainerPool} のテスト.
+ */
+public class RootContainerPoolTest {
+    /** テストするプール */
+    private RootContainerPool _pool = null;
+
+    /**
+     * プールを終了する.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @After
+    public void after() throws Exception {
+        S2ContainerBehavior.setProvider(
+                new S2ContainerBehavior.DefaultProvider());
+        RootContainerPool.unlockGlobalState();
+        if (_pool != null) {
+            _pool.shutdown();
+        }
+    }
+
+    /**
+     * テストのスレッドがロックを保持していても、構築の完了を待てること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test(timeout = 10000L)
+    public void checkoutReleasesLockWhileWaiting() throws Exception {
+        List<FrameworkMethod> methods =
+                new TestClass(Sample.class).getAnnotatedMethods(Test.class);
+        _pool = new RootContainerPool(Sample.class, methods, 2);
+
+        RootContainerPool.lockGlobalState();
+        _pool.start(Thread.currentThread().getContextClassLoader());
+        Method method = methods.get(0).getMethod();
+        S2Container container = _pool.checkout(method);
+
+        assertThat(container, is(notNullValue()));
+        assertThat(_pool.checkout(method), is(nullValue()));
+        assertThat(RootContainerPool.unlockGlobalState(), is(1));
+    }
+
+    /**
+     * テストメソッドごとに別のコンテナを構築すること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test(timeout = 10000L)
+    public void containersAreBuiltPerMethod() throws Exception {
+        List<FrameworkMethod> methods =
+                new TestClass(Sample.class).getAnnotatedMethods(Test.class);
+        _pool = new RootContainerPool(Sample.class, methods, 1);
+        _pool.start(Thread.currentThread().getContextClassLoader());
+
+        S2Container first = _pool.checkout(methods.get(0).getMethod());
+        S2Container second = _pool.checkout(methods.get(1).getMethod());
+
+        assertThat(first, is(notNullValue()));
+        assertThat(second, is(notNullValue()));
+        assertThat(second, is(not(sameInstance(first))));
+    }
+
+    /**
+     * WARM deploy を使用するテストメソッドのコンテナは構築しないこと.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test(timeout = 10000L)
+    public void warmDeployMethodsAreNotBuilt() throws Exception {
+        List<FrameworkMethod> methods = new TestClass(WarmDeploySample.class)
+                .getAnnotatedMethods(Test.class);
+        _pool = new RootContainerPool(WarmDeploySample.class, methods, 2);
+        _pool.start(Thread.currentThread().getContextClassLoader());
+
+        for (final FrameworkMethod method : methods) {
+            S2Container container = _pool.checkout(method.getMethod());
+            boolean warmDeploy = method.getName().equals("warm");
+            assertThat(container == null, is(warmDeploy));
+        }
+    }
+
+    /**
+     * デフォルトの設定でない場合は構築しないこと.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test(timeout = 10000L)
+    public void notBuiltUnderOtherConfiguration() throws Exception {
+        S2ContainerBehavior.setProvider(new TestProvider());
+        assertThat(RootContainerPool.isDefaultConfiguration(), is(false));
+        List<FrameworkMethod> methods =
+                new TestClass(Sample.class).getAnnotatedMethods(Test.class);
+        _pool = new RootContainerPool(Sample.class, methods, 1);
+        _pool.start(Thread.currentThread().getContextClassLoader());
+
+        assertThat(_pool.checkout(methods.get(0).getMethod()),
+                is(nullValue()));
+    }
+
+    /**
+     * 開始していないプールは何もせずに終了できること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void shutdownWithoutStart() throws Exception {
+        new RootContainerPool(Sample.class,
+                new TestClass(Sample.class).getAnnotatedMethods(Test.class),
+                1).shutdown();
+    }
+
+    /**
+     * 解放したロックを取得し直せること.
+     */
+    @Test
+    public void unlockAndRelock() {
+        RootContainerPool.lockGlobalState();
+        RootContainerPool.lockGlobalState();
+
+        int holds = RootContainerPool.unlockGlobalState();
+        assertThat(holds, is(2));
+        assertThat(RootContainerPool.unlockGlobalState(), is(0));
+
+        RootContainerPool.relockGlobalState(holds);
+        assertThat(RootContainerPool.unlockGlobalState(), is(2));
+    }
+
+    /**
+     * ルートコンテナを構築するテストクラス.
+     */
+    public abstract static class Sample {
+        /** テスト */
+        @Test
+        public void a() {
+        }
+
+        /** テスト */
+        @Test
+        public void b() {
+        }
+    }
+
+    /**
+     * WARM deploy を使用するテストメソッドを含むテストクラス.
+     */
+    public abstract static class WarmDeploySample {
+        /** テスト */
+        @Test
+        public void cool() {
+        }
+
+        /** テスト */
+        @Test
+        @WarmDeploy
+        public void warm() {
+        }
+    }
+
+    /**
+     * デフォルトではないプロバイダ.
+     */
+    private static class TestProvider
+            extends S2ContainerBehavior.DefaultProvider {
+    }
+}
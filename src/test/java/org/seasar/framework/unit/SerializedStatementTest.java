@@ -0,0 +1,112 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runners.model.RunnerScheduler;
+import org.junit.runners.model.Statement;
+
+/**
+ * {@link SerializedStatement} と、{@link Seasar24} の直列実行の設定のテスト.
+ */
+public class SerializedStatementTest {
+    /** 並列に実行されるスケジューラー */
+    private static final RunnerScheduler SCHEDULER = new RunnerScheduler() {
+        @Override
+        public void schedule(final Runnable childStatement) {
+            childStatement.run();
+        }
+
+        @Override
+        public void finished() {
+        }
+    };
+
+    /**
+     * システムプロパティを元に戻す.
+     */
+    @After
+    public void after() {
+        System.clearProperty(Seasar24.SERIALIZE_KEY);
+    }
+
+    /**
+     * 指定しない場合は、スケジューラーを設定できること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void schedulerIsAcceptedByDefault() throws Exception {
+        new Seasar24(Sample.class).setScheduler(SCHEDULER);
+    }
+
+    /**
+     * 直列に実行する場合は、スケジューラーを設定するとエラーになること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void schedulerIsRejectedWhenSerialized() throws Exception {
+        System.setProperty(Seasar24.SERIALIZE_KEY, "true");
+        new Seasar24(Sample.class).setScheduler(SCHEDULER);
+    }
+
+    /**
+     * 複数のスレッドから実行しても、同時に実行されないこと.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void statementsDoNotOverlap() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final Statement statement = new SerializedStatement(new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                if (running.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                Thread.sleep(5L);
+                running.decrementAndGet();
+            }
+        });
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 5; ++j) {
+                            statement.evaluate();
+                        }
+                    } catch (Throwable e) {
+                        overlaps.incrementAndGet();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(overlaps.get(), is(0));
+    }
+
+    /**
+     * テストランナーを作成するためのテストクラス.
+     */
+    public static class Sample {
+        /**
+         * 何もしないテスト.
+         */
+        @Test
+        public void test() {
+        }
+    }
+}
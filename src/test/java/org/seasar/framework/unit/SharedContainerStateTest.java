@@ -0,0 +1,106 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.seasar.framework.container.ExternalContext;
+import org.seasar.framework.container.impl.S2ContainerImpl;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * {@link SharedContainerState} のテスト.
+ */
+public class SharedContainerStateTest {
+    /** ルートのコンテナ */
+    private S2ContainerImpl _root = null;
+    /** 子のコンテナ */
+    private S2ContainerImpl _child = null;
+    /** テストする状態 */
+    private SharedContainerState _state = null;
+
+    /**
+     * コンテナを作成する.
+     */
+    @Before
+    public void before() {
+        _root = new S2ContainerImpl();
+        _child = new S2ContainerImpl();
+        _root.include(_child);
+        _root.register(new StringBuilder());
+        _state = new SharedContainerState();
+    }
+
+    /**
+     * 子孫のコンテナを含めてコンポーネントを数えること.
+     */
+    @Test
+    public void countsDescendants() {
+        _child.register(new StringBuilder());
+
+        assertThat(SharedContainerState.countComponentDefs(_root), is(2));
+    }
+
+    /**
+     * コンポーネントを登録しなかったテストメソッドの後は、作成し直さないこと.
+     */
+    @Test
+    public void unchangedContainerIsReused() {
+        int size = _state.beforeMethod(_root);
+        _state.afterMethod(_root, size);
+
+        assertThat(_state.isDirty(), is(false));
+    }
+
+    /**
+     * コンポーネントを登録したテストメソッドの後は、作成し直すこと.
+     */
+    @Test
+    public void registrationMakesContainerDirty() {
+        int size = _state.beforeMethod(_root);
+        _child.register(new StringBuilder());
+        _state.afterMethod(_root, size);
+
+        assertThat(_state.isDirty(), is(true));
+
+        _state.reset();
+        assertThat(_state.isDirty(), is(false));
+    }
+
+    /**
+     * テストメソッドの開始時に、リクエストスコープのコンポーネントを破棄すること.
+     */
+    @Test
+    public void requestScopeIsClearedBeforeMethod() {
+        final Map<Object, Object> requestMap = CollectionsUtil.newHashMap();
+        requestMap.put("fooAction", new Object());
+        _root.setExternalContext((ExternalContext) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] {ExternalContext.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(
+                            final Object proxy,
+                            final Method method,
+                            final Object[] args) {
+                        if ("getRequest".equals(method.getName())) {
+                            return new Object();
+                        }
+                        if ("getRequestMap".equals(method.getName())) {
+                            return requestMap;
+                        }
+                        return null;
+                    }
+                }));
+
+        _state.beforeMethod(_root);
+
+        assertThat(requestMap.isEmpty(), is(true));
+    }
+}
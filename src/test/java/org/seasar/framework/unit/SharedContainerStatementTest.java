@@ -0,0 +1,177 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.Statement;
+import org.seasar.framework.aop.interceptors.MockInterceptor;
+import org.seasar.framework.container.impl.S2ContainerImpl;
+import org.seasar.framework.unit.annotation.MockInterface;
+import org.seasar.framework.unit.annotation.SharedContainer;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * {@link SharedContainerStatement} と、共有するコンテナの検証のテスト.
+ */
+public class SharedContainerStatementTest {
+
+    /**
+     * コンポーネントを登録しない場合は、コンテナを一度だけ作成すること.
+     *
+     * @throws Throwable 例外が発生した場合
+     */
+    @Test
+    public void containerIsCreatedOnce() throws Throwable {
+        RecordingRunner runner = new RecordingRunner();
+        runner.run();
+
+        assertThat(runner._events.toString(),
+                is("[create a, run a, run b, run c]"));
+    }
+
+    /**
+     * コンポーネントを登録したテストメソッドの後は、コンテナを作成し直すこと.
+     *
+     * @throws Throwable 例外が発生した場合
+     */
+    @Test
+    public void containerIsRecreatedAfterRegistration() throws Throwable {
+        RecordingRunner runner = new RecordingRunner("a");
+        runner.run();
+
+        assertThat(runner._events.toString(),
+                is("[create a, run a, create b, run b, run c]"));
+    }
+
+    /**
+     * 共有するコンテナでは {@link MockInterface} を使用できないこと.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test(expected = InitializationError.class)
+    public void mockInterfaceIsRejected() throws Exception {
+        new Seasar24(SharedWithMock.class);
+    }
+
+    /**
+     * テストメソッドの実行を記録するテストランナー.
+     */
+    private static class RecordingRunner extends Seasar24 {
+        /** 実行の記録 */
+        private final List<String> _events = CollectionsUtil.newArrayList();
+        /** コンポーネントを登録するテストメソッドの名前 */
+        private final List<String> _registering;
+        /** 共有しているコンテナの状態 */
+        private final SharedContainerState _state =
+                new SharedContainerState();
+
+        /**
+         * テストランナーを作成する.
+         *
+         * @param registering コンポーネントを登録するテストメソッドの名前
+         * @throws InitializationError テストクラスが不正な場合
+         */
+        RecordingRunner(final String... registering)
+                throws InitializationError {
+            super(Shared.class);
+            _registering = Arrays.asList(registering);
+        }
+
+        /**
+         * テストメソッドを実行する.
+         *
+         * @throws Throwable 例外が発生した場合
+         */
+        void run() throws Throwable {
+            new SharedContainerStatement(this, getChildren(),
+                    new RunNotifier(), _state).evaluate();
+        }
+
+        @Override
+        protected Statement withSharedContainer(
+                final FrameworkMethod method, final Statement statement) {
+            _events.add("create " + method.getName());
+            return statement;
+        }
+
+        @Override
+        protected void runChild(
+                final FrameworkMethod method, final RunNotifier notifier) {
+            _events.add("run " + method.getName());
+            if (_registering.contains(method.getName())) {
+                _state.afterMethod(new CountingContainer(), 0);
+            }
+        }
+
+        @Override
+        protected List<FrameworkMethod> computeTestMethods() {
+            List<FrameworkMethod> methods =
+                    CollectionsUtil.newArrayList(super.computeTestMethods());
+            Collections.sort(methods, new Comparator<FrameworkMethod>() {
+                @Override
+                public int compare(
+                        final FrameworkMethod o1, final FrameworkMethod o2) {
+                    return o1.getName().compareTo(o2.getName());
+                }
+            });
+            return methods;
+        }
+    }
+
+    /**
+     * コンポーネントが 1 つ登録されたコンテナ.
+     */
+    private static class CountingContainer extends S2ContainerImpl {
+        /**
+         * コンテナを作成する.
+         */
+        CountingContainer() {
+            register(new Object());
+        }
+    }
+
+    /**
+     * コンテナを共有するテストクラス.
+     */
+    @SharedContainer
+    public abstract static class Shared {
+        /** テスト */
+        @Test
+        public void a() {
+        }
+
+        /** テスト */
+        @Test
+        public void b() {
+        }
+
+        /** テスト */
+        @Test
+        public void c() {
+        }
+    }
+
+    /**
+     * コンテナを共有し、{@link MockInterface} を使用するテストクラス.
+     */
+    @SharedContainer
+    public abstract static class SharedWithMock {
+        /** モック */
+        @MockInterface(Runnable.class)
+        MockInterceptor _runnableMock;
+
+        /** テスト */
+        @Test
+        public void a() {
+        }
+    }
+}
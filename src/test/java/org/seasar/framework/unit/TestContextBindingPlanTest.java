@@ -0,0 +1,103 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.junit.Test;
+import org.seasar.framework.unit.annotation.PublishedTestContext;
+
+/**
+ * {@link TestContextBindingPlan} のテスト.
+ */
+public class TestContextBindingPlanTest {
+
+    /**
+     * テストクラスごとに同じバインディングの情報を返すこと.
+     */
+    @Test
+    public void planIsCachedPerClass() {
+        assertThat(TestContextBindingPlan.get(Sample.class),
+                is(sameInstance(TestContextBindingPlan.get(Sample.class))));
+    }
+
+    /**
+     * 公開されたテストコンテキストの型の、値が設定されていないフィールドだけに
+     * テストコンテキストを設定すること.
+     */
+    @Test
+    public void bindsOnlyUnsetPublishedFields() {
+        InternalTestContext testContext = newTestContext();
+        Published preset = (Published) newTestContext();
+        Sample sample = new Sample();
+        sample._preset = preset;
+
+        TestContextBindingPlan.get(Sample.class).bind(sample, testContext);
+
+        assertThat(sample._inherited, is(sameInstance((Object) testContext)));
+        assertThat(sample._published, is(sameInstance((Object) testContext)));
+        assertThat(sample._preset, is(sameInstance(preset)));
+        assertThat(sample._other, is(nullValue()));
+        assertThat(Sample._static, is(nullValue()));
+    }
+
+    /**
+     * 公開された型を実装するテストコンテキストを作成する.
+     *
+     * @return テストコンテキスト
+     */
+    private InternalTestContext newTestContext() {
+        return (InternalTestContext) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] {InternalTestContext.class, Published.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(
+                            final Object proxy,
+                            final Method method,
+                            final Object[] args) {
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * 公開されたテストコンテキストの型.
+     */
+    @PublishedTestContext
+    public interface Published {
+    }
+
+    /**
+     * 公開されていない型.
+     */
+    public interface Other {
+    }
+
+    /**
+     * スーパークラスのフィールドを持つテストクラス.
+     */
+    public abstract static class Base {
+        /** スーパークラスのフィールド */
+        Published _inherited;
+    }
+
+    /**
+     * テストコンテキストをバインディングするテストクラス.
+     */
+    public static class Sample extends Base {
+        /** static なフィールド */
+        static Published _static;
+        /** 公開された型のフィールド */
+        Published _published;
+        /** 値が設定されているフィールド */
+        Published _preset;
+        /** 公開されていない型のフィールド */
+        Other _other;
+    }
+}
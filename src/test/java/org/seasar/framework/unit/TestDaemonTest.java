@@ -0,0 +1,149 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * {@link TestDaemon} の要求と応答のテスト.
+ */
+public class TestDaemonTest {
+    /** テストするデーモン */
+    private TestDaemon _daemon;
+    /** デーモンを実行するスレッド */
+    private Thread _thread;
+
+    /**
+     * 空いているポートでデーモンを起動する.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Before
+    public void before() throws Exception {
+        _daemon = new TestDaemon(0, new URL[0]);
+        _thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    _daemon.serve();
+                } catch (IOException e) {
+                    System.err.println(e);
+                }
+            }
+        };
+        _thread.start();
+    }
+
+    /**
+     * デーモンを終了する.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @After
+    public void after() throws Exception {
+        if (_thread.isAlive()) {
+            send(TestDaemon.STOP);
+            _thread.join(10000L);
+        }
+    }
+
+    /**
+     * テストクラスの実行状況と集計を 1 行ずつ返すこと.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void runReportsEachTestAndResult() throws Exception {
+        List<String> lines = send(TestDaemon.RUN,
+                Sample.class.getName(), "jp.example.NoSuchTest", "");
+
+        assertThat(lines.get(0), is(TestDaemon.ERROR
+                + " class not found: jp.example.NoSuchTest"));
+        assertThat(lines.get(1),
+                is("STARTED test(" + Sample.class.getName() + ")"));
+        assertThat(lines.get(2),
+                is("FINISHED test(" + Sample.class.getName() + ")"));
+        assertThat(lines.get(3).startsWith(TestDaemon.RESULT
+                + " run=1 failures=0 ignored=0 time="), is(true));
+        assertThat(lines.size(), is(4));
+    }
+
+    /**
+     * 不明なコマンドにはエラーを返し、要求の受け付けを続けること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void unknownCommandIsRejected() throws Exception {
+        assertThat(send("HELLO").toString(),
+                is("[" + TestDaemon.ERROR + " unknown command: HELLO]"));
+        assertThat(_thread.isAlive(), is(true));
+    }
+
+    /**
+     * {@code STOP} でデーモンが終了すること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void stopTerminatesDaemon() throws Exception {
+        assertThat(send(TestDaemon.STOP).toString(),
+                is("[" + TestDaemon.STOP + "]"));
+        _thread.join(10000L);
+        assertThat(_thread.isAlive(), is(false));
+    }
+
+    /**
+     * 要求を送信し、応答の行を返す.
+     *
+     * @param lines 要求の行
+     * @return 応答の行
+     * @throws IOException 通信に失敗した場合
+     */
+    private List<String> send(final String... lines) throws IOException {
+        List<String> result = CollectionsUtil.newArrayList();
+        try (Socket socket = new Socket(
+                InetAddress.getLoopbackAddress(), _daemon.getLocalPort())) {
+            PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                    socket.getOutputStream(), StandardCharsets.UTF_8), true);
+            for (final String line : lines) {
+                writer.println(line);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.UTF_8));
+            for (String line = reader.readLine();
+                    line != null;
+                    line = reader.readLine()) {
+                result.add(line);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * デーモンで実行するテストクラス.
+     */
+    public static class Sample {
+        /**
+         * 何もしないテスト.
+         */
+        @Test
+        public void test() {
+        }
+    }
+}
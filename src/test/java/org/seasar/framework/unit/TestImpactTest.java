@@ -0,0 +1,114 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link TestImpact} のテスト.
+ */
+public class TestImpactTest {
+    /** 一時ディレクトリ */
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    /**
+     * 参照の読み取り結果を破棄する.
+     */
+    @After
+    public void after() {
+        TestImpact.clear();
+    }
+
+    /**
+     * クラスパスのディレクトリにあるクラスの参照を、再帰的に追加すること.
+     */
+    @Test
+    public void referencesAreAddedTransitively() {
+        Set<String> inputs = new TreeSet<>();
+        inputs.add(path(Caller.class));
+        inputs.add("foo.dicon");
+
+        assertThat(TestImpact.addReferences(inputs), is(true));
+
+        assertThat(inputs.contains(path(Callee.class)), is(true));
+        assertThat(inputs.contains(path(Leaf.class)), is(true));
+        assertThat(inputs.contains(
+                "org/seasar/framework/unit/SerializedStatementTest.class"),
+                is(false));
+        assertThat(inputs.contains("java/lang/Object.class"), is(false));
+        assertThat(inputs.contains("foo.dicon"), is(true));
+    }
+
+    /**
+     * 読み取れないクラスファイルがある場合は、参照を保持せずに失敗を返すこと.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void brokenClassFileIsReported() throws Exception {
+        File directory = _folder.newFolder();
+        File broken = new File(directory, "broken/Broken.class");
+        assertThat(broken.getParentFile().mkdirs(), is(true));
+        assertThat(broken.createNewFile(), is(true));
+        Set<String> inputs = new TreeSet<>();
+        inputs.add("broken/Broken.class");
+
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        try (URLClassLoader loader = new URLClassLoader(
+                new URL[] {directory.toURI().toURL()}, original)) {
+            thread.setContextClassLoader(loader);
+            assertThat(TestImpact.addReferences(inputs), is(false));
+            assertThat(TestImpact.addReferences(inputs), is(false));
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+    }
+
+    /**
+     * クラスファイルのパスを返す.
+     *
+     * @param clazz クラス
+     * @return クラスファイルのパス
+     */
+    private static String path(final Class<?> clazz) {
+        return clazz.getName().replace('.', '/') + ".class";
+    }
+
+    /**
+     * 他のクラスを参照するクラス.
+     */
+    public abstract static class Caller {
+        /** 参照するクラス */
+        Callee _callee;
+    }
+
+    /**
+     * 参照されるクラス.
+     */
+    public abstract static class Callee {
+        /**
+         * 他のクラスを参照する.
+         *
+         * @return 参照するクラス
+         */
+        abstract Leaf getLeaf();
+    }
+
+    /**
+     * 間接的に参照されるクラス.
+     */
+    public abstract static class Leaf {
+    }
+}
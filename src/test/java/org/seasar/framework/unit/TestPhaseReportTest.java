@@ -0,0 +1,75 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+/**
+ * {@link TestPhaseReport} と {@link TestPhaseMetrics} のテスト.
+ */
+public class TestPhaseReportTest {
+
+    /**
+     * JSON の文字列に使用できない文字をエスケープすること.
+     */
+    @Test
+    public void escapeJson() {
+        assertThat(TestPhaseReport.escapeJson("a\"b\\c\nd\u0001"),
+                is("a\\\"b\\\\c\\nd\\u0001"));
+        assertThat(TestPhaseReport.escapeJson("Foo$Bar"), is("Foo$Bar"));
+    }
+
+    /**
+     * テストクラスごと、処理の段階ごとに集計すること.
+     */
+    @Test
+    public void writeCsv() {
+        TestPhaseReport report = new TestPhaseReport();
+        report.phaseFinished(new TestPhaseEvent(
+                TestPhaseReportTest.class, null, TestPhase.TEST, 10L));
+        report.phaseFinished(new TestPhaseEvent(
+                TestPhaseReportTest.class, null, TestPhase.TEST, 30L));
+
+        StringWriter out = new StringWriter();
+        report.writeCsv(new PrintWriter(out));
+
+        assertThat(out.toString(), containsString(
+                TestPhaseReportTest.class.getName() + ",TEST,2,40,20,"));
+    }
+
+    /**
+     * JSON で出力すること.
+     */
+    @Test
+    public void writeJson() {
+        TestPhaseReport report = new TestPhaseReport();
+        report.phaseFinished(new TestPhaseEvent(
+                TestPhaseReportTest.class, null, TestPhase.TEST, 10L));
+
+        StringWriter out = new StringWriter();
+        report.writeJson(new PrintWriter(out));
+
+        assertThat(out.toString(), containsString("{\"class\": \""
+                + TestPhaseReportTest.class.getName() + "\", \"phases\""));
+        assertThat(out.toString(), containsString(
+                "{\"phase\": \"TEST\", \"count\": 1, \"totalNanos\": 10"));
+    }
+
+    /**
+     * 作成できないリスナーは無視すること.
+     */
+    @Test
+    public void invalidListenersAreIgnored() {
+        boolean before = TestPhaseMetrics.hasListeners();
+
+        TestPhaseMetrics.registerListeners(
+                "org.example.NoSuchListener, java.lang.Object");
+
+        assertThat(TestPhaseMetrics.hasListeners(), is(before));
+    }
+}
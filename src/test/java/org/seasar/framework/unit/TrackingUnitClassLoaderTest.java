@@ -0,0 +1,53 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * {@link TrackingUnitClassLoader} のテスト.
+ */
+public class TrackingUnitClassLoaderTest {
+
+    /**
+     * 親に委譲して読み込んだクラスの名前を記録すること.
+     *
+     * @throws Exception 例外が発生した場合
+     */
+    @Test
+    public void loadedClassNamesAreRecorded() throws Exception {
+        TrackingUnitClassLoader loader =
+                new TrackingUnitClassLoader(getClass().getClassLoader());
+
+        Class<?> clazz = Class.forName(
+                Sample.class.getName(), false, loader);
+
+        assertThat(clazz, is(sameInstance((Object) Sample.class)));
+        assertThat(loader.getClassNames().contains(Sample.class.getName()),
+                is(true));
+    }
+
+    /**
+     * 見つからなかったクラスは記録しないこと.
+     */
+    @Test
+    public void missingClassIsNotRecorded() {
+        TrackingUnitClassLoader loader =
+                new TrackingUnitClassLoader(getClass().getClassLoader());
+        try {
+            loader.loadClass("jp.example.NoSuchClass");
+        } catch (ClassNotFoundException expected) {
+            // 見つからないことを確認する
+        }
+
+        assertThat(loader.getClassNames().isEmpty(), is(true));
+    }
+
+    /**
+     * 読み込むクラス.
+     */
+    public abstract static class Sample {
+    }
+}
@@ -0,0 +1,143 @@
+package org.seasar.framework.unit;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.Statement;
+import org.junit.runners.model.TestClass;
+import org.seasar.framework.container.impl.S2ContainerBehavior;
+import org.seasar.framework.util.tiger.CollectionsUtil;
+
+/**
+ * {@link WarmDeployConfiguration} のテスト.
+ */
+public class WarmDeployConfigurationTest {
+    /** テストメソッドの実行中に設定されていたプロバイダ */
+    private final List<S2ContainerBehavior.Provider> _providers =
+            CollectionsUtil.newArrayList();
+
+    /**
+     * WARM deploy が可能な場合だけ実行する.
+     */
+    @Before
+    public void before() {
+        WarmDeployConfiguration.invalidate();
+        Assume.assumeTrue(WarmDeployConfiguration.isAvailable());
+    }
+
+    /**
+     * キャッシュとプロバイダを元に戻す.
+     */
+    @After
+    public void after() {
+        WarmDeployConfiguration.invalidate();
+        S2ContainerBehavior.setProvider(
+                new S2ContainerBehavior.DefaultProvider());
+    }
+
+    /**
+     * WARM deploy のテストメソッドを続けて実行しても、
+     * どちらのテストメソッドでも WARM deploy のプロバイダが設定されていること.
+     *
+     * @throws Throwable 例外が発生した場合
+     */
+    @Test
+    public void providerIsConfiguredForEachMethod() throws Throwable {
+        TestClass testClass = new TestClass(Sample.class);
+        for (final FrameworkMethod method
+                : testClass.getAnnotatedMethods(Test.class)) {
+            newStatement(testClass, method).evaluate();
+        }
+
+        assertThat(_providers.size(), is(2));
+        for (final S2ContainerBehavior.Provider provider : _providers) {
+            assertThat(provider, is(not(
+                    instanceOf(S2ContainerBehavior.DefaultProvider.class))));
+        }
+        assertThat(S2ContainerBehavior.getProvider(),
+                is(instanceOf(S2ContainerBehavior.DefaultProvider.class)));
+    }
+
+    /**
+     * プロバイダを記録する、WARM deploy のテストメソッドの statement を作成する.
+     *
+     * @param testClass テストクラス
+     * @param method テストメソッド
+     * @return statement
+     */
+    private Statement newStatement(
+            final TestClass testClass, final FrameworkMethod method) {
+        Statement body = new Statement() {
+            @Override
+            public void evaluate() {
+                _providers.add(S2ContainerBehavior.getProvider());
+            }
+        };
+        return new TestContextStatement(body, null, testClass, method) {
+            @Override
+            protected boolean needsWarmDeploy() {
+                return true;
+            }
+
+            @Override
+            protected InternalTestContext createTestContext(
+                    final Class<?> clazz) {
+                return newTestContext();
+            }
+        };
+    }
+
+    /**
+     * 何もしないテストコンテキストを作成する.
+     *
+     * @return テストコンテキスト
+     */
+    private InternalTestContext newTestContext() {
+        return (InternalTestContext) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] {InternalTestContext.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(
+                            final Object proxy,
+                            final Method method,
+                            final Object[] args) {
+                        if (method.getReturnType() == boolean.class) {
+                            return true;
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * WARM deploy のテストメソッドを持つテストクラス.
+     */
+    public abstract static class Sample {
+        /**
+         * 1 つ目のテスト.
+         */
+        @Test
+        public void first() {
+        }
+
+        /**
+         * 2 つ目のテスト.
+         */
+        @Test
+        public void second() {
+        }
+    }
+}